@@ -0,0 +1,23 @@
+package com.example.bankcards.audit;
+
+import com.example.bankcards.dto.Transfer.TransferDTO;
+
+import java.math.BigDecimal;
+
+/**
+ * Событие аудита: только идентификаторы и суммы, без сущностей и готовых строк.
+ * Время фиксируется в потоке запроса, форматирование выполняет {@link AuditEventLog}.
+ */
+public record AuditEvent(AuditEventType type, long timestampMillis, Long transferId, Long userId,
+                         Long fromCardId, Long toCardId, BigDecimal amount, int status) {
+
+    public static AuditEvent transferCompleted(Long transferId, TransferDTO transferDTO) {
+        return new AuditEvent(AuditEventType.TRANSFER_COMPLETED, System.currentTimeMillis(), transferId,
+                transferDTO.getUserId(), transferDTO.getFromCardId(), transferDTO.getToCardId(), transferDTO.getAmount(), 200);
+    }
+
+    public static AuditEvent transferRejected(TransferDTO transferDTO, int status) {
+        return new AuditEvent(AuditEventType.TRANSFER_REJECTED, System.currentTimeMillis(), null,
+                transferDTO.getUserId(), transferDTO.getFromCardId(), transferDTO.getToCardId(), transferDTO.getAmount(), status);
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.bankcards.audit;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Журнал аудита в логгер AUDIT. Поток запроса только кладет событие в ограниченный буфер,
+ * подстановку полей и запись выполняет фоновый поток audit-writer. При заполненном буфере
+ * событие отбрасывается и учитывается в audit.events.dropped: запрос не ждет записи лога.
+ * При audit.async=false событие пишется сразу в потоке запроса.
+ */
+@Slf4j
+@Component
+public class AuditEventLog implements MeterBinder {
+    private static final Logger AUDIT = LoggerFactory.getLogger("AUDIT");
+    private static final int BATCH_SIZE = 256;
+    private static final long POLL_MILLIS = 100;
+
+    private final BlockingQueue<AuditEvent> buffer;
+    private final boolean async;
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private volatile boolean running;
+    private Thread writer;
+
+    public AuditEventLog(@Value("${audit.buffer-size:8192}") int bufferSize,
+                         @Value("${audit.async:true}") boolean async) {
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        this.async = async;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!async) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::drain, "audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Дописывает буфер и останавливает поток записи.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    public void publish(AuditEvent event) {
+        if (!async) {
+            write(event);
+            return;
+        }
+        if (!buffer.offer(event)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Событие попадает в журнал только после фиксации текущей транзакции.
+     */
+    public void publishAfterCommit(AuditEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(event);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publish(event);
+            }
+        });
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        Gauge.builder("audit.buffer.size", buffer, BlockingQueue::size)
+                .register(registry);
+        FunctionCounter.builder("audit.events.dropped", dropped, AtomicLong::get)
+                .register(registry);
+        FunctionCounter.builder("audit.events.written", written, AtomicLong::get)
+                .register(registry);
+    }
+
+    private void drain() {
+        List<AuditEvent> batch = new ArrayList<>(BATCH_SIZE);
+        long reportedDropped = 0;
+        while (running || !buffer.isEmpty()) {
+            try {
+                AuditEvent first = buffer.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                buffer.drainTo(batch, BATCH_SIZE - 1);
+                batch.forEach(this::write);
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Ошибка записи событий аудита", e);
+                batch.clear();
+            }
+            long droppedNow = dropped.get();
+            if (droppedNow != reportedDropped) {
+                log.warn("Буфер аудита переполнен, отброшено событий: {}", droppedNow - reportedDropped);
+                reportedDropped = droppedNow;
+            }
+        }
+    }
+
+    private void write(AuditEvent event) {
+        AUDIT.info("event={} at={} transferId={} userId={} fromCardId={} toCardId={} amount={} status={}",
+                event.type(), Instant.ofEpochMilli(event.timestampMillis()), event.transferId(), event.userId(),
+                event.fromCardId(), event.toCardId(), event.amount(), event.status());
+        written.incrementAndGet();
+    }
+}
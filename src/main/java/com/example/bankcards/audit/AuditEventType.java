@@ -0,0 +1,6 @@
+package com.example.bankcards.audit;
+
+public enum AuditEventType {
+    TRANSFER_COMPLETED,
+    TRANSFER_REJECTED
+}
@@ -0,0 +1,58 @@
+package com.example.bankcards.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Раздельные пулы соединений к одной базе, включаются datasource.pools.enabled (профиль prod).
+ * <ul>
+ *     <li>transfer - транзакции на запись: переводы, смена статусов, задачи по расписанию;</li>
+ *     <li>read - транзакции readOnly: списки карт, история и выгрузка переводов, поиск пользователя в JwtFilter;</li>
+ *     <li>nested - соединения, которые поток берет поверх уже взятого из transfer (генератор id).</li>
+ * </ul>
+ * Пул выбирается при первом запросе к базе, когда признак readOnly транзакции уже известен.
+ * Метрики hikaricp.connections.* публикуются для каждого пула с тегом pool.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "datasource.pools", name = "enabled", havingValue = "true")
+public class DataSourcePoolsConfig {
+
+    @Bean
+    @ConfigurationProperties("datasource.pools.transfer")
+    public HikariDataSource transferDataSource(DataSourceProperties properties) {
+        return pool(properties);
+    }
+
+    @Bean
+    @ConfigurationProperties("datasource.pools.read")
+    public HikariDataSource readDataSource(DataSourceProperties properties) {
+        return pool(properties);
+    }
+
+    @Bean
+    @ConfigurationProperties("datasource.pools.nested")
+    public HikariDataSource nestedDataSource(DataSourceProperties properties) {
+        return pool(properties);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(
+                new NestedConnectionDataSource(transferDataSource(properties), nestedDataSource(properties)));
+        dataSource.setReadOnlyDataSource(readDataSource(properties));
+        return dataSource;
+    }
+
+    private static HikariDataSource pool(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+}
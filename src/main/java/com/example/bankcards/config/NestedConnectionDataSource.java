@@ -0,0 +1,79 @@
+package com.example.bankcards.config;
+
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Пул, из которого поток держит не больше одного соединения. Соединение, запрошенное потоком
+ * поверх уже взятого (генератор id в id_generators работает в отдельной транзакции), берется
+ * из резервного пула: иначе при занятом основном пуле каждый поток ждал бы соединения,
+ * которое держат такие же ждущие потоки, до тайм-аута.
+ */
+public class NestedConnectionDataSource extends DelegatingDataSource {
+    private final DataSource nestedDataSource;
+    private final Set<Thread> holders = ConcurrentHashMap.newKeySet();
+
+    public NestedConnectionDataSource(DataSource targetDataSource, DataSource nestedDataSource) {
+        super(targetDataSource);
+        this.nestedDataSource = nestedDataSource;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(DataSource::getConnection);
+    }
+
+    /**
+     * Учетные данные передаются выбранному пулу; HikariDataSource отвечает на них SQLFeatureNotSupportedException.
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    private Connection getConnection(ConnectionSource source) throws SQLException {
+        Thread owner = Thread.currentThread();
+        if (holders.contains(owner)) {
+            return source.get(nestedDataSource);
+        }
+        Connection connection = source.get(obtainTargetDataSource());
+        holders.add(owner);
+        return trackRelease(connection, owner);
+    }
+
+    private Connection trackRelease(Connection target, Thread owner) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(ConnectionProxy.class.getClassLoader(),
+                new Class<?>[]{ConnectionProxy.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "getTargetConnection" -> target;
+                    default -> {
+                        if (method.getName().equals("close") && released.compareAndSet(false, true)) {
+                            // соединение может закрыть другой поток, поэтому снимается владелец, а не текущий поток
+                            holders.remove(owner);
+                        }
+                        try {
+                            yield method.invoke(target, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                    }
+                });
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSource {
+        Connection get(DataSource dataSource) throws SQLException;
+    }
+}
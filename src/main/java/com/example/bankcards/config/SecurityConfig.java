@@ -49,6 +49,9 @@ public class SecurityConfig {
                                 "/swagger-ui.html",
                                 "/api-docs.yaml",
                                 "/v3/api-docs.yaml").permitAll()
+                        // метрики Prometheus раскрывают маршруты, кэши и пулы: сборщик передает токен администратора
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasAuthority("ROLE_ADMIN")
                         .requestMatchers(
                                 "/api/cards/**",
                                 "api/transfer",
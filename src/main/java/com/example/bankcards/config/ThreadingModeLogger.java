@@ -0,0 +1,40 @@
+package com.example.bankcards.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Сообщает при старте, на каких потоках обрабатываются запросы и задачи @Scheduled.
+ * spring.threads.virtual.enabled действует только на Java 21+, на более старой JVM
+ * приложение остаётся на потоках платформы.
+ * <p>
+ * Мониторы на пути запроса: Connector/J 9.x и PooledOptimizer Hibernate 6.5 используют ReentrantLock,
+ * в HikariCP 5.1 остаются короткие synchronized учета statement в ProxyConnection.
+ * Фактические закрепления показывает ThreadingModeBenchmarkTest.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ThreadingModeLogger {
+    private final Environment environment;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void logThreadingMode() {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            log.info("Запросы Tomcat и задачи @Scheduled выполняются на виртуальных потоках");
+            return;
+        }
+        if (environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)) {
+            log.warn("Виртуальные потоки включены, но Java {} их не поддерживает (нужна 21+), используются потоки платформы",
+                    Runtime.version().feature());
+        }
+        log.info("Запросы выполняются на потоках платформы Tomcat (максимум {}), задачи @Scheduled - на пуле из {} потоков",
+                environment.getProperty("server.tomcat.threads.max", "200"),
+                environment.getProperty("spring.task.scheduling.pool.size", "1"));
+    }
+}
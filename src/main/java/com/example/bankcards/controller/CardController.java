@@ -1,6 +1,7 @@
 package com.example.bankcards.controller;
 
 import com.example.bankcards.dto.Card.*;
+import com.example.bankcards.dto.Pagination.CursorPageDTO;
 import com.example.bankcards.entity.enums.CardStatus;
 import com.example.bankcards.service.CardService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -72,6 +73,22 @@ public class CardController {
         return new ResponseEntity<>(userCards, HttpStatus.OK);
     }
 
+    @GetMapping("/{id}/userCards/cursor")
+    @Operation(summary = "Получить карты пользователя по курсору", description = "Возвращает карты пользователя в порядке возрастания ID после курсора after, без подсчета общего количества. Доступно владельцу карт и администратору.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Страница карт успешно получена"),
+            @ApiResponse(responseCode = "400", description = "Некорректный курсор или размер страницы"),
+            @ApiResponse(responseCode = "403", description = "Доступ запрещён"),
+            @ApiResponse(responseCode = "404", description = "Пользователь не найден")
+    })
+    public ResponseEntity<CursorPageDTO<CardDTO>> getUserCardsAfter(
+            @Parameter(description = "ID пользователя", required = true) @PathVariable("id") Long id,
+            @Parameter(description = "Курсор nextCursor предыдущей страницы, пусто для первой страницы") @RequestParam(required = false) String after,
+            @Parameter(description = "Размер страницы, от 1 до 100") @RequestParam(defaultValue = "20") int size) {
+        CursorPageDTO<CardDTO> userCards = cardService.getUserCardsAfter(id, after, size);
+        return new ResponseEntity<>(userCards, HttpStatus.OK);
+    }
+
     @GetMapping("/{id}/balance")
     @Operation(summary = "Получить баланс карты", description = "Возвращает баланс карты по её ID. Доступно для авторизованных пользователей.")
     @ApiResponses(value = {
@@ -116,6 +133,22 @@ public class CardController {
         return new ResponseEntity<>(cardSetStatusResponseDTO, HttpStatus.OK);
     }
 
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    @PatchMapping("/{id}/striping")
+    @Operation(summary = "Настроить разбиение баланса карты", description = "Включает разбиение баланса карты на части для быстрых входящих переводов (stripes > 0) или выключает его (stripes = 0). Доступно только администратору.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Разбиение баланса успешно изменено"),
+            @ApiResponse(responseCode = "400", description = "Недопустимое число частей"),
+            @ApiResponse(responseCode = "403", description = "Доступ запрещён"),
+            @ApiResponse(responseCode = "404", description = "Карта не найдена")
+    })
+    public ResponseEntity<CardBalanceStripingDTO> setBalanceStripes(
+            @Parameter(description = "ID карты", required = true) @PathVariable("id") Long id,
+            @Parameter(description = "Число частей баланса (0 - выключить)", required = true) @RequestParam @NotNull Integer stripes) {
+        CardBalanceStripingDTO response = cardService.setBalanceStripes(id, stripes);
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
     @PreAuthorize("hasAuthority('ROLE_ADMIN')")
     @GetMapping("/all")
     @Operation(summary = "Получить все карты всех пользователей", description = "Возвращает список абсолютно всех банковских карт с поддержкой пагинации. Доступно только администратору.")
@@ -128,6 +161,20 @@ public class CardController {
         return cardService.getAllCards(pageable);
     }
 
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    @GetMapping("/all/cursor")
+    @Operation(summary = "Получить все карты по курсору", description = "Возвращает карты в порядке возрастания ID после курсора after, без подсчета общего количества. Доступно только администратору.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Страница карт успешно получена"),
+            @ApiResponse(responseCode = "400", description = "Некорректный курсор или размер страницы"),
+            @ApiResponse(responseCode = "403", description = "Доступ запрещён")
+    })
+    public ResponseEntity<CursorPageDTO<CardDTO>> getAllCardsAfter(
+            @Parameter(description = "Курсор nextCursor предыдущей страницы, пусто для первой страницы") @RequestParam(required = false) String after,
+            @Parameter(description = "Размер страницы, от 1 до 100") @RequestParam(defaultValue = "20") int size) {
+        return new ResponseEntity<>(cardService.getAllCardsAfter(after, size), HttpStatus.OK);
+    }
+
     @PreAuthorize("hasAuthority('ROLE_ADMIN')")
     @GetMapping("/statuses/request/cards")
     @Operation(summary = "Получить статусы запросов на блокировку карт", description = "Возвращает список статусов запросов на блокировку карт с пагинацией. Доступно только администратору.")
@@ -142,6 +189,52 @@ public class CardController {
         return new ResponseEntity<>(dto, HttpStatus.OK);
     }
 
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    @GetMapping("/statuses/request/cards/cursor")
+    @Operation(summary = "Получить статусы запросов на блокировку карт по курсору", description = "Возвращает статусы запросов на блокировку в порядке возрастания ID карты после курсора after, без подсчета общего количества. Доступно только администратору.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Страница статусов успешно получена"),
+            @ApiResponse(responseCode = "400", description = "Некорректный курсор или размер страницы"),
+            @ApiResponse(responseCode = "403", description = "Доступ запрещён")
+    })
+    public ResponseEntity<CursorPageDTO<CardResponseRequestStatusDTO>> getStatusByRequestStatusAfter(
+            @Parameter(description = "Курсор nextCursor предыдущей страницы, пусто для первой страницы") @RequestParam(required = false) String after,
+            @Parameter(description = "Размер страницы, от 1 до 100") @RequestParam(defaultValue = "20") int size) {
+        CursorPageDTO<CardResponseRequestStatusDTO> dto = cardService.getStatusesByRequestCardsAfter(after, size);
+        return new ResponseEntity<>(dto, HttpStatus.OK);
+    }
+
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    @GetMapping("/block-requests/pending")
+    @Operation(summary = "Получить очередь запросов на блокировку", description = "Возвращает только карты с запросом на блокировку в статусе PENDING в порядке возрастания ID после курсора after. Доступно только администратору.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Страница запросов успешно получена"),
+            @ApiResponse(responseCode = "400", description = "Некорректный курсор или размер страницы"),
+            @ApiResponse(responseCode = "403", description = "Доступ запрещён")
+    })
+    public ResponseEntity<CursorPageDTO<CardResponseRequestStatusDTO>> getPendingBlockRequests(
+            @Parameter(description = "Курсор nextCursor предыдущей страницы, пусто для первой страницы") @RequestParam(required = false) String after,
+            @Parameter(description = "Размер страницы, от 1 до 100") @RequestParam(defaultValue = "20") int size) {
+        CursorPageDTO<CardResponseRequestStatusDTO> dto = cardService.getPendingBlockRequests(after, size);
+        return new ResponseEntity<>(dto, HttpStatus.OK);
+    }
+
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    @PatchMapping("/block-requests")
+    @Operation(summary = "Одобрить или отклонить запросы на блокировку", description = "Применяет решение APPROVED или REJECTED сразу к списку карт одним запросом к БД. Карты без запроса в статусе PENDING не меняются. Доступно только администратору.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Решение применено"),
+            @ApiResponse(responseCode = "400", description = "Неверные данные в запросе"),
+            @ApiResponse(responseCode = "403", description = "Доступ запрещён")
+    })
+    public ResponseEntity<CardBlockRequestDecisionResponseDTO> decideBlockRequests(
+            @Valid @RequestBody CardBlockRequestDecisionDTO cardBlockRequestDecisionDTO) {
+        log.info("Block request decision {} for {} cards", cardBlockRequestDecisionDTO.getDecision(),
+                cardBlockRequestDecisionDTO.getCardIds() != null ? cardBlockRequestDecisionDTO.getCardIds().size() : 0);
+        CardBlockRequestDecisionResponseDTO response = cardService.decideBlockRequests(cardBlockRequestDecisionDTO);
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
     @PreAuthorize("hasAuthority('ROLE_ADMIN')")
     @DeleteMapping("/delete/{id}")
     @Operation(summary = "Удалить карту", description = "Удаляет банковскую карту по её ID. Доступно только администратору.")
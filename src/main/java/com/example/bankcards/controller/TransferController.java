@@ -1,21 +1,38 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.Pagination.CursorPageDTO;
+import com.example.bankcards.dto.Transfer.TransferBatchDTO;
+import com.example.bankcards.dto.Transfer.TransferBatchResponseDTO;
 import com.example.bankcards.dto.Transfer.TransferDTO;
 import com.example.bankcards.dto.Transfer.TransferResponseDTO;
+import com.example.bankcards.service.TransferExportFormat;
+import com.example.bankcards.service.TransferHistoryService;
+import com.example.bankcards.service.TransferIdempotencyService;
 import com.example.bankcards.service.TransferService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
 
 @RestController
 @RequiredArgsConstructor
@@ -24,6 +41,8 @@ import org.springframework.web.bind.annotation.RestController;
 @SecurityRequirement(name = "bearerAuth")
 public class TransferController {
     private final TransferService transferService;
+    private final TransferIdempotencyService transferIdempotencyService;
+    private final TransferHistoryService transferHistoryService;
 
     @PostMapping()
     @Operation(summary = "Выполнить перевод", description = "Выполняет перевод средств между картами пользователя.")
@@ -32,10 +51,118 @@ public class TransferController {
             @ApiResponse(responseCode = "400", description = "Неверные данные в запросе"),
             @ApiResponse(responseCode = "403", description = "Доступ запрещён"),
             @ApiResponse(responseCode = "404", description = "Карта не найдена"),
-            @ApiResponse(responseCode = "400", description = "Недостаточно средств или карта заблокирована(BLOCK, EXPIRED)")
+            @ApiResponse(responseCode = "400", description = "Недостаточно средств или карта заблокирована(BLOCK, EXPIRED)"),
+            @ApiResponse(responseCode = "409", description = "Idempotency-Key уже использован для другого перевода")
+    })
+    public ResponseEntity<TransferResponseDTO> transfer(
+            @Parameter(description = "Ключ идемпотентности: повтор с тем же ключом вернёт уже выполненный перевод. В режиме LEDGER не поддерживается (400)")
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @Valid @RequestBody TransferDTO transferDTO) {
+        TransferResponseDTO dto = idempotencyKey != null
+                ? transferIdempotencyService.transfer(idempotencyKey, transferDTO)
+                : transferService.transfer(transferDTO);
+        return new ResponseEntity<>(dto, HttpStatus.OK);
+    }
+
+    @PostMapping("/batch")
+    @Operation(summary = "Выполнить пакет переводов", description = "Выполняет переводы из пакета в одной транзакции. Результат возвращается по каждому переводу отдельно.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Пакет обработан, результаты по каждому переводу в теле ответа"),
+            @ApiResponse(responseCode = "400", description = "Неверные данные в запросе"),
+            @ApiResponse(responseCode = "403", description = "Доступ запрещён")
     })
-    public ResponseEntity<TransferResponseDTO> transfer(@Valid @RequestBody TransferDTO transferDTO) {
-        TransferResponseDTO dto = transferService.transfer(transferDTO);
+    public ResponseEntity<TransferBatchResponseDTO> transferBatch(@Valid @RequestBody TransferBatchDTO transferBatchDTO) {
+        TransferBatchResponseDTO dto = transferService.transferBatch(transferBatchDTO.getTransfers());
         return new ResponseEntity<>(dto, HttpStatus.OK);
     }
-}
\ No newline at end of file
+
+    @GetMapping("/history/cards/{cardId}")
+    @Operation(summary = "История переводов карты", description = "Возвращает переводы с карты и на карту от новых к старым после курсора after, с необязательным периодом [from, to). Доступно владельцу карты и администратору.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Страница истории успешно получена"),
+            @ApiResponse(responseCode = "400", description = "Некорректный курсор, период или размер страницы"),
+            @ApiResponse(responseCode = "403", description = "Доступ запрещён"),
+            @ApiResponse(responseCode = "404", description = "Карта не найдена")
+    })
+    public ResponseEntity<CursorPageDTO<TransferResponseDTO>> getCardHistory(
+            @Parameter(description = "ID карты", required = true) @PathVariable Long cardId,
+            @Parameter(description = "Начало периода включительно", example = "2025-01-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "Конец периода не включительно", example = "2025-02-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "Курсор nextCursor предыдущей страницы, пусто для первой страницы") @RequestParam(required = false) String after,
+            @Parameter(description = "Размер страницы, от 1 до 100") @RequestParam(defaultValue = "20") int size) {
+        CursorPageDTO<TransferResponseDTO> history = transferHistoryService.getCardHistory(cardId, from, to, after, size);
+        return new ResponseEntity<>(history, HttpStatus.OK);
+    }
+
+    @GetMapping("/history/users/{userId}")
+    @Operation(summary = "История переводов пользователя", description = "Возвращает переводы по всем картам пользователя от новых к старым после курсора after, с необязательным периодом [from, to). Доступно самому пользователю и администратору.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Страница истории успешно получена"),
+            @ApiResponse(responseCode = "400", description = "Некорректный курсор, период или размер страницы"),
+            @ApiResponse(responseCode = "403", description = "Доступ запрещён"),
+            @ApiResponse(responseCode = "404", description = "Пользователь не найден")
+    })
+    public ResponseEntity<CursorPageDTO<TransferResponseDTO>> getUserHistory(
+            @Parameter(description = "ID пользователя", required = true) @PathVariable Long userId,
+            @Parameter(description = "Начало периода включительно", example = "2025-01-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "Конец периода не включительно", example = "2025-02-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "Курсор nextCursor предыдущей страницы, пусто для первой страницы") @RequestParam(required = false) String after,
+            @Parameter(description = "Размер страницы, от 1 до 100") @RequestParam(defaultValue = "20") int size) {
+        CursorPageDTO<TransferResponseDTO> history = transferHistoryService.getUserHistory(userId, from, to, after, size);
+        return new ResponseEntity<>(history, HttpStatus.OK);
+    }
+
+    @GetMapping("/export/cards/{cardId}")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    @Operation(summary = "Выгрузить переводы карты", description = "Выгружает переводы с карты и на карту за период [from, to) в формате NDJSON или CSV. Строки пишутся в ответ по мере чтения из базы. Доступно только администратору.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Выгрузка переводов"),
+            @ApiResponse(responseCode = "400", description = "Неверный период"),
+            @ApiResponse(responseCode = "403", description = "Доступ запрещён"),
+            @ApiResponse(responseCode = "404", description = "Карта не найдена")
+    })
+    public ResponseEntity<StreamingResponseBody> exportCardTransfers(
+            @PathVariable Long cardId,
+            @Parameter(description = "Начало периода включительно", example = "2025-01-01T00:00:00")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "Конец периода не включительно", example = "2025-02-01T00:00:00")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "NDJSON") TransferExportFormat format) {
+        transferHistoryService.checkCardExport(cardId, from, to);
+        StreamingResponseBody body = out -> transferHistoryService.exportCardTransfers(cardId, from, to, format, out);
+        return exportResponse("card-" + cardId + "-transfers", format, body);
+    }
+
+    @GetMapping("/export/users/{userId}")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    @Operation(summary = "Выгрузить переводы пользователя", description = "Выгружает переводы по всем картам пользователя за период [from, to) в формате NDJSON или CSV. Строки пишутся в ответ по мере чтения из базы. Доступно только администратору.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Выгрузка переводов"),
+            @ApiResponse(responseCode = "400", description = "Неверный период"),
+            @ApiResponse(responseCode = "403", description = "Доступ запрещён"),
+            @ApiResponse(responseCode = "404", description = "Пользователь не найден")
+    })
+    public ResponseEntity<StreamingResponseBody> exportUserTransfers(
+            @PathVariable Long userId,
+            @Parameter(description = "Начало периода включительно", example = "2025-01-01T00:00:00")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "Конец периода не включительно", example = "2025-02-01T00:00:00")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "NDJSON") TransferExportFormat format) {
+        transferHistoryService.checkUserExport(userId, from, to);
+        StreamingResponseBody body = out -> transferHistoryService.exportUserTransfers(userId, from, to, format, out);
+        return exportResponse("user-" + userId + "-transfers", format, body);
+    }
+
+    private static ResponseEntity<StreamingResponseBody> exportResponse(String fileName, TransferExportFormat format,
+                                                                        StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "." + format.getExtension() + "\"")
+                .body(body);
+    }
+}
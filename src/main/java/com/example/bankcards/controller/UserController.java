@@ -1,5 +1,6 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.Pagination.CursorPageDTO;
 import com.example.bankcards.dto.User.UserDTO;
 import com.example.bankcards.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -19,6 +20,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
@@ -71,4 +73,21 @@ public class UserController {
         Page<UserDTO> users = userService.getAllUsers(pageable);
         return new ResponseEntity<>(users, HttpStatus.OK);
     }
+
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    @GetMapping("/all/cursor")
+    @Operation(summary = "Получить всех пользователей по курсору", description = "Возвращает пользователей в порядке возрастания ID после курсора after, без подсчета общего количества. Доступно только администратору.")
+    @SecurityRequirement(name = "bearerAuth")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Страница пользователей успешно получена"),
+            @ApiResponse(responseCode = "400", description = "Некорректный курсор или размер страницы"),
+            @ApiResponse(responseCode = "401", description = "Пользователь не авторизован"),
+            @ApiResponse(responseCode = "403", description = "Доступ запрещён")
+    })
+    public ResponseEntity<CursorPageDTO<UserDTO>> getAllUsersAfter(
+            @Parameter(description = "Курсор nextCursor предыдущей страницы, пусто для первой страницы") @RequestParam(required = false) String after,
+            @Parameter(description = "Размер страницы, от 1 до 100") @RequestParam(defaultValue = "20") int size) {
+        CursorPageDTO<UserDTO> users = userService.getAllUsersAfter(after, size);
+        return new ResponseEntity<>(users, HttpStatus.OK);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package com.example.bankcards.dto.Card;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.math.BigDecimal;
+
+@Data
+@Accessors(chain = true)
+@Schema(description = "DTO для возврата настройки разбиения баланса карты")
+public class CardBalanceStripingDTO {
+
+    @Schema(description = "ID карты", example = "101")
+    private Long id;
+
+    @Schema(description = "Число частей баланса, 0 - разбиение выключено", example = "8")
+    private int balanceStripes;
+
+    @Schema(description = "Полный баланс карты", example = "1000.00")
+    private BigDecimal balance;
+}
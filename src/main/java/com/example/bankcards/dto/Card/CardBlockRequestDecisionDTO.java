@@ -0,0 +1,27 @@
+package com.example.bankcards.dto.Card;
+
+import com.example.bankcards.entity.enums.BlockRequestStatus;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.List;
+
+@Data
+@Accessors(chain = true)
+@Schema(description = "DTO для пакетного решения по запросам на блокировку карт")
+public class CardBlockRequestDecisionDTO {
+
+    @NotEmpty(message = "Список карт не может быть пустым")
+    @Size(max = 1000, message = "За один запрос можно обработать не больше 1000 карт")
+    @Schema(description = "ID карт с запросом на блокировку", example = "[101, 102]", required = true)
+    private List<@NotNull Long> cardIds;
+
+    @NotNull
+    @Schema(description = "Решение: APPROVED блокирует карты, REJECTED отклоняет запросы", example = "APPROVED",
+            allowableValues = {"APPROVED", "REJECTED"}, required = true)
+    private BlockRequestStatus decision;
+}
@@ -0,0 +1,21 @@
+package com.example.bankcards.dto.Card;
+
+import com.example.bankcards.entity.enums.BlockRequestStatus;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+@Data
+@Accessors(chain = true)
+@Schema(description = "DTO для возврата результата пакетного решения по запросам на блокировку")
+public class CardBlockRequestDecisionResponseDTO {
+
+    @Schema(description = "Принятое решение", example = "APPROVED")
+    private BlockRequestStatus decision;
+
+    @Schema(description = "Число переданных карт", example = "2")
+    private int requested;
+
+    @Schema(description = "Число карт, запрос которых был в статусе PENDING и обработан", example = "2")
+    private int updated;
+}
@@ -1,6 +1,6 @@
 package com.example.bankcards.dto.Card;
 
-import com.example.bankcards.entity.UserEntity;
+import com.example.bankcards.dto.User.UserDTO;
 import com.example.bankcards.entity.enums.BlockRequestStatus;
 import com.example.bankcards.entity.enums.CardStatus;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -19,7 +19,7 @@ public class CardResponseRequestStatusDTO {
     private String maskedNumber;
 
     @Schema(description = "Информация о пользователе-владельце карты")
-    private UserEntity user;
+    private UserDTO user;
 
     @Schema(description = "Статус запроса на блокировку", example = "PENDING")
     private BlockRequestStatus blockRequestStatus;
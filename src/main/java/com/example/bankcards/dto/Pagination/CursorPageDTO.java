@@ -0,0 +1,25 @@
+package com.example.bankcards.dto.Pagination;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.List;
+
+@Data
+@Accessors(chain = true)
+@Schema(description = "Страница выборки по курсору без подсчета общего количества")
+public class CursorPageDTO<T> {
+
+    @Schema(description = "Элементы страницы в порядке возрастания ID, история переводов - от новых к старым")
+    private List<T> content;
+
+    @Schema(description = "Запрошенный размер страницы", example = "20")
+    private int size;
+
+    @Schema(description = "Есть ли следующая страница", example = "true")
+    private boolean hasNext;
+
+    @Schema(description = "Курсор следующей страницы для параметра after, null на последней странице", example = "MTAx")
+    private String nextCursor;
+}
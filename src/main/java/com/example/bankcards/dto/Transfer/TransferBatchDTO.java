@@ -0,0 +1,21 @@
+package com.example.bankcards.dto.Transfer;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.List;
+
+@Data
+@Accessors(chain = true)
+@Schema(description = "DTO для пакетного выполнения переводов между банковскими картами")
+public class TransferBatchDTO {
+
+    @NotEmpty(message = "Список переводов не может быть пустым")
+    @Size(max = 1000, message = "Пакет не может содержать больше 1000 переводов")
+    @Schema(description = "Переводы в порядке выполнения", required = true)
+    private List<@Valid TransferDTO> transfers;
+}
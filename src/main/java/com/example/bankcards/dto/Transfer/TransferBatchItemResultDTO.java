@@ -0,0 +1,26 @@
+package com.example.bankcards.dto.Transfer;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+@Data
+@Accessors(chain = true)
+@Schema(description = "Результат отдельного перевода из пакета")
+public class TransferBatchItemResultDTO {
+
+    @Schema(description = "Позиция перевода в пакете", example = "0")
+    private int index;
+
+    @Schema(description = "Перевод выполнен", example = "true")
+    private boolean success;
+
+    @Schema(description = "HTTP-код результата перевода", example = "200")
+    private int status;
+
+    @Schema(description = "Описание ошибки, если перевод не выполнен", example = "Недостаточно средств или карта заблокирована(BLOCK, EXPIRED)")
+    private String error;
+
+    @Schema(description = "Выполненный перевод")
+    private TransferResponseDTO transfer;
+}
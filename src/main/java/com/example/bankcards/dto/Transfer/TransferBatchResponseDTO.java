@@ -0,0 +1,22 @@
+package com.example.bankcards.dto.Transfer;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.List;
+
+@Data
+@Accessors(chain = true)
+@Schema(description = "DTO для возврата результатов пакетного перевода")
+public class TransferBatchResponseDTO {
+
+    @Schema(description = "Количество выполненных переводов", example = "999")
+    private int succeeded;
+
+    @Schema(description = "Количество отклонённых переводов", example = "1")
+    private int failed;
+
+    @Schema(description = "Результаты переводов в порядке пакета")
+    private List<TransferBatchItemResultDTO> results;
+}
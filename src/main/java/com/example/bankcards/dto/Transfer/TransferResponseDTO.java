@@ -24,4 +24,7 @@ public class TransferResponseDTO {
 
     @Schema(description = "Сумма трансфера", example = "100.50")
     private BigDecimal amount;
+
+    @Schema(description = "Номер записи журнала переводов в режиме LEDGER: id трансфера появляется после записи в базу", example = "42")
+    private Long ledgerSeq;
 }
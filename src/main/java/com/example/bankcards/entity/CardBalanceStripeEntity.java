@@ -0,0 +1,32 @@
+package com.example.bankcards.entity;
+
+import io.swagger.v3.oas.annotations.Hidden;
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+import java.math.BigDecimal;
+
+/**
+ * Часть баланса карты, на которую зачисляются входящие переводы.
+ * Полный баланс карты равен cards.balance плюс сумма всех её частей.
+ */
+@Getter
+@Setter
+@RequiredArgsConstructor
+@Accessors(chain = true)
+@Entity
+@Table(name = "card_balance_stripes")
+@Hidden
+public class CardBalanceStripeEntity {
+    @EmbeddedId
+    private CardBalanceStripeId id;
+
+    @Column(name = "balance", nullable = false)
+    private BigDecimal balance;
+}
@@ -0,0 +1,25 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+@Embeddable
+public class CardBalanceStripeId implements Serializable {
+    @Column(name = "card_id", nullable = false)
+    private Long cardId;
+
+    @Column(name = "stripe", nullable = false)
+    private Integer stripe;
+}
@@ -22,7 +22,10 @@ import java.time.LocalDate;
 @Hidden
 public class CardEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "cards_id_generator")
+    @TableGenerator(name = "cards_id_generator", table = "id_generators",
+            pkColumnName = "generator_name", valueColumnName = "next_value",
+            pkColumnValue = "cards", allocationSize = 50)
     @Column(name = "id")
     private Long id;
 
@@ -48,4 +51,7 @@ public class CardEntity {
     @Column(name = "status", nullable = false)
     private CardStatus status;
 
+    @Column(name = "balance_stripes", nullable = false)
+    private int balanceStripes;
+
 }
@@ -19,7 +19,10 @@ import java.time.LocalDateTime;
 @Hidden
 public class TransferEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "transfers_id_generator")
+    @TableGenerator(name = "transfers_id_generator", table = "id_generators",
+            pkColumnName = "generator_name", valueColumnName = "next_value",
+            pkColumnValue = "transfers", allocationSize = 50)
     @Column(name = "id")
     private Long id;
 
@@ -36,4 +39,10 @@ public class TransferEntity {
     @Column(name = "amount", nullable = false)
     @Positive
     private BigDecimal amount;
+
+    /**
+     * Номер записи журнала переводов для режима LEDGER, в остальных режимах не заполняется.
+     */
+    @Column(name = "ledger_seq")
+    private Long ledgerSeq;
 }
@@ -0,0 +1,65 @@
+package com.example.bankcards.entity;
+
+import io.swagger.v3.oas.annotations.Hidden;
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+import org.springframework.data.domain.Persistable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@RequiredArgsConstructor
+@Accessors(chain = true)
+@Entity
+@Table(name = "transfer_idempotency_keys")
+@Hidden
+public class TransferIdempotencyKeyEntity implements Persistable<TransferIdempotencyKeyId> {
+    @EmbeddedId
+    private TransferIdempotencyKeyId id;
+
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Column(name = "transfer_id")
+    private Long transferId;
+
+    @Column(name = "from_card_id")
+    private Long fromCardId;
+
+    @Column(name = "to_card_id")
+    private Long toCardId;
+
+    @Column(name = "amount")
+    private BigDecimal amount;
+
+    @Column(name = "transfer_time")
+    private LocalDateTime transferTime;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Transient
+    private boolean persisted;
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
+}
@@ -25,7 +25,10 @@ import java.util.List;
 @Hidden
 public class UserEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "users_id_generator")
+    @TableGenerator(name = "users_id_generator", table = "id_generators",
+            pkColumnName = "generator_name", valueColumnName = "next_value",
+            pkColumnValue = "users", allocationSize = 50)
     @Column(name = "id")
     private Long id;
 
@@ -0,0 +1,398 @@
+package com.example.bankcards.ledger;
+
+import com.example.bankcards.dto.Card.CardDTO;
+import com.example.bankcards.dto.Transfer.TransferDTO;
+import com.example.bankcards.entity.CardEntity;
+import com.example.bankcards.entity.UserEntity;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.exception.card.CardNotFoundException;
+import com.example.bankcards.exception.transfer.TransferException;
+import com.example.bankcards.mappers.CardMapper;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.service.CardBalanceStripeService;
+import com.example.bankcards.service.CardCache;
+import com.example.bankcards.util.CardValidationUtil;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Переводы режима LEDGER без блокировок строк: балансы карт хранятся в памяти узла и меняются CAS.
+ * Перевод списывает сумму с карты отправителя, ставит запись в журнал и ждет, пока поток
+ * ledger-journal сбросит пачку записей на диск одним fsync; после этого тот же поток зачисляет
+ * суммы получателям и передает записи в {@link LedgerWriteBehind}. Зачисление видно только после
+ * записи на диск, поэтому перевод, потративший его, всегда идет в журнале позже.
+ * <p>
+ * При старте записи журнала после max(transfers.ledger_seq) переносятся в базу, после чего
+ * балансы загружаются из базы при первом обращении к карте. Режим рассчитан на один узел,
+ * владеющий картами: изменения балансов в обход режима LEDGER в памяти не видны.
+ * При ошибке записи журнала переводы отклоняются до перезапуска, который восстановит журнал:
+ * пачка, которую не удалось ни записать, ни отрезать, отвечает клиентам "результат неизвестен".
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "transfer.mode", havingValue = "LEDGER")
+public class LedgerEngine {
+    private static final long POLL_MILLIS = 100;
+
+    private final CardRepository cardRepository;
+    private final CardBalanceStripeService cardBalanceStripeService;
+    private final CardCache cardCache;
+    private final CardMapper cardMapper;
+    private final LedgerWriteBehind writeBehind;
+    private final MeterRegistry meterRegistry;
+    private final Path journalDir;
+    private final int segmentRecords;
+    private final int maxBatch;
+
+    private final ConcurrentHashMap<Long, Account> accounts = new ConcurrentHashMap<>();
+    private final BlockingQueue<PendingTransfer> queue;
+    private LedgerJournal journal;
+    private long lastSeq;
+    private long cleanedSegment;
+    private volatile boolean running;
+    private volatile Throwable failure;
+    private Thread writer;
+
+    public LedgerEngine(CardRepository cardRepository, CardBalanceStripeService cardBalanceStripeService,
+                        CardCache cardCache, CardMapper cardMapper, LedgerWriteBehind writeBehind,
+                        MeterRegistry meterRegistry,
+                        @Value("${ledger.journal-dir:ledger}") Path journalDir,
+                        @Value("${ledger.segment-records:1000000}") int segmentRecords,
+                        @Value("${ledger.queue-size:65536}") int queueSize,
+                        @Value("${ledger.max-batch:1024}") int maxBatch) {
+        this.cardRepository = cardRepository;
+        this.cardBalanceStripeService = cardBalanceStripeService;
+        this.cardCache = cardCache;
+        this.cardMapper = cardMapper;
+        this.writeBehind = writeBehind;
+        this.meterRegistry = meterRegistry;
+        this.journalDir = journalDir;
+        this.segmentRecords = segmentRecords;
+        this.maxBatch = maxBatch;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        Gauge.builder("ledger.accounts", accounts, ConcurrentHashMap::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Переносит в базу записи журнала, не успевшие попасть туда до остановки, и открывает новый сегмент.
+     */
+    @PostConstruct
+    public void start() throws IOException {
+        journal = new LedgerJournal(journalDir, segmentRecords);
+        long checkpoint = writeBehind.checkpoint();
+        List<LedgerRecord> chunk = new ArrayList<>();
+        long[] replayed = new long[1];
+        lastSeq = journal.replay(checkpoint, record -> {
+            chunk.add(record);
+            if (chunk.size() == maxBatch) {
+                writeBehind.write(chunk);
+                replayed[0] += chunk.size();
+                chunk.clear();
+            }
+        });
+        if (!chunk.isEmpty()) {
+            writeBehind.write(chunk);
+            replayed[0] += chunk.size();
+        }
+        log.info("Журнал переводов {}: перенесено в базу {} записей после {}, последняя запись {}",
+                journalDir.toAbsolutePath(), replayed[0], checkpoint, lastSeq);
+
+        journal.open(lastSeq);
+        journal.deleteSegmentsUpTo(lastSeq);
+        cleanedSegment = journal.getSegmentFirstSeq();
+
+        running = true;
+        writer = new Thread(this::writeJournal, "ledger-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Дописывает очередь в журнал и переносит подтвержденные записи в базу.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException, IOException {
+        running = false;
+        if (writer != null) {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        journal.close();
+        writeBehind.flush();
+    }
+
+    /**
+     * Выполняет перевод и возвращает запись журнала после ее сброса на диск.
+     */
+    public LedgerRecord transfer(TransferDTO transferDTO) {
+        return await(transferDTO, submit(transferDTO));
+    }
+
+    /**
+     * Списывает сумму и ставит перевод в очередь журнала, не дожидаясь сброса на диск: пакет
+     * переводов отправляет все переводы сразу и ждет их через {@link #await}, деля сбросы журнала.
+     */
+    public CompletableFuture<LedgerRecord> submit(TransferDTO transferDTO) {
+        if (failure != null || writeBehind.getFailure() != null || !running) {
+            throw unavailable();
+        }
+        long amount = toMinor(transferDTO.getAmount());
+        Account from = account(transferDTO.getFromCardId());
+        Account to = account(transferDTO.getToCardId());
+
+        CardEntity fromCard = from.snapshot();
+        CardEntity toCard = to.snapshot();
+        CardValidationUtil.validateSameUserTransfer(fromCard, toCard);
+        CardValidationUtil.validateCardsBelongToUser(transferDTO, fromCard, toCard);
+        CardValidationUtil.validateStatusesCards(fromCard, toCard);
+        if (!from.tryDebit(amount)) {
+            // отказ окончательный: баланс не перечитывается, иначе зачисление, пришедшее после
+            // неудачного списания, пропустило бы перевод в журнал без списания в памяти
+            log.error("Недостаточно средств на карте отправителя {}. Сумма перевода: {}",
+                    transferDTO.getFromCardId(), transferDTO.getAmount());
+            throw new TransferException("Недостаточно средств или карта заблокирована(BLOCK, EXPIRED)", 400);
+        }
+
+        PendingTransfer pending = new PendingTransfer(from, to, transferDTO.getUserId(), amount, new CompletableFuture<>());
+        try {
+            while (!queue.offer(pending, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (failure != null) {
+                    from.credit(amount);
+                    throw unavailable();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            from.credit(amount);
+            throw new TransferException("Перевод прерван до записи в журнал", 503);
+        }
+        // поток журнала мог остановиться после проверки и уже не заберет запись из очереди
+        if (failure != null && queue.remove(pending)) {
+            from.credit(amount);
+            throw unavailable();
+        }
+        return pending.durable();
+    }
+
+    public LedgerRecord await(TransferDTO transferDTO, CompletableFuture<LedgerRecord> durable) {
+        try {
+            return durable.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof OutcomeUnknownException outcomeUnknown) {
+                log.error("Перевод {} мог быть записан в журнал под номером {}", transferDTO, outcomeUnknown.seq);
+                throw new TransferException("Результат перевода неизвестен: запись журнала " + outcomeUnknown.seq
+                        + " могла сохраниться и будет применена при восстановлении сервиса, не повторяйте перевод", 500);
+            }
+            log.error("Перевод {} не записан в журнал: {}", transferDTO, e.getCause().getMessage());
+            throw unavailable();
+        }
+    }
+
+    /**
+     * Баланс карты в памяти или null, если карта еще не загружена.
+     */
+    public BigDecimal balance(Long cardId) {
+        Account account = accounts.get(cardId);
+        return account != null ? account.balance() : null;
+    }
+
+    private Account account(Long cardId) {
+        return accounts.computeIfAbsent(cardId, id -> {
+            CardEntity card = cardRepository.findWithoutLockById(id)
+                    .orElseThrow(() -> {
+                        log.error("Карта с ID {} не найдена", id);
+                        return new CardNotFoundException("Карта не найдена с ID: " + id, 404);
+                    });
+            BigDecimal balance = cardBalanceStripeService.totalBalance(card);
+            log.debug("Карта {} загружена в память, баланс {}", id, balance);
+            return new Account(id, card.getUser().getId(), new AtomicLong(toMinor(balance)));
+        });
+    }
+
+    private void writeJournal() {
+        Timer syncTimer = meterRegistry.timer("ledger.journal.sync");
+        List<PendingTransfer> batch = new ArrayList<>(maxBatch);
+        List<LedgerRecord> records = new ArrayList<>(maxBatch);
+        try {
+            while (running || !queue.isEmpty()) {
+                PendingTransfer first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1);
+                long now = System.currentTimeMillis();
+                for (PendingTransfer pending : batch) {
+                    records.add(new LedgerRecord(++lastSeq, pending.from().cardId(), pending.to().cardId(),
+                            pending.userId(), pending.amount(), now));
+                }
+
+                long start = System.nanoTime();
+                try {
+                    journal.write(records);
+                } catch (IOException | RuntimeException e) {
+                    log.error("Ошибка записи журнала переводов, переводы отклоняются до перезапуска", e);
+                    failWrite(batch, records, e);
+                    return;
+                }
+                syncTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+                for (PendingTransfer pending : batch) {
+                    pending.to().credit(pending.amount());
+                }
+                writeBehind.enqueue(List.copyOf(records));
+                for (int i = 0; i < batch.size(); i++) {
+                    batch.get(i).durable().complete(records.get(i));
+                }
+                batch.clear();
+                records.clear();
+                deleteFlushedSegments();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopAccepting(e);
+        }
+    }
+
+    /**
+     * Пачка, запись которой завершилась ошибкой: если неподтвержденные байты удалось отрезать,
+     * записей в журнале нет и списания возвращаются; иначе записи могут быть применены при старте,
+     * поэтому списания остаются, а клиент получает номер записи вместо предложения повторить перевод.
+     */
+    private void failWrite(List<PendingTransfer> batch, List<LedgerRecord> records, Throwable e) {
+        failure = e;
+        if (journal.discardUnsynced()) {
+            refund(batch, e);
+        } else {
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).durable().completeExceptionally(new OutcomeUnknownException(records.get(i).seq(), e));
+            }
+        }
+        stopAccepting(e);
+    }
+
+    /**
+     * Переводы из очереди не попали в журнал: списания возвращаются, клиенты получают 503.
+     */
+    private void stopAccepting(Throwable e) {
+        failure = e;
+        List<PendingTransfer> queued = new ArrayList<>();
+        queue.drainTo(queued);
+        refund(queued, e);
+    }
+
+    private void refund(List<PendingTransfer> transfers, Throwable e) {
+        for (PendingTransfer pending : transfers) {
+            pending.from().credit(pending.amount());
+            pending.durable().completeExceptionally(e);
+        }
+    }
+
+    private void deleteFlushedSegments() {
+        long segmentFirstSeq = journal.getSegmentFirstSeq();
+        if (segmentFirstSeq > cleanedSegment && writeBehind.getFlushedSeq() >= segmentFirstSeq - 1) {
+            try {
+                journal.deleteSegmentsUpTo(writeBehind.getFlushedSeq());
+                cleanedSegment = segmentFirstSeq;
+            } catch (IOException e) {
+                // записи сегментов уже в базе, повторное чтение при старте их пропустит
+                log.warn("Не удалось удалить перенесенные сегменты журнала: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static TransferException unavailable() {
+        return new TransferException("Журнал переводов недоступен, повторите запрос позже", 503);
+    }
+
+    private static long toMinor(BigDecimal amount) {
+        try {
+            return amount.movePointRight(2).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new TransferException("Сумма перевода должна содержать не более двух знаков после запятой", 400);
+        }
+    }
+
+    private static final class OutcomeUnknownException extends RuntimeException {
+        private final long seq;
+
+        private OutcomeUnknownException(long seq, Throwable cause) {
+            super(cause);
+            this.seq = seq;
+        }
+    }
+
+    private record PendingTransfer(Account from, Account to, long userId, long amount,
+                                   CompletableFuture<LedgerRecord> durable) {
+    }
+
+    /**
+     * Баланс карты в копейках. Владелец карты не меняется, статус берется из {@link CardCache},
+     * который сбрасывается при блокировке и истечении срока карты.
+     */
+    private final class Account {
+        private final long cardId;
+        private final long userId;
+        private final AtomicLong balance;
+
+        private Account(long cardId, long userId, AtomicLong balance) {
+            this.cardId = cardId;
+            this.userId = userId;
+            this.balance = balance;
+        }
+
+        long cardId() {
+            return cardId;
+        }
+
+        BigDecimal balance() {
+            return BigDecimal.valueOf(balance.get(), 2);
+        }
+
+        boolean tryDebit(long amount) {
+            long current;
+            do {
+                current = balance.get();
+                if (current < amount) {
+                    return false;
+                }
+            } while (!balance.compareAndSet(current, current - amount));
+            return true;
+        }
+
+        void credit(long amount) {
+            balance.addAndGet(amount);
+        }
+
+        CardEntity snapshot() {
+            CardDTO card = cardCache.get(cardId, id -> cardMapper.toCardDTO(cardRepository.findWithoutLockById(id)
+                    .orElseThrow(() -> new CardNotFoundException("Карта не найдена с ID: " + id, 404))));
+            UserEntity user = new UserEntity();
+            user.setId(userId);
+            return new CardEntity()
+                    .setId(cardId)
+                    .setUser(user)
+                    .setStatus(card.getStatus() != null ? card.getStatus() : CardStatus.BLOCK);
+        }
+    }
+}
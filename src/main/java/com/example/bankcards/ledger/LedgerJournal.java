@@ -0,0 +1,214 @@
+package com.example.bankcards.ledger;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал переводов только на дозапись: файлы-сегменты ledger-&lt;первый seq&gt;.log с записями
+ * фиксированной длины и CRC32. {@link #write} возвращается после fsync, поэтому пачка записей
+ * стоит одного сброса на диск. При чтении запись с неверной CRC или недописанный хвост
+ * завершают журнал: такие записи не были подтверждены клиенту.
+ * Методы записи вызываются одним потоком.
+ */
+@Slf4j
+public class LedgerJournal implements AutoCloseable {
+    static final int RECORD_SIZE = 6 * Long.BYTES + Integer.BYTES;
+    private static final String PREFIX = "ledger-";
+    private static final String SUFFIX = ".log";
+
+    private final Path directory;
+    private final int segmentRecords;
+    private FileChannel segment;
+    private long segmentFirstSeq;
+    private int segmentSize;
+
+    public LedgerJournal(Path directory, int segmentRecords) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.segmentRecords = segmentRecords;
+    }
+
+    /**
+     * Читает все сегменты по порядку и возвращает последний прочитанный seq.
+     */
+    public long replay(long afterSeq, Consumer<LedgerRecord> consumer) throws IOException {
+        long lastSeq = afterSeq;
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+        List<Path> segments = segments();
+        for (int i = 0; i < segments.size(); i++) {
+            Path path = segments.get(i);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                while (true) {
+                    buffer.clear();
+                    while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+                        // дочитываем запись целиком
+                    }
+                    if (buffer.position() == 0) {
+                        break;
+                    }
+                    buffer.flip();
+                    LedgerRecord record = buffer.remaining() == RECORD_SIZE ? decode(buffer) : null;
+                    if (record == null) {
+                        log.warn("Журнал переводов {} обрывается на позиции {}, последующие записи не применяются",
+                                path.getFileName(), channel.position());
+                        setAside(segments.subList(i + 1, segments.size()));
+                        return lastSeq;
+                    }
+                    lastSeq = Math.max(lastSeq, record.seq());
+                    if (record.seq() > afterSeq) {
+                        consumer.accept(record);
+                    }
+                }
+            }
+        }
+        return lastSeq;
+    }
+
+    /**
+     * Начинает новый сегмент, следующая запись получит номер {@code lastSeq + 1}.
+     */
+    public void open(long lastSeq) throws IOException {
+        closeSegment();
+        segmentFirstSeq = lastSeq + 1;
+        segmentSize = 0;
+        segment = FileChannel.open(directory.resolve(segmentName(segmentFirstSeq)),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        forceDirectory();
+    }
+
+    public void write(List<LedgerRecord> records) throws IOException {
+        if (segmentSize >= segmentRecords) {
+            open(records.get(0).seq() - 1);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(records.size() * RECORD_SIZE);
+        for (LedgerRecord record : records) {
+            encode(record, buffer);
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            segment.write(buffer);
+        }
+        segment.force(false);
+        segmentSize += records.size();
+    }
+
+    /**
+     * Удаляет закрытые сегменты, все записи которых уже перенесены в базу.
+     */
+    public void deleteSegmentsUpTo(long seq) throws IOException {
+        List<Path> segments = segments();
+        for (int i = 0; i < segments.size() - 1; i++) {
+            long nextFirstSeq = firstSeq(segments.get(i + 1));
+            if (nextFirstSeq - 1 > seq || nextFirstSeq > segmentFirstSeq) {
+                break;
+            }
+            Files.delete(segments.get(i));
+            log.debug("Сегмент журнала {} удален", segments.get(i).getFileName());
+        }
+    }
+
+    /**
+     * Отрезает от текущего сегмента байты последней неудачной {@link #write}: после ошибки fsync
+     * неизвестно, какие из них попали на диск. Возвращает false, если сегмент не удалось вернуть
+     * к подтвержденному размеру и записи могут быть прочитаны при старте.
+     */
+    public boolean discardUnsynced() {
+        if (segment == null) {
+            return true;
+        }
+        try {
+            segment.truncate((long) segmentSize * RECORD_SIZE);
+            segment.force(true);
+            return true;
+        } catch (IOException e) {
+            log.error("Не удалось отрезать неподтвержденные записи сегмента ledger-{}: {}", segmentFirstSeq, e.getMessage());
+            return false;
+        }
+    }
+
+    public long getSegmentFirstSeq() {
+        return segmentFirstSeq;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeSegment();
+    }
+
+    private void closeSegment() throws IOException {
+        if (segment != null) {
+            segment.force(false);
+            segment.close();
+            segment = null;
+        }
+    }
+
+    /**
+     * Сегменты после поврежденной записи не читаются и не удаляются: они переименовываются
+     * для ручного разбора, чтобы новые записи не получили те же номера в порядке чтения.
+     */
+    private void setAside(List<Path> segments) throws IOException {
+        for (Path path : segments) {
+            Path target = path.resolveSibling(path.getFileName() + ".corrupt");
+            Files.move(path, target);
+            log.error("Сегмент журнала {} следует за поврежденной записью и отложен как {}", path.getFileName(), target.getFileName());
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(PREFIX)
+                            && path.getFileName().toString().endsWith(SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private void forceDirectory() {
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // не все файловые системы позволяют сбросить каталог
+            log.debug("Каталог журнала {} не сброшен на диск: {}", directory, e.getMessage());
+        }
+    }
+
+    private static String segmentName(long firstSeq) {
+        return String.format("%s%020d%s", PREFIX, firstSeq, SUFFIX);
+    }
+
+    private static long firstSeq(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    static void encode(LedgerRecord record, ByteBuffer buffer) {
+        int start = buffer.position();
+        buffer.putLong(record.seq())
+                .putLong(record.fromCardId())
+                .putLong(record.toCardId())
+                .putLong(record.userId())
+                .putLong(record.amountMinor())
+                .putLong(record.timestampMillis());
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), buffer.arrayOffset() + start, RECORD_SIZE - Integer.BYTES);
+        buffer.putInt((int) crc.getValue());
+    }
+
+    private static LedgerRecord decode(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), buffer.arrayOffset(), RECORD_SIZE - Integer.BYTES);
+        LedgerRecord record = new LedgerRecord(buffer.getLong(), buffer.getLong(), buffer.getLong(),
+                buffer.getLong(), buffer.getLong(), buffer.getLong());
+        return buffer.getInt() == (int) crc.getValue() ? record : null;
+    }
+}
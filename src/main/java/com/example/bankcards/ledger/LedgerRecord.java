@@ -0,0 +1,13 @@
+package com.example.bankcards.ledger;
+
+import java.math.BigDecimal;
+
+/**
+ * Запись журнала переводов. Сумма хранится в копейках, номер seq задает порядок применения.
+ */
+public record LedgerRecord(long seq, long fromCardId, long toCardId, long userId, long amountMinor, long timestampMillis) {
+
+    public BigDecimal amount() {
+        return BigDecimal.valueOf(amountMinor, 2);
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.bankcards.ledger;
+
+import com.example.bankcards.audit.AuditEvent;
+import com.example.bankcards.audit.AuditEventLog;
+import com.example.bankcards.dto.Transfer.TransferDTO;
+import com.example.bankcards.entity.TransferEntity;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.service.CardCache;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Переносит подтвержденные записи журнала в cards и transfers пакетами: изменения балансов
+ * суммируются по карте, пакет пишется одной транзакцией вместе с ledger_seq переводов,
+ * поэтому max(ledger_seq) - точная граница перенесенного. Пакет, не записанный из-за ошибки,
+ * повторяется целиком при следующем запуске; после ledger.flush-max-attempts неудач подряд
+ * перенос останавливается, а {@link LedgerEngine} перестает принимать переводы, чтобы журнал
+ * не рос за пакетом, который не может быть записан.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "transfer.mode", havingValue = "LEDGER")
+public class LedgerWriteBehind {
+    private final CardRepository cardRepository;
+    private final TransferRepository transferRepository;
+    private final CardCache cardCache;
+    private final AuditEventLog auditEventLog;
+    private final TransactionTemplate transactionTemplate;
+    private final Timer flushTimer;
+    private final int batchSize;
+    private final int maxAttempts;
+
+    private final ConcurrentLinkedQueue<LedgerRecord> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final List<LedgerRecord> batch = new ArrayList<>();
+    private volatile long flushedSeq;
+    private int failedAttempts;
+    private volatile RuntimeException failure;
+
+    public LedgerWriteBehind(CardRepository cardRepository, TransferRepository transferRepository,
+                             CardCache cardCache, AuditEventLog auditEventLog,
+                             TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+                             @Value("${ledger.flush-batch-size:1000}") int batchSize,
+                             @Value("${ledger.flush-max-attempts:5}") int maxAttempts) {
+        this.cardRepository = cardRepository;
+        this.transferRepository = transferRepository;
+        this.cardCache = cardCache;
+        this.auditEventLog = auditEventLog;
+        this.transactionTemplate = transactionTemplate;
+        this.flushTimer = meterRegistry.timer("ledger.writebehind.flush");
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        Gauge.builder("ledger.writebehind.pending", this, LedgerWriteBehind::getPending)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Последний seq, уже записанный в базу.
+     */
+    public long checkpoint() {
+        flushedSeq = transferRepository.findMaxLedgerSeq().orElse(0L);
+        return flushedSeq;
+    }
+
+    public long getFlushedSeq() {
+        return flushedSeq;
+    }
+
+    /**
+     * Ошибка пакета, который не удалось записать за ledger.flush-max-attempts попыток, или null.
+     */
+    public RuntimeException getFailure() {
+        return failure;
+    }
+
+    public int getPending() {
+        return queued.get() + batch.size();
+    }
+
+    public void enqueue(List<LedgerRecord> records) {
+        queue.addAll(records);
+        queued.addAndGet(records.size());
+    }
+
+    @Scheduled(fixedDelayString = "${ledger.flush-interval-ms:200}")
+    public synchronized void flush() {
+        if (failure != null) {
+            return;
+        }
+        try {
+            while (flushBatch() == batchSize) {
+                // очередь длиннее пакета, пишем следующий
+            }
+            failedAttempts = 0;
+        } catch (RuntimeException e) {
+            if (++failedAttempts < maxAttempts) {
+                log.error("Ошибка записи журнала переводов в базу, пакет будет повторен: {}", e.getMessage(), e);
+                return;
+            }
+            failure = e;
+            log.error("Пакет журнала с записи {} не записан в базу за {} попыток, перенос и переводы остановлены до перезапуска",
+                    batch.get(0).seq(), failedAttempts, e);
+        }
+    }
+
+    /**
+     * Пишет записи одной транзакцией: вызывается пакетной записью и восстановлением журнала при старте.
+     */
+    public void write(List<LedgerRecord> records) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Map<Long, BigDecimal> deltas = new TreeMap<>();
+            List<TransferEntity> transfers = new ArrayList<>(records.size());
+            for (LedgerRecord record : records) {
+                deltas.merge(record.fromCardId(), record.amount().negate(), BigDecimal::add);
+                deltas.merge(record.toCardId(), record.amount(), BigDecimal::add);
+                TransferEntity transferEntity = new TransferEntity();
+                transferEntity.setFromCard(cardRepository.getReferenceById(record.fromCardId()));
+                transferEntity.setToCard(cardRepository.getReferenceById(record.toCardId()));
+                transferEntity.setAmount(record.amount());
+                transferEntity.setTransferTime(LocalDateTime.ofInstant(Instant.ofEpochMilli(record.timestampMillis()), ZoneId.systemDefault()));
+                transferEntity.setLedgerSeq(record.seq());
+                transfers.add(transferEntity);
+            }
+            // строки карт обновляются в порядке возрастания ID, как и в TransferLockCoordinator
+            deltas.forEach((cardId, delta) -> {
+                if (delta.signum() != 0 && cardRepository.addBalance(cardId, delta) != 1) {
+                    throw new IllegalStateException("Карта с ID " + cardId + " не найдена, записи журнала не могут быть перенесены");
+                }
+            });
+            transferRepository.saveAll(transfers);
+            cardCache.evict(List.copyOf(deltas.keySet()));
+            for (int i = 0; i < records.size(); i++) {
+                auditEventLog.publishAfterCommit(AuditEvent.transferCompleted(transfers.get(i).getId(), toTransferDTO(records.get(i))));
+            }
+        });
+        flushedSeq = Math.max(flushedSeq, records.get(records.size() - 1).seq());
+    }
+
+    private synchronized int flushBatch() {
+        while (batch.size() < batchSize) {
+            LedgerRecord record = queue.poll();
+            if (record == null) {
+                break;
+            }
+            queued.decrementAndGet();
+            batch.add(record);
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        write(batch);
+        flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        log.debug("В базу перенесено {} записей журнала, последняя {}", batch.size(), flushedSeq);
+        int written = batch.size();
+        batch.clear();
+        return written;
+    }
+
+    private static TransferDTO toTransferDTO(LedgerRecord record) {
+        return new TransferDTO()
+                .setUserId(record.userId())
+                .setFromCardId(record.fromCardId())
+                .setToCardId(record.toCardId())
+                .setAmount(record.amount());
+    }
+}
@@ -4,6 +4,8 @@ import com.example.bankcards.dto.Card.CardCreateDTO;
 import com.example.bankcards.dto.Card.CardDTO;
 import com.example.bankcards.dto.Card.CardResponseRequestStatusDTO;
 import com.example.bankcards.entity.CardEntity;
+import com.example.bankcards.repository.projection.CardRequestStatusView;
+import com.example.bankcards.repository.projection.CardView;
 import com.example.bankcards.util.MaskingUtil;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
@@ -34,5 +36,11 @@ public interface CardMapper {
     @Mappings({
             @Mapping(source = "number", target = "maskedNumber", qualifiedByName = "maskedNumberMapper"),
     })
-    CardResponseRequestStatusDTO toCardResponseRequestStatusDTO(CardEntity cardEntity);
+    CardDTO cardViewToCardDTO(CardView cardView);
+
+    @Mappings({
+            @Mapping(source = "number", target = "maskedNumber", qualifiedByName = "maskedNumberMapper"),
+            @Mapping(target = "user", ignore = true),
+    })
+    CardResponseRequestStatusDTO toCardResponseRequestStatusDTO(CardRequestStatusView cardView);
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package com.example.bankcards.mappers;
 import com.example.bankcards.dto.User.UserDTO;
 import com.example.bankcards.dto.User.UserRegisterDTO;
 import com.example.bankcards.entity.UserEntity;
+import com.example.bankcards.repository.projection.UserView;
 import org.mapstruct.Context;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
@@ -13,6 +14,8 @@ public interface UserMapper {
 
     UserDTO toUserDTO(UserEntity userEntity);
 
+    UserDTO userViewToUserDTO(UserView userView);
+
     @Mapping(target = "password", expression = "java(passwordEncoder.encode(dto.getPassword()))")
     UserEntity toEntity(UserRegisterDTO dto, @Context PasswordEncoder passwordEncoder);
 }
\ No newline at end of file
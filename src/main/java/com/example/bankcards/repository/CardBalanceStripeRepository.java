@@ -0,0 +1,37 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardBalanceStripeEntity;
+import com.example.bankcards.entity.CardBalanceStripeId;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Repository
+public interface CardBalanceStripeRepository extends JpaRepository<CardBalanceStripeEntity, CardBalanceStripeId> {
+    long countByIdCardId(Long cardId);
+
+    @Query("select coalesce(sum(s.balance), 0) from CardBalanceStripeEntity s where s.id.cardId = :cardId")
+    BigDecimal sumBalanceByCardId(@Param("cardId") Long cardId);
+
+    @Query("select distinct s.id.cardId from CardBalanceStripeEntity s where s.balance <> 0")
+    List<Long> findCardIdsWithUnfoldedBalance();
+
+    @QueryHints({@QueryHint(name = "jakarta.persistence.lock.timeout", value = "1000")})
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from CardBalanceStripeEntity s where s.id.cardId = :cardId order by s.id.stripe")
+    List<CardBalanceStripeEntity> findAllByCardIdForUpdate(@Param("cardId") Long cardId);
+
+    @Modifying
+    @Query("update CardBalanceStripeEntity s set s.balance = s.balance + :amount " +
+            "where s.id.cardId = :cardId and s.id.stripe = :stripe")
+    int creditStripe(@Param("cardId") Long cardId, @Param("stripe") int stripe, @Param("amount") BigDecimal amount);
+}
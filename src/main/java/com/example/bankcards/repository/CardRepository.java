@@ -1,34 +1,154 @@
 package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.CardEntity;
+import com.example.bankcards.entity.enums.BlockRequestStatus;
 import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.repository.projection.CardRequestStatusView;
+import com.example.bankcards.repository.projection.CardView;
 import jakarta.persistence.LockModeType;
 import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface CardRepository extends JpaRepository<CardEntity, Long> {
+    /**
+     * Колонки {@link CardView}: баланс включает части card_balance_stripes, как в CardBalanceStripeService.totalBalance.
+     */
+    String CARD_VIEW_COLUMNS = "c.id, c.number, c.balance + coalesce((select sum(s.balance) from CardBalanceStripeEntity s " +
+            "where s.id.cardId = c.id), 0), c.expiryDate, c.status";
+
     List<CardEntity> findByUserId(Long userId);
 
     Optional<CardEntity> findByNumber(String number);
 
     Page<CardEntity> findAll(Pageable pageable);
 
-    List<CardEntity> findByStatusNotAndExpiryDateBefore(CardStatus status, LocalDate date);
+    @Query("select c.id from CardEntity c where c.status = :status and c.expiryDate < :date " +
+            "and mod(c.id, :partitions) = :partition")
+    List<Long> findIdsByStatusAndExpiryDateBefore(@Param("status") CardStatus status, @Param("date") LocalDate date,
+                                                  @Param("partition") long partition, @Param("partitions") long partitions,
+                                                  Pageable pageable);
+
+    @Modifying
+    @Query("update CardEntity c set c.status = :expired " +
+            "where c.id in :ids and c.status <> :expired and c.expiryDate < :date")
+    int expireCards(@Param("ids") Collection<Long> ids, @Param("expired") CardStatus expired,
+                    @Param("date") LocalDate date);
+
+    @Query("select new com.example.bankcards.repository.projection.CardRequestStatusView(" +
+            "c.id, c.number, c.blockRequestStatus, c.status, c.user.id) from CardEntity c " +
+            "where c.blockRequestStatus = :blockRequestStatus and c.id > :afterId order by c.id")
+    Slice<CardRequestStatusView> findRequestStatusViewsByBlockRequestStatusAfter(
+            @Param("blockRequestStatus") BlockRequestStatus blockRequestStatus, @Param("afterId") Long afterId,
+            Pageable pageable);
+
+    @Modifying
+    @Query("update CardEntity c set c.blockRequestStatus = :decision, " +
+            "c.status = case when c.status = :expired then c.status else :blocked end " +
+            "where c.id in :ids and c.blockRequestStatus = :pending")
+    int approveBlockRequests(@Param("ids") Collection<Long> ids, @Param("pending") BlockRequestStatus pending,
+                             @Param("decision") BlockRequestStatus decision, @Param("blocked") CardStatus blocked,
+                             @Param("expired") CardStatus expired);
+
+    @Modifying
+    @Query("update CardEntity c set c.blockRequestStatus = :decision " +
+            "where c.id in :ids and c.blockRequestStatus = :pending")
+    int rejectBlockRequests(@Param("ids") Collection<Long> ids, @Param("pending") BlockRequestStatus pending,
+                            @Param("decision") BlockRequestStatus decision);
 
     @QueryHints({@QueryHint(name = "jakarta.persistence.lock.timeout", value = "1000")})
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     Optional<CardEntity> findById(Long id);
 
+    @QueryHints({@QueryHint(name = "jakarta.persistence.lock.timeout", value = "1000")})
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from CardEntity c where c.id in :ids order by c.id")
+    List<CardEntity> findAllByIdInOrderByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    @Query("select c from CardEntity c where c.id = :id")
+    Optional<CardEntity> findWithoutLockById(@Param("id") Long id);
+
+    @QueryHints({@QueryHint(name = "jakarta.persistence.lock.timeout", value = "1000")})
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("select c from CardEntity c where c.id = :id")
+    Optional<CardEntity> findByIdForShare(@Param("id") Long id);
+
+    @Query("select c.balanceStripes from CardEntity c where c.id = :id")
+    Optional<Integer> findBalanceStripesById(@Param("id") Long id);
+
     Page<CardEntity> findByUserId(Long userId, Pageable pageable);
 
+    @Query("select c.id from CardEntity c where c.user.id = :userId")
+    List<Long> findIdsByUserId(@Param("userId") Long userId);
+
+    @Query("select c.user.email from CardEntity c where c.id = :id")
+    Optional<String> findOwnerEmailById(@Param("id") Long id);
+
+    @Query(value = "select new com.example.bankcards.repository.projection.CardView(" +
+            CARD_VIEW_COLUMNS + ") from CardEntity c",
+            countQuery = "select count(c) from CardEntity c")
+    Page<CardView> findAllCardViews(Pageable pageable);
+
+    @Query(value = "select new com.example.bankcards.repository.projection.CardView(" +
+            CARD_VIEW_COLUMNS + ") from CardEntity c where c.user.id = :userId",
+            countQuery = "select count(c) from CardEntity c where c.user.id = :userId")
+    Page<CardView> findCardViewsByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    @QueryHints({@QueryHint(name = "org.hibernate.fetchSize", value = "500")})
+    @Query("select new com.example.bankcards.repository.projection.CardView(" +
+            CARD_VIEW_COLUMNS + ") from CardEntity c where c.user.id = :userId order by c.id")
+    Stream<CardView> streamCardViewsByUserId(@Param("userId") Long userId);
+
+    @Query("select new com.example.bankcards.repository.projection.CardView(" +
+            CARD_VIEW_COLUMNS + ") from CardEntity c where c.id > :afterId order by c.id")
+    Slice<CardView> findCardViewsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("select new com.example.bankcards.repository.projection.CardView(" +
+            CARD_VIEW_COLUMNS + ") from CardEntity c " +
+            "where c.user.id = :userId and c.id > :afterId order by c.id")
+    Slice<CardView> findCardViewsByUserIdAfter(@Param("userId") Long userId, @Param("afterId") Long afterId,
+                                               Pageable pageable);
+
+    @Query(value = "select new com.example.bankcards.repository.projection.CardRequestStatusView(" +
+            "c.id, c.number, c.blockRequestStatus, c.status, c.user.id) from CardEntity c",
+            countQuery = "select count(c) from CardEntity c")
+    Page<CardRequestStatusView> findAllRequestStatusViews(Pageable pageable);
+
+    @Query("select new com.example.bankcards.repository.projection.CardRequestStatusView(" +
+            "c.id, c.number, c.blockRequestStatus, c.status, c.user.id) from CardEntity c " +
+            "where c.id > :afterId order by c.id")
+    Slice<CardRequestStatusView> findRequestStatusViewsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Modifying
+    @Query("update CardEntity c set c.balance = c.balance - :amount " +
+            "where c.id = :id and c.user.id = :userId and c.status = :status and c.balance >= :amount")
+    int debitBalance(@Param("id") Long id, @Param("userId") Long userId,
+                     @Param("status") CardStatus status, @Param("amount") BigDecimal amount);
+
+    @Modifying
+    @Query("update CardEntity c set c.balance = c.balance + :amount " +
+            "where c.id = :id and c.user.id = :userId and c.status = :status")
+    int creditBalance(@Param("id") Long id, @Param("userId") Long userId,
+                      @Param("status") CardStatus status, @Param("amount") BigDecimal amount);
+
+    @Modifying
+    @Query("update CardEntity c set c.balance = c.balance + :delta where c.id = :id")
+    int addBalance(@Param("id") Long id, @Param("delta") BigDecimal delta);
+
 }
@@ -0,0 +1,36 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.SchedulerLockEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface SchedulerLockRepository extends JpaRepository<SchedulerLockEntity, String> {
+
+    @Modifying
+    @Query("update SchedulerLockEntity l set l.lockedBy = :owner, l.lockedAt = :now, l.lockedUntil = :until " +
+            "where l.jobName = :jobName and (l.lockedUntil <= :now or l.lockedBy = :owner)")
+    int acquire(@Param("jobName") String jobName, @Param("owner") String owner,
+                @Param("now") LocalDateTime now, @Param("until") LocalDateTime until);
+
+    @Modifying
+    @Query("update SchedulerLockEntity l set l.lockedUntil = :until " +
+            "where l.jobName = :jobName and l.lockedBy = :owner and l.lockedUntil > :now")
+    int extend(@Param("jobName") String jobName, @Param("owner") String owner,
+               @Param("now") LocalDateTime now, @Param("until") LocalDateTime until);
+
+    @Modifying
+    @Query("update SchedulerLockEntity l set l.lockedUntil = :now " +
+            "where l.jobName = :jobName and l.lockedBy = :owner")
+    int release(@Param("jobName") String jobName, @Param("owner") String owner, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("update SchedulerLockEntity l set l.lockedUntil = :now, l.completedAt = :now " +
+            "where l.jobName = :jobName and l.lockedBy = :owner")
+    int complete(@Param("jobName") String jobName, @Param("owner") String owner, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,19 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.TransferIdempotencyKeyEntity;
+import com.example.bankcards.entity.TransferIdempotencyKeyId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface TransferIdempotencyKeyRepository extends JpaRepository<TransferIdempotencyKeyEntity, TransferIdempotencyKeyId> {
+
+    @Modifying
+    @Query("delete from TransferIdempotencyKeyEntity k where k.createdAt < :before")
+    int deleteCreatedBefore(@Param("before") LocalDateTime before);
+}
@@ -1,10 +1,63 @@
 package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.TransferEntity;
+import com.example.bankcards.repository.projection.TransferView;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 @Repository
 public interface TransferRepository extends JpaRepository<TransferEntity, Long> {
 
-}
\ No newline at end of file
+    @QueryHints({@QueryHint(name = "org.hibernate.fetchSize", value = "1000")})
+    @Query("select new com.example.bankcards.repository.projection.TransferView(" +
+            "t.id, t.transferTime, t.fromCard.id, t.toCard.id, t.amount) from TransferEntity t " +
+            "where (t.fromCard.id = :cardId or t.toCard.id = :cardId) " +
+            "and t.transferTime >= :from and t.transferTime < :to order by t.transferTime, t.id")
+    Stream<TransferView> streamByCardId(@Param("cardId") Long cardId, @Param("from") LocalDateTime from,
+                                        @Param("to") LocalDateTime to);
+
+    @QueryHints({@QueryHint(name = "org.hibernate.fetchSize", value = "1000")})
+    @Query("select new com.example.bankcards.repository.projection.TransferView(" +
+            "t.id, t.transferTime, t.fromCard.id, t.toCard.id, t.amount) from TransferEntity t " +
+            "where (t.fromCard.id in (select c.id from CardEntity c where c.user.id = :userId) " +
+            "or t.toCard.id in (select c.id from CardEntity c where c.user.id = :userId)) " +
+            "and t.transferTime >= :from and t.transferTime < :to order by t.transferTime, t.id")
+    Stream<TransferView> streamByUserId(@Param("userId") Long userId, @Param("from") LocalDateTime from,
+                                        @Param("to") LocalDateTime to);
+
+    @Query("select new com.example.bankcards.repository.projection.TransferView(" +
+            "t.id, t.transferTime, t.fromCard.id, t.toCard.id, t.amount) from TransferEntity t " +
+            "where t.fromCard.id in :cardIds and (:from is null or t.transferTime >= :from) " +
+            "and (:beforeTime is null or t.transferTime < :beforeTime " +
+            "or (t.transferTime = :beforeTime and t.id < :beforeId)) " +
+            "order by t.transferTime desc, t.id desc")
+    Slice<TransferView> findOutgoingBefore(@Param("cardIds") Collection<Long> cardIds,
+                                           @Param("from") LocalDateTime from,
+                                           @Param("beforeTime") LocalDateTime beforeTime,
+                                           @Param("beforeId") Long beforeId, Pageable pageable);
+
+    @Query("select new com.example.bankcards.repository.projection.TransferView(" +
+            "t.id, t.transferTime, t.fromCard.id, t.toCard.id, t.amount) from TransferEntity t " +
+            "where t.toCard.id in :cardIds and (:from is null or t.transferTime >= :from) " +
+            "and (:beforeTime is null or t.transferTime < :beforeTime " +
+            "or (t.transferTime = :beforeTime and t.id < :beforeId)) " +
+            "order by t.transferTime desc, t.id desc")
+    Slice<TransferView> findIncomingBefore(@Param("cardIds") Collection<Long> cardIds,
+                                           @Param("from") LocalDateTime from,
+                                           @Param("beforeTime") LocalDateTime beforeTime,
+                                           @Param("beforeId") Long beforeId, Pageable pageable);
+
+    @Query("select max(t.ledgerSeq) from TransferEntity t")
+    Optional<Long> findMaxLedgerSeq();
+}
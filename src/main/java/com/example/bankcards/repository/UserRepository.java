@@ -1,12 +1,32 @@
 package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.UserEntity;
+import com.example.bankcards.repository.projection.UserView;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<UserEntity, Long> {
     Optional<UserEntity> findByEmail(String email);
+
+    /**
+     * Пользователь вместе с картами одним запросом, для случаев, когда нужны обе стороны связи.
+     */
+    @EntityGraph(attributePaths = "cardEntities")
+    Optional<UserEntity> findWithCardsById(Long id);
+
+    Slice<UserEntity> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @Query("select new com.example.bankcards.repository.projection.UserView(u.id, u.email, u.fullName, u.role) " +
+            "from UserEntity u where u.id in :ids")
+    List<UserView> findUserViewsByIdIn(@Param("ids") Collection<Long> ids);
 }
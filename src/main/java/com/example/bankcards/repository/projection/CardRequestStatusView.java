@@ -0,0 +1,11 @@
+package com.example.bankcards.repository.projection;
+
+import com.example.bankcards.entity.enums.BlockRequestStatus;
+import com.example.bankcards.entity.enums.CardStatus;
+
+/**
+ * Колонки карты для списка запросов на блокировку; владельцы догружаются одним запросом на страницу.
+ */
+public record CardRequestStatusView(Long id, String number, BlockRequestStatus blockRequestStatus, CardStatus status,
+                                    Long userId) {
+}
@@ -0,0 +1,12 @@
+package com.example.bankcards.repository.projection;
+
+import com.example.bankcards.entity.enums.CardStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Колонки карты для списков CardDTO: выбираются без загрузки CardEntity в контекст персистентности.
+ */
+public record CardView(Long id, String number, BigDecimal balance, LocalDate expiryDate, CardStatus status) {
+}
@@ -0,0 +1,10 @@
+package com.example.bankcards.repository.projection;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Колонки перевода для выгрузки и истории: ID карт берутся из внешних ключей, без загрузки CardEntity.
+ */
+public record TransferView(Long id, LocalDateTime transferTime, Long fromCardId, Long toCardId, BigDecimal amount) {
+}
@@ -0,0 +1,9 @@
+package com.example.bankcards.repository.projection;
+
+import com.example.bankcards.entity.enums.RoleUsers;
+
+/**
+ * Публичные колонки пользователя без пароля и коллекции карт.
+ */
+public record UserView(Long id, String email, String fullName, RoleUsers role) {
+}
@@ -0,0 +1,37 @@
+package com.example.bankcards.schedulers;
+
+import com.example.bankcards.service.CardBalanceStripeService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Slf4j
+@Component
+public class CardBalanceStripeFoldTask {
+    private final CardBalanceStripeService cardBalanceStripeService;
+
+    public CardBalanceStripeFoldTask(CardBalanceStripeService cardBalanceStripeService) {
+        this.cardBalanceStripeService = cardBalanceStripeService;
+    }
+
+    @Scheduled(fixedDelayString = "${card.striping.fold-interval-ms:5000}")
+    public void foldStripes() {
+        List<Long> cardIds = cardBalanceStripeService.findCardsToFold();
+        if (cardIds.isEmpty()) {
+            return;
+        }
+        int folded = 0;
+        for (Long cardId : cardIds) {
+            try {
+                if (cardBalanceStripeService.foldCard(cardId)) {
+                    folded++;
+                }
+            } catch (RuntimeException e) {
+                log.warn("Не удалось свернуть части баланса карты {}: {}", cardId, e.getMessage());
+            }
+        }
+        log.info("Свернуты части баланса {} карт из {}", folded, cardIds.size());
+    }
+}
@@ -1,46 +1,148 @@
 package com.example.bankcards.schedulers;
 
-import com.example.bankcards.entity.CardEntity;
 import com.example.bankcards.entity.enums.CardStatus;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.service.CardCache;
+import com.example.bankcards.service.SchedulerLockService;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.support.CronExpression;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Переводит карты с истекшим сроком в EXPIRED пакетами: ID очередного пакета находятся по индексу
+ * (status, expiry_date), каждый пакет обновляется одним UPDATE в своей транзакции.
+ * Обновлённые карты выпадают из выборки, поэтому следующий пакет всегда берётся с начала.
+ * <p>
+ * Карты разбиты на части по остатку от деления ID, каждая часть обходится под своей арендой
+ * в scheduler_locks. Узлы, запущенные одновременно, разбирают разные части; часть, не завершенную
+ * упавшим узлом, после истечения аренды дообходит любой узел при следующей проверке.
+ */
 @Slf4j
 @Component
 public class CardStatusUpdateTask {
+    private static final String JOB_NAME = "card-expiry";
+
     private final CardRepository cardRepository;
+    private final CardCache cardCache;
+    private final TransactionTemplate transactionTemplate;
+    private final SchedulerLockService schedulerLockService;
+    private final MeterRegistry meterRegistry;
+    private final CronExpression cron;
+    private final Duration leaseTime;
+    private final int chunkSize;
+    private final int partitions;
 
-    public CardStatusUpdateTask(CardRepository cardRepository) {
+    public CardStatusUpdateTask(CardRepository cardRepository, CardCache cardCache,
+                                TransactionTemplate transactionTemplate,
+                                SchedulerLockService schedulerLockService,
+                                MeterRegistry meterRegistry,
+                                @Value("${card.expiry.cron:0 0 0 * * ?}") String cron,
+                                @Value("${card.expiry.lease-time:PT10M}") Duration leaseTime,
+                                @Value("${card.expiry.chunk-size:1000}") int chunkSize,
+                                @Value("${card.expiry.partitions:4}") int partitions) {
         this.cardRepository = cardRepository;
+        this.cardCache = cardCache;
+        this.transactionTemplate = transactionTemplate;
+        this.schedulerLockService = schedulerLockService;
+        this.meterRegistry = meterRegistry;
+        this.cron = CronExpression.parse(cron);
+        this.leaseTime = leaseTime;
+        this.chunkSize = chunkSize;
+        this.partitions = Math.max(1, partitions);
     }
 
-    @Scheduled(cron = "0 0 0 * * ?")
-    @Transactional
+    @Scheduled(cron = "${card.expiry.cron:0 0 0 * * ?}")
     public void updateExpiredCards() {
         log.info("Начало задачи обновления статуса карт с истекшим сроком действия");
-        try {
-            List<CardEntity> cards = cardRepository.findByStatusNotAndExpiryDateBefore(CardStatus.EXPIRED, LocalDate.now());
-            if (cards.isEmpty()) {
-                log.info("Карты с истекшим сроком действия не найдены");
-                return;
+        sweepDuePartitions();
+    }
+
+    /**
+     * Дообходит части, которые не завершились после последнего срабатывания расписания,
+     * например из-за падения узла, взявшего их в работу.
+     */
+    @Scheduled(fixedDelayString = "${card.expiry.takeover-check-ms:300000}",
+            initialDelayString = "${card.expiry.takeover-check-ms:300000}")
+    public void resumeUnfinishedPartitions() {
+        sweepDuePartitions();
+    }
+
+    private void sweepDuePartitions() {
+        LocalDate today = LocalDate.now();
+        int offset = Math.floorMod(schedulerLockService.getNodeId().hashCode(), partitions);
+        for (int i = 0; i < partitions; i++) {
+            int partition = (offset + i) % partitions;
+            String jobName = JOB_NAME + "-" + partition;
+            if (!isDue(jobName)) {
+                continue;
+            }
+            try {
+                schedulerLockService.runLocked(jobName, leaseTime, () -> expirePartition(jobName, partition, today));
+            } catch (Exception e) {
+                log.error("Ошибка при обновлении статуса карт части {}: {}", partition, e.getMessage(), e);
+            }
+        }
+    }
+
+    private boolean isDue(String jobName) {
+        LocalDateTime completedAt = schedulerLockService.lastCompletedAt(jobName);
+        if (completedAt == null) {
+            return true;
+        }
+        LocalDateTime nextRun = cron.next(completedAt);
+        return nextRun != null && !nextRun.isAfter(LocalDateTime.now());
+    }
+
+    /**
+     * Время обхода части пишется в card.expiry.run, число переведенных в EXPIRED карт - в card.expiry.updated.
+     */
+    private void expirePartition(String jobName, int partition, LocalDate today) {
+        long startTime = System.nanoTime();
+        int total = 0;
+        int chunks = 0;
+        for (CardStatus status : CardStatus.values()) {
+            if (status == CardStatus.EXPIRED) {
+                continue;
             }
-            for (CardEntity card : cards) {
-                log.debug("Карта ID: {} имеет истекший срок действия: {}. Обновление статуса на EXPIRED",
-                        card.getId(), card.getExpiryDate());
-                card.setStatus(CardStatus.EXPIRED);
-                cardRepository.save(card);
+            while (true) {
+                List<Long> ids = cardRepository.findIdsByStatusAndExpiryDateBefore(status, today,
+                        partition, partitions, PageRequest.of(0, chunkSize));
+                if (ids.isEmpty()) {
+                    break;
+                }
+                Integer updated = transactionTemplate.execute(tx -> cardRepository.expireCards(ids, CardStatus.EXPIRED, today));
+                cardCache.evict(ids);
+                total += updated;
+                meterRegistry.counter("card.expiry.updated").increment(updated);
+                chunks++;
+                log.info("Часть {}, пакет {}: {} карт со статусом {} переведены в EXPIRED, всего обновлено {}",
+                        partition, chunks, updated, status, total);
+                if (!schedulerLockService.extend(jobName, leaseTime)) {
+                    throw new IllegalStateException("Аренда задачи " + jobName + " потеряна после " + chunks + " пакетов");
+                }
+                if (updated == 0 || ids.size() < chunkSize) {
+                    break;
+                }
             }
-            cardRepository.flush();
-            log.info("Обновлено {} карт с истекшим сроком действия", cards.size());
-        } catch (Exception e) {
-            log.error("Ошибка при обновлении статуса карт: {}", e.getMessage(), e);
-            throw new IllegalStateException("Не удалось обновить статусы карт", e);
         }
+        long elapsed = System.nanoTime() - startTime;
+        meterRegistry.timer("card.expiry.run").record(elapsed, TimeUnit.NANOSECONDS);
+        if (total == 0) {
+            log.info("Карты с истекшим сроком действия в части {} не найдены", partition);
+            return;
+        }
+        log.info("Часть {}: обновлено {} карт с истекшим сроком действия за {} пакетов, {} мс",
+                partition, total, chunks, elapsed / 1_000_000);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,28 @@
+package com.example.bankcards.schedulers;
+
+import com.example.bankcards.service.TransferIdempotencyService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+public class TransferIdempotencyKeyPurgeTask {
+    private final TransferIdempotencyService transferIdempotencyService;
+
+    public TransferIdempotencyKeyPurgeTask(TransferIdempotencyService transferIdempotencyService) {
+        this.transferIdempotencyService = transferIdempotencyService;
+    }
+
+    @Scheduled(fixedDelayString = "${transfer.idempotency.purge-interval-ms:3600000}")
+    public void purgeExpiredKeys() {
+        try {
+            int deleted = transferIdempotencyService.purgeExpired();
+            if (deleted > 0) {
+                log.info("Удалено {} устаревших ключей идемпотентности", deleted);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Не удалось удалить устаревшие ключи идемпотентности: {}", e.getMessage());
+        }
+    }
+}
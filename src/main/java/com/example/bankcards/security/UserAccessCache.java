@@ -0,0 +1,66 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.util.BoundedCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+/**
+ * Хранит роль пользователя из БД не дольше заданного окна. В режиме stateless JWT фильтр сверяет
+ * с ней роль из токена, поэтому удалённый или пониженный пользователь теряет доступ не позже
+ * чем через {@code security.jwt.user-check-interval}. Сервисы, меняющие пользователей, вызывают
+ * {@link #evict}; изменения в обход приложения (роль или удаление прямо в БД) видны с этой задержкой.
+ */
+@Slf4j
+@Component
+public class UserAccessCache {
+    private final UserRepository userRepository;
+    private final BoundedCache<String, CheckedRole> checkedRoles;
+    private final long checkIntervalNanos;
+
+    public UserAccessCache(UserRepository userRepository,
+                           @Value("${security.jwt.user-cache-size:10000}") int cacheSize,
+                           @Value("${security.jwt.user-check-interval:PT1M}") Duration checkInterval) {
+        this.userRepository = userRepository;
+        this.checkedRoles = new BoundedCache<>(cacheSize);
+        this.checkIntervalNanos = checkInterval.toNanos();
+    }
+
+    public boolean hasRole(String email, String role) {
+        long now = System.nanoTime();
+        CheckedRole checked = checkedRoles.get(email);
+        if (checked == null || now - checked.checkedAt() >= checkIntervalNanos) {
+            String currentRole = userRepository.findByEmail(email)
+                    .map(user -> user.getRole() != null ? user.getRole().name() : null)
+                    .orElse(null);
+            log.debug("Роль пользователя {} перепроверена в БД: {}", email, currentRole);
+            checked = new CheckedRole(currentRole, now);
+            checkedRoles.put(email, checked);
+        }
+        return role != null && role.equals(checked.role());
+    }
+
+    /**
+     * Удаляет роль из кэша сразу и повторно после завершения транзакции, чтобы параллельный запрос
+     * не закэшировал роль, прочитанную до фиксации.
+     */
+    public void evict(String email) {
+        checkedRoles.remove(email);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    checkedRoles.remove(email);
+                }
+            });
+        }
+    }
+
+    private record CheckedRole(String role, long checkedAt) {
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.bankcards.security.jwt;
+
+import java.util.Date;
+
+/**
+ * Проверенные claims JWT: email пользователя, роль и срок действия.
+ */
+public record JwtClaims(String email, String role, Date expiration) {
+}
@@ -2,12 +2,16 @@ package com.example.bankcards.security.jwt;
 
 import com.example.bankcards.security.CustomUserDetails;
 import com.example.bankcards.security.CustomUserServiceImpl;
+import com.example.bankcards.security.UserAccessCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -22,7 +26,17 @@ import java.io.IOException;
 @RequiredArgsConstructor
 public class JwtFilter extends OncePerRequestFilter {
     private final JwtService jwtService;
+    private final JwtTokenCache jwtTokenCache;
     private final CustomUserServiceImpl customUserService;
+    private final UserAccessCache userAccessCache;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * true - пользователь собирается из claims токена без запроса в БД на каждый запрос,
+     * роль сверяется с БД не чаще security.jwt.user-check-interval.
+     */
+    @Value("${security.jwt.stateless:false}")
+    private boolean stateless;
 
     @Override
     protected void doFilterInternal(@NonNull HttpServletRequest request,
@@ -36,15 +50,48 @@ public class JwtFilter extends OncePerRequestFilter {
             return;
         }
         String token = getTokenFromRequest(request);
-        if (token != null && jwtService.validateJwtToken(token)) {
-            setCustomUserDetailsToSecurityContextHolder(token);
+        JwtClaims claims = token != null ? verify(token) : null;
+        if (claims != null) {
+            setCustomUserDetailsToSecurityContextHolder(claims);
         }
         filterChain.doFilter(request, response);
     }
 
-    private void setCustomUserDetailsToSecurityContextHolder(String token) {
-        String email = jwtService.getEmailFromToken(token);
-        CustomUserDetails customUserDetails = customUserService.loadUserByUsername(email);
+    /**
+     * Время проверки пишется в jwt.verify с тегами cache (hit/miss) и result (valid/invalid).
+     */
+    private JwtClaims verify(String token) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        JwtClaims claims = jwtTokenCache.get(token);
+        String cache = claims != null ? "hit" : "miss";
+        if (claims == null) {
+            claims = jwtService.verify(token);
+            if (claims != null) {
+                jwtTokenCache.put(token, claims);
+            }
+        }
+        sample.stop(meterRegistry.timer("jwt.verify", "cache", cache, "result", claims != null ? "valid" : "invalid"));
+        return claims;
+    }
+
+    private void setCustomUserDetailsToSecurityContextHolder(JwtClaims claims) {
+        CustomUserDetails customUserDetails;
+        Timer.Sample sample = Timer.start(meterRegistry);
+        if (stateless) {
+            boolean hasRole = userAccessCache.hasRole(claims.email(), claims.role());
+            sample.stop(meterRegistry.timer("jwt.user.lookup", "mode", "stateless"));
+            if (!hasRole) {
+                log.warn("Пользователь {} удален или его роль изменилась, токен с ролью {} отклонен", claims.email(), claims.role());
+                return;
+            }
+            customUserDetails = new CustomUserDetails(claims.email(), claims.role());
+        } else {
+            try {
+                customUserDetails = customUserService.loadUserByUsername(claims.email());
+            } finally {
+                sample.stop(meterRegistry.timer("jwt.user.lookup", "mode", "database"));
+            }
+        }
         UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(customUserDetails,
                 null, customUserDetails.getAuthorities());
         SecurityContextHolder.getContext().setAuthentication(authentication);
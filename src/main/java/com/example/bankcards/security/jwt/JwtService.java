@@ -6,6 +6,7 @@ import com.example.bankcards.repository.UserRepository;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -24,6 +25,8 @@ public class JwtService {
     public String jwtSecret;
 
     private final UserRepository userRepository;
+    private SecretKey signKey;
+    private JwtParser jwtParser;
 
     public JwtService(UserRepository userRepository) {
         this.userRepository = userRepository;
@@ -47,14 +50,14 @@ public class JwtService {
         return jwtDto;
     }
 
-    public boolean validateJwtToken(String token) {
+    /**
+     * Проверяет подпись и срок действия токена одним разбором.
+     * Возвращает null, если токен недействителен.
+     */
+    public JwtClaims verify(String token) {
         try {
-            Jwts.parser()
-                    .verifyWith(getSignKey())
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
-            return true;
+            Claims claims = jwtParser.parseSignedClaims(token).getPayload();
+            return new JwtClaims(claims.getSubject(), claims.get("role", String.class), claims.getExpiration());
         } catch (ExpiredJwtException expEx) {
             log.error("Expired JwtException", expEx);
         } catch (UnsupportedJwtException expEx) {
@@ -66,25 +69,19 @@ public class JwtService {
         } catch (Exception expEx) {
             log.error("Token invalid", expEx);
         }
-        return false;
+        return null;
+    }
+
+    public boolean validateJwtToken(String token) {
+        return verify(token) != null;
     }
 
     public String getEmailFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSignKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-        return claims.getSubject();
+        return jwtParser.parseSignedClaims(token).getPayload().getSubject();
     }
 
     public String getRoleFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSignKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-        return (String) claims.get("role");
+        return (String) jwtParser.parseSignedClaims(token).getPayload().get("role");
     }
 
     public String generateJwtToken(String email, String role) {
@@ -93,7 +90,7 @@ public class JwtService {
                 .subject(email)
                 .claim("role", role)
                 .expiration(date)
-                .signWith(getSignKey())
+                .signWith(signKey)
                 .compact();
     }
 
@@ -103,14 +100,21 @@ public class JwtService {
                 .subject(email)
                 .claim("role", role)
                 .expiration(date)
-                .signWith(getSignKey())
+                .signWith(signKey)
                 .compact();
     }
 
-    private SecretKey getSignKey() {
+    /**
+     * Ключ и парсер потокобезопасны, поэтому создаются один раз, а не на каждый запрос.
+     */
+    @PostConstruct
+    public void init() {
         try {
             byte[] keyBytes = Decoders.BASE64.decode(jwtSecret);
-            return Keys.hmacShaKeyFor(keyBytes);
+            signKey = Keys.hmacShaKeyFor(keyBytes);
+            jwtParser = Jwts.parser()
+                    .verifyWith(signKey)
+                    .build();
         } catch (IllegalArgumentException e) {
             log.error("Invalid BASE64 secret key: {}", e.getMessage(), e);
             throw new IllegalStateException("Failed to decode JWT secret key", e);
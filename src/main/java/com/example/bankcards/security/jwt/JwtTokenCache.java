@@ -0,0 +1,87 @@
+package com.example.bankcards.security.jwt;
+
+import com.example.bankcards.util.BoundedCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Кэш проверенных токенов: повторный запрос с тем же токеном не проверяет HMAC-подпись заново.
+ * Ключ - SHA-256 строки токена, запись живёт до exp токена.
+ */
+@Slf4j
+@Component
+public class JwtTokenCache implements MeterBinder {
+    private final boolean enabled;
+    private final BoundedCache<String, JwtClaims> verifiedTokens;
+
+    public JwtTokenCache(@Value("${security.jwt.token-cache.enabled:true}") boolean enabled,
+                         @Value("${security.jwt.token-cache.size:10000}") int size) {
+        this.enabled = enabled;
+        this.verifiedTokens = new BoundedCache<>(size);
+    }
+
+    public JwtClaims get(String token) {
+        return enabled ? verifiedTokens.get(hash(token)) : null;
+    }
+
+    public void put(String token, JwtClaims claims) {
+        if (enabled && claims.expiration() != null) {
+            verifiedTokens.put(hash(token), claims, claims.expiration().getTime());
+        }
+    }
+
+    public BoundedCache.Stats stats() {
+        return verifiedTokens.stats();
+    }
+
+    @Scheduled(fixedDelayString = "${security.jwt.token-cache.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        int purged = verifiedTokens.purgeExpired();
+        BoundedCache.Stats stats = verifiedTokens.stats();
+        log.debug("Кэш токенов: удалено истекших {}, размер {}, попаданий {}, промахов {}, доля попаданий {}",
+                purged, stats.size(), stats.hits(), stats.misses(), String.format("%.3f", stats.hitRate()));
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        FunctionCounter.builder("jwt.token.cache.requests", verifiedTokens, cache -> cache.stats().hits())
+                .tag("result", "hit")
+                .description("Запросы к кэшу проверенных токенов")
+                .register(registry);
+        FunctionCounter.builder("jwt.token.cache.requests", verifiedTokens, cache -> cache.stats().misses())
+                .tag("result", "miss")
+                .description("Запросы к кэшу проверенных токенов")
+                .register(registry);
+        FunctionCounter.builder("jwt.token.cache.evictions", verifiedTokens, cache -> cache.stats().evictions())
+                .tag("cause", "size")
+                .register(registry);
+        FunctionCounter.builder("jwt.token.cache.evictions", verifiedTokens, cache -> cache.stats().expirations())
+                .tag("cause", "expired")
+                .register(registry);
+        Gauge.builder("jwt.token.cache.size", verifiedTokens, BoundedCache::size)
+                .register(registry);
+        Gauge.builder("jwt.token.cache.hit.ratio", verifiedTokens, cache -> cache.stats().hitRate())
+                .register(registry);
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+}
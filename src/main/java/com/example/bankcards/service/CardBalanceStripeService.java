@@ -0,0 +1,122 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.CardBalanceStripeEntity;
+import com.example.bankcards.entity.CardBalanceStripeId;
+import com.example.bankcards.entity.CardEntity;
+import com.example.bankcards.exception.transfer.TransferException;
+import com.example.bankcards.repository.CardBalanceStripeRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.util.BoundedCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Разбивает баланс карты на части, чтобы входящие переводы на карту с большим потоком
+ * зачислений не ждали блокировку одной строки cards. Списания идут с cards.balance,
+ * при нехватке средств части сворачиваются в него под блокировкой карты.
+ * <p>
+ * Число частей карты читается переводом из кэша узла: устаревшее значение безопасно, потому что
+ * строки частей не удаляются, а на карту без частей перевод зачисляет под обычной блокировкой.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CardBalanceStripeService {
+    public static final int MAX_STRIPES = 64;
+    private static final int STRIPE_COUNTS_CACHE_SIZE = 10000;
+
+    private final CardRepository cardRepository;
+    private final CardBalanceStripeRepository cardBalanceStripeRepository;
+    private final BoundedCache<Long, Integer> stripeCounts = new BoundedCache<>(STRIPE_COUNTS_CACHE_SIZE);
+
+    @Value("${card.cache.ttl:PT30S}")
+    private Duration stripeCountsTtl = Duration.ofSeconds(30);
+
+    public int cachedStripes(Long cardId) {
+        Integer stripes = stripeCounts.get(cardId);
+        if (stripes == null) {
+            stripes = cardRepository.findBalanceStripesById(cardId).orElse(0);
+            stripeCounts.put(cardId, stripes, System.currentTimeMillis() + stripeCountsTtl.toMillis());
+        }
+        return stripes;
+    }
+
+    public BigDecimal totalBalance(CardEntity card) {
+        return card.getBalance().add(cardBalanceStripeRepository.sumBalanceByCardId(card.getId()));
+    }
+
+    public void credit(Long cardId, int stripes, BigDecimal amount) {
+        int stripe = ThreadLocalRandom.current().nextInt(stripes);
+        log.debug("Зачисление {} в часть {} баланса карты {}", amount, stripe, cardId);
+        if (cardBalanceStripeRepository.creditStripe(cardId, stripe, amount) == 0) {
+            log.error("Часть {} баланса карты {} не найдена", stripe, cardId);
+            throw new TransferException("Состояние карты изменилось во время перевода, повторите запрос", 409);
+        }
+    }
+
+    /**
+     * Переносит части баланса в cards.balance. Строка карты должна быть заблокирована вызывающим на запись:
+     * зачисления в части держат разделяемую блокировку строки карты, поэтому сворачивание их не пересекает.
+     */
+    public BigDecimal fold(CardEntity card) {
+        BigDecimal folded = BigDecimal.ZERO;
+        for (CardBalanceStripeEntity stripe : cardBalanceStripeRepository.findAllByCardIdForUpdate(card.getId())) {
+            folded = folded.add(stripe.getBalance());
+            stripe.setBalance(BigDecimal.ZERO);
+        }
+        if (folded.signum() != 0) {
+            card.setBalance(card.getBalance().add(folded));
+            log.debug("Части баланса карты {} свернуты: {}, новый баланс: {}", card.getId(), folded, card.getBalance());
+        }
+        return folded;
+    }
+
+    public void foldIfShort(CardEntity card, BigDecimal amount) {
+        if (card.getBalance().compareTo(amount) < 0) {
+            fold(card);
+        }
+    }
+
+    @Transactional
+    public boolean foldCard(Long cardId) {
+        return cardRepository.findById(cardId)
+                .map(card -> fold(card).signum() != 0)
+                .orElse(false);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Long> findCardsToFold() {
+        return cardBalanceStripeRepository.findCardIdsWithUnfoldedBalance();
+    }
+
+    /**
+     * Включает разбиение баланса на {@code stripes} частей или выключает его при 0.
+     * Строки частей не удаляются, чтобы зачисление, прочитавшее старое число частей, не потерялось.
+     */
+    public void setStripes(CardEntity card, int stripes) {
+        if (stripes < 0 || stripes > MAX_STRIPES) {
+            log.error("Недопустимое число частей баланса: {}", stripes);
+            throw new IllegalArgumentException("Число частей баланса должно быть от 0 до " + MAX_STRIPES);
+        }
+        if (stripes == 0) {
+            fold(card);
+        } else {
+            for (int stripe = (int) cardBalanceStripeRepository.countByIdCardId(card.getId()); stripe < stripes; stripe++) {
+                cardBalanceStripeRepository.save(new CardBalanceStripeEntity()
+                        .setId(new CardBalanceStripeId(card.getId(), stripe))
+                        .setBalance(BigDecimal.ZERO));
+            }
+        }
+        card.setBalanceStripes(stripes);
+        stripeCounts.remove(card.getId());
+        log.info("Для карты {} установлено число частей баланса: {}", card.getId(), stripes);
+    }
+}
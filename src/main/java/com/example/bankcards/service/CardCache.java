@@ -0,0 +1,105 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.Card.CardDTO;
+import com.example.bankcards.util.BoundedCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * Read-through кэш карт для чтения карты и баланса без блокировки строки.
+ * Изменяющие карту операции вызывают {@link #evict}: запись удаляется сразу и повторно после
+ * фиксации транзакции. Чтение, начавшееся до фиксации, не вернёт старое значение в кэш:
+ * поколения ключей сверяются после записи. Кэш локален для узла, поэтому TTL ограничивает
+ * время, на которое другой узел может отстать.
+ */
+@Slf4j
+@Component
+public class CardCache implements MeterBinder {
+    private static final int GENERATION_SLOTS = 1024;
+
+    private final BoundedCache<Long, CardDTO> cards;
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_SLOTS);
+    private final long ttlMillis;
+
+    public CardCache(@Value("${card.cache.size:10000}") int size,
+                     @Value("${card.cache.ttl:PT30S}") Duration ttl) {
+        this.cards = new BoundedCache<>(size);
+        this.ttlMillis = ttl.toMillis();
+    }
+
+    public CardDTO get(Long cardId, Function<Long, CardDTO> loader) {
+        CardDTO cached = cards.get(cardId);
+        if (cached != null) {
+            return cached;
+        }
+        int slot = slot(cardId);
+        long generation = generations.get(slot);
+        CardDTO loaded = loader.apply(cardId);
+        cards.put(cardId, loaded, System.currentTimeMillis() + ttlMillis);
+        if (generations.get(slot) != generation) {
+            cards.remove(cardId);
+        }
+        return loaded;
+    }
+
+    public void evict(Long cardId) {
+        evict(List.of(cardId));
+    }
+
+    public void evict(Collection<Long> cardIds) {
+        evictNow(cardIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evictNow(cardIds);
+                }
+            });
+        }
+    }
+
+    public void clear() {
+        for (int slot = 0; slot < GENERATION_SLOTS; slot++) {
+            generations.incrementAndGet(slot);
+        }
+        cards.clear();
+        log.debug("Кэш карт очищен");
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        FunctionCounter.builder("card.cache.requests", cards, cache -> cache.stats().hits())
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("card.cache.requests", cards, cache -> cache.stats().misses())
+                .tag("result", "miss")
+                .register(registry);
+        Gauge.builder("card.cache.size", cards, BoundedCache::size)
+                .register(registry);
+    }
+
+    private void evictNow(Collection<Long> cardIds) {
+        for (Long cardId : cardIds) {
+            generations.incrementAndGet(slot(cardId));
+            cards.remove(cardId);
+        }
+    }
+
+    private static int slot(Long cardId) {
+        return Math.floorMod(cardId.hashCode(), GENERATION_SLOTS);
+    }
+}
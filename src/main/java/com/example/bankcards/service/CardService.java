@@ -1,6 +1,8 @@
 package com.example.bankcards.service;
 
 import com.example.bankcards.dto.Card.*;
+import com.example.bankcards.dto.Pagination.CursorPageDTO;
+import com.example.bankcards.dto.User.UserDTO;
 import com.example.bankcards.entity.CardEntity;
 import com.example.bankcards.entity.UserEntity;
 import com.example.bankcards.entity.enums.BlockRequestStatus;
@@ -8,22 +10,34 @@ import com.example.bankcards.entity.enums.CardStatus;
 import com.example.bankcards.exception.DuplicateResourceException;
 import com.example.bankcards.exception.card.CardNotFoundException;
 import com.example.bankcards.exception.user.UserNotFoundException;
+import com.example.bankcards.ledger.LedgerEngine;
 import com.example.bankcards.mappers.CardMapper;
+import com.example.bankcards.mappers.UserMapper;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.repository.projection.CardRequestStatusView;
+import com.example.bankcards.repository.projection.CardView;
+import com.example.bankcards.repository.projection.UserView;
+import com.example.bankcards.util.CursorUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -34,6 +48,10 @@ public class CardService {
     private final CardRepository cardRepository;
     private final UserRepository userRepository;
     private final CardMapper cardMapper;
+    private final UserMapper userMapper;
+    private final CardBalanceStripeService cardBalanceStripeService;
+    private final CardCache cardCache;
+    private final ObjectProvider<LedgerEngine> ledgerEngine;
 
     @Transactional
     public CardDTO createCard(CardCreateDTO dto) {
@@ -62,11 +80,12 @@ public class CardService {
         return cardMapper.toCardDTO(cardEntity);
     }
 
+    @Transactional(readOnly = true)
     public CardDTO getCard(Long id) {
         log.debug("Получение карты с ID: {}", id);
-        CardEntity cardEntity = getCardById(id);
+        CardDTO cardDTO = cardCache.get(id, this::loadCard);
         log.info("Карта с ID: {} успешно получена", id);
-        return cardMapper.toCardDTO(cardEntity);
+        return cardDTO;
     }
 
     @Transactional(readOnly = true)
@@ -84,6 +103,30 @@ public class CardService {
             throw new IllegalArgumentException("Размер страницы не должен превышать " + maxPageSize);
         }
 
+        checkUserCardsAccess(userId);
+
+        Page<CardDTO> result = cardRepository.findCardViewsByUserId(userId, pageable)
+                .map(cardMapper::cardViewToCardDTO);
+        log.info("Успешно получено {} карт для пользователя с ID: {}", result.getTotalElements(), userId);
+        return result;
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageDTO<CardDTO> getUserCardsAfter(Long userId, String after, int size) {
+        log.debug("Получение карт для пользователя с ID: {} после курсора {}, размер страницы: {}", userId, after, size);
+        Pageable pageable = CursorUtil.pageable(size);
+        long afterId = CursorUtil.decode(after);
+        checkUserCardsAccess(userId);
+
+        CursorPageDTO<CardDTO> result = CursorUtil.toPage(
+                cardRepository.findCardViewsByUserIdAfter(userId, afterId, pageable),
+                CardView::id, cardMapper::cardViewToCardDTO);
+        log.info("Успешно получено {} карт для пользователя с ID: {}, есть следующая страница: {}",
+                result.getContent().size(), userId, result.isHasNext());
+        return result;
+    }
+
+    private void checkUserCardsAccess(Long userId) {
         UserEntity userEntity = userRepository.findById(userId)
                 .orElseThrow(() -> {
                     log.error("Пользователь с ID: {} не найден", userId);
@@ -96,11 +139,6 @@ public class CardService {
                     userId, auth != null ? auth.getName() : "анонимный");
             throw new AccessDeniedException("Доступ запрещен");
         }
-
-        Page<CardDTO> result = cardRepository.findByUserId(userId, pageable)
-                .map(cardMapper::toCardDTO);
-        log.info("Успешно получено {} карт для пользователя с ID: {}", result.getTotalElements(), userId);
-        return result;
     }
 
     public static boolean isAdmin(Authentication auth) {
@@ -118,6 +156,7 @@ public class CardService {
         cardEntity.setStatus(status);
         cardEntity.setBlockRequestStatus(BlockRequestStatus.APPROVED);
         cardEntity = cardRepository.save(cardEntity);
+        cardCache.evict(id);
 
         log.info("Статус карты обновлен для ID: {}. Новый статус: {}, Статус запроса блокировки: {}",
                 cardEntity.getId(), cardEntity.getStatus(), cardEntity.getBlockRequestStatus());
@@ -129,24 +168,46 @@ public class CardService {
         return responseDTO;
     }
 
+    /**
+     * В режиме LEDGER баланс карты, загруженной в память узла, берется из {@link LedgerEngine}: база отстает
+     * от журнала на интервал отложенной записи. Баланс остальных карт в базе актуален.
+     */
     @Transactional(readOnly = true)
     public CardResponseBalanceDTO getBalanceCardByCardId(Long id) {
         log.debug("Получение баланса для карты с ID: {}", id);
-        CardEntity cardEntity = getCardById(id);
-        log.info("Баланс успешно получен для карты с ID: {}. Баланс: {}", id, cardEntity.getBalance());
+        LedgerEngine engine = ledgerEngine.getIfAvailable();
+        BigDecimal balance = engine != null ? engine.balance(id) : null;
+        if (balance == null) {
+            balance = cardCache.get(id, this::loadCard).getBalance();
+        }
+        log.info("Баланс успешно получен для карты с ID: {}. Баланс: {}", id, balance);
 
         CardResponseBalanceDTO responseDTO = new CardResponseBalanceDTO();
-        responseDTO.setBalance(cardEntity.getBalance());
-        responseDTO.setId(cardEntity.getId());
+        responseDTO.setBalance(balance);
+        responseDTO.setId(id);
         return responseDTO;
     }
 
+    @Transactional
+    public CardBalanceStripingDTO setBalanceStripes(Long id, int stripes) {
+        log.debug("Изменение числа частей баланса карты с ID: {} на {}", id, stripes);
+        CardEntity cardEntity = getCardById(id);
+        cardBalanceStripeService.setStripes(cardEntity, stripes);
+        cardEntity = cardRepository.save(cardEntity);
+
+        return new CardBalanceStripingDTO()
+                .setId(cardEntity.getId())
+                .setBalanceStripes(cardEntity.getBalanceStripes())
+                .setBalance(cardBalanceStripeService.totalBalance(cardEntity));
+    }
+
     @Transactional
     public CardResponseBlockDTO requestBlock(Long cardId) {
         log.debug("Запрос блокировки для карты с ID: {}", cardId);
         CardEntity cardEntity = getCardById(cardId);
         cardEntity.setBlockRequestStatus(BlockRequestStatus.PENDING);
         cardEntity = cardRepository.save(cardEntity);
+        cardCache.evict(cardId);
 
         log.info("Запрос блокировки инициирован для карты с ID: {}. Статус: {}",
                 cardId, cardEntity.getBlockRequestStatus());
@@ -154,11 +215,50 @@ public class CardService {
         return new CardResponseBlockDTO(cardEntity.getId(), cardEntity.getBlockRequestStatus());
     }
 
+    @Transactional(readOnly = true)
+    public CursorPageDTO<CardResponseRequestStatusDTO> getPendingBlockRequests(String after, int size) {
+        log.debug("Получение очереди запросов на блокировку после курсора {}, размер страницы: {}", after, size);
+        Slice<CardRequestStatusView> views = cardRepository.findRequestStatusViewsByBlockRequestStatusAfter(
+                BlockRequestStatus.PENDING, CursorUtil.decode(after), CursorUtil.pageable(size));
+        CursorPageDTO<CardResponseRequestStatusDTO> result = CursorUtil.toPage(
+                views, CardRequestStatusView::id, requestStatusMapper(views.getContent()));
+        log.info("Получено {} запросов на блокировку, есть следующая страница: {}", result.getContent().size(), result.isHasNext());
+        return result;
+    }
+
+    /**
+     * Одобряет или отклоняет запросы на блокировку одним UPDATE. Карты, запрос которых уже не PENDING,
+     * не меняются, поэтому повторная отправка того же решения безопасна.
+     */
+    @Transactional
+    public CardBlockRequestDecisionResponseDTO decideBlockRequests(CardBlockRequestDecisionDTO dto) {
+        Set<Long> cardIds = new TreeSet<>(dto.getCardIds());
+        log.debug("Решение {} по запросам на блокировку {} карт", dto.getDecision(), cardIds.size());
+        int updated = switch (dto.getDecision()) {
+            case APPROVED -> cardRepository.approveBlockRequests(cardIds, BlockRequestStatus.PENDING,
+                    BlockRequestStatus.APPROVED, CardStatus.BLOCK, CardStatus.EXPIRED);
+            case REJECTED -> cardRepository.rejectBlockRequests(cardIds, BlockRequestStatus.PENDING,
+                    BlockRequestStatus.REJECTED);
+            default -> {
+                log.error("Недопустимое решение по запросам на блокировку: {}", dto.getDecision());
+                throw new IllegalArgumentException("Решение должно быть APPROVED или REJECTED");
+            }
+        };
+        cardCache.evict(cardIds);
+        log.info("Решение {} применено к {} из {} карт", dto.getDecision(), updated, cardIds.size());
+
+        return new CardBlockRequestDecisionResponseDTO()
+                .setDecision(dto.getDecision())
+                .setRequested(cardIds.size())
+                .setUpdated(updated);
+    }
+
     @Transactional
     public void deleteCard(Long id) {
         log.debug("Попытка удаления карты с ID: {}", id);
         CardEntity cardEntity = getCardById(id);
         cardRepository.delete(cardEntity);
+        cardCache.evict(id);
         log.info("Карта с ID: {} успешно удалена", id);
     }
 
@@ -166,14 +266,11 @@ public class CardService {
     public Page<CardDTO> getAllCards(Pageable pageable) {
         log.debug("Получение всех карт с пагинацией: {}", pageable);
 
-        Page<CardEntity> cardPage = cardRepository.findAll(pageable);
-        List<CardDTO> result = cardPage.getContent()
-                .stream()
-                .map(cardMapper::toCardDTO)
-                .collect(Collectors.toList());
+        Page<CardDTO> cardPage = cardRepository.findAllCardViews(pageable)
+                .map(cardMapper::cardViewToCardDTO);
 
         log.info("Успешно получено {} карт", cardPage.getTotalPages());
-        return new PageImpl<>(result, pageable, cardPage.getTotalElements());
+        return cardPage;
     }
 
     @Transactional(readOnly = true)
@@ -185,13 +282,46 @@ public class CardService {
             throw new IllegalArgumentException("Pageable не может быть null");
         }
 
-        Page<CardResponseRequestStatusDTO> cardPage = cardRepository.findAll(pageable)
-                .map(cardMapper::toCardResponseRequestStatusDTO);
+        Page<CardRequestStatusView> views = cardRepository.findAllRequestStatusViews(pageable);
+        Page<CardResponseRequestStatusDTO> cardPage = views.map(requestStatusMapper(views.getContent()));
 
         log.info("Успешно получено {} статусов карт", cardPage.getTotalElements());
         return cardPage;
     }
 
+    @Transactional(readOnly = true)
+    public CursorPageDTO<CardDTO> getAllCardsAfter(String after, int size) {
+        log.debug("Получение всех карт после курсора {}, размер страницы: {}", after, size);
+        CursorPageDTO<CardDTO> result = CursorUtil.toPage(
+                cardRepository.findCardViewsAfter(CursorUtil.decode(after), CursorUtil.pageable(size)),
+                CardView::id, cardMapper::cardViewToCardDTO);
+        log.info("Успешно получено {} карт, есть следующая страница: {}", result.getContent().size(), result.isHasNext());
+        return result;
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageDTO<CardResponseRequestStatusDTO> getStatusesByRequestCardsAfter(String after, int size) {
+        log.debug("Получение статусов карт после курсора {}, размер страницы: {}", after, size);
+        Slice<CardRequestStatusView> views = cardRepository.findRequestStatusViewsAfter(CursorUtil.decode(after), CursorUtil.pageable(size));
+        CursorPageDTO<CardResponseRequestStatusDTO> result = CursorUtil.toPage(
+                views, CardRequestStatusView::id, requestStatusMapper(views.getContent()));
+        log.info("Успешно получено {} статусов карт, есть следующая страница: {}", result.getContent().size(), result.isHasNext());
+        return result;
+    }
+
+    /**
+     * Чтение без блокировки строки: баланс включает части разбитого баланса.
+     */
+    private CardDTO loadCard(Long id) {
+        CardEntity cardEntity = cardRepository.findWithoutLockById(id)
+                .orElseThrow(() -> {
+                    log.error("Карта с ID: {} не найдена", id);
+                    return new CardNotFoundException("Карта с id " + id + " не найдена", 404);
+                });
+        return cardMapper.toCardDTO(cardEntity)
+                .setBalance(cardBalanceStripeService.totalBalance(cardEntity));
+    }
+
     private CardEntity getCardById(Long id) {
         return cardRepository.findById(id)
                 .orElseThrow(() -> {
@@ -199,4 +329,16 @@ public class CardService {
                     return new CardNotFoundException("Карта с id " + id + " не найдена", 404);
                 });
     }
+
+    /**
+     * Владельцы карт страницы загружаются одним запросом по их ID, без сущностей и без join на каждую строку.
+     */
+    private Function<CardRequestStatusView, CardResponseRequestStatusDTO> requestStatusMapper(List<CardRequestStatusView> views) {
+        Map<Long, UserDTO> owners = views.isEmpty() ? Map.of() : userRepository.findUserViewsByIdIn(views.stream()
+                        .map(CardRequestStatusView::userId)
+                        .collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(UserView::id, userMapper::userViewToUserDTO));
+        return view -> cardMapper.toCardResponseRequestStatusDTO(view).setUser(owners.get(view.userId()));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,117 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.SchedulerLockEntity;
+import com.example.bankcards.repository.SchedulerLockRepository;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Аренда фоновых задач в таблице scheduler_locks, чтобы задачу выполнял один узел.
+ * Аренда выдается на время leaseTime и продлевается задачей по ходу работы; если узел упал,
+ * аренда истекает и задачу забирает следующий узел. Сроки сравниваются по часам узлов,
+ * поэтому leaseTime должен быть заметно больше их расхождения.
+ */
+@Slf4j
+@Service
+public class SchedulerLockService {
+    private final SchedulerLockRepository schedulerLockRepository;
+    private final TransactionTemplate transactionTemplate;
+    @Getter
+    private final String nodeId;
+
+    public SchedulerLockService(SchedulerLockRepository schedulerLockRepository,
+                                TransactionTemplate transactionTemplate,
+                                @Value("${scheduler.lock.node-id:}") String nodeId) {
+        this.schedulerLockRepository = schedulerLockRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.nodeId = nodeId.isBlank() ? ManagementFactory.getRuntimeMXBean().getName() : nodeId;
+    }
+
+    /**
+     * Выполняет задачу, если удалось взять аренду. Аренда снимается после выполнения,
+     * при успехе фиксируется время завершения.
+     *
+     * @return false, если задачу уже выполняет другой узел
+     */
+    public boolean runLocked(String jobName, Duration leaseTime, Runnable task) {
+        if (!tryAcquire(jobName, leaseTime)) {
+            log.debug("Задача {} выполняется другим узлом, пропуск", jobName);
+            return false;
+        }
+        boolean completed = false;
+        try {
+            task.run();
+            completed = true;
+        } finally {
+            release(jobName, completed);
+        }
+        return true;
+    }
+
+    public boolean tryAcquire(String jobName, Duration leaseTime) {
+        LocalDateTime now = LocalDateTime.now();
+        Integer acquired = transactionTemplate.execute(status ->
+                schedulerLockRepository.acquire(jobName, nodeId, now, now.plus(leaseTime)));
+        if (acquired != null && acquired > 0) {
+            log.info("Узел {} взял аренду задачи {} до {}", nodeId, jobName, now.plus(leaseTime));
+            return true;
+        }
+        if (schedulerLockRepository.existsById(jobName)) {
+            return false;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> schedulerLockRepository.saveAndFlush(new SchedulerLockEntity()
+                    .setJobName(jobName)
+                    .setLockedBy(nodeId)
+                    .setLockedAt(now)
+                    .setLockedUntil(now.plus(leaseTime))));
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Аренду задачи {} первым создал другой узел", jobName);
+            return false;
+        }
+        log.info("Узел {} взял аренду задачи {} до {}", nodeId, jobName, now.plus(leaseTime));
+        return true;
+    }
+
+    /**
+     * Продлевает аренду, пока она еще принадлежит этому узлу.
+     *
+     * @return false, если аренда истекла и могла перейти к другому узлу
+     */
+    public boolean extend(String jobName, Duration leaseTime) {
+        LocalDateTime now = LocalDateTime.now();
+        Integer extended = transactionTemplate.execute(status ->
+                schedulerLockRepository.extend(jobName, nodeId, now, now.plus(leaseTime)));
+        if (extended == null || extended == 0) {
+            log.warn("Узел {} потерял аренду задачи {}", nodeId, jobName);
+            return false;
+        }
+        return true;
+    }
+
+    public void release(String jobName, boolean completed) {
+        LocalDateTime now = LocalDateTime.now();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (completed) {
+                schedulerLockRepository.complete(jobName, nodeId, now);
+            } else {
+                schedulerLockRepository.release(jobName, nodeId, now);
+            }
+        });
+        log.info("Узел {} освободил аренду задачи {}, завершена: {}", nodeId, jobName, completed);
+    }
+
+    public LocalDateTime lastCompletedAt(String jobName) {
+        return schedulerLockRepository.findById(jobName)
+                .map(SchedulerLockEntity::getCompletedAt)
+                .orElse(null);
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.Pagination.CursorPageDTO;
+import com.example.bankcards.dto.Transfer.TransferResponseDTO;
+import com.example.bankcards.entity.UserEntity;
+import com.example.bankcards.exception.card.CardNotFoundException;
+import com.example.bankcards.exception.user.UserNotFoundException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.repository.projection.TransferView;
+import com.example.bankcards.util.CursorUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.example.bankcards.util.AuthUtils.isAdmin;
+
+/**
+ * Чтение истории переводов. Выгрузка пишет строки в ответ по мере чтения курсора,
+ * поэтому расход памяти не зависит от числа переводов в диапазоне.
+ * <p>
+ * Страница истории собирается из исходящих и входящих переводов: каждая выборка читает индекс
+ * (card_id, transfer_time) от новых переводов к старым не дальше размера страницы.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TransferHistoryService {
+    private static final String CSV_HEADER = "id,transfer_time,from_card_id,to_card_id,amount";
+    private static final Comparator<TransferView> NEWEST_FIRST = Comparator.comparing(TransferView::transferTime)
+            .thenComparing(TransferView::id)
+            .reversed();
+
+    private final TransferRepository transferRepository;
+    private final CardRepository cardRepository;
+    private final UserRepository userRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Проверки выполняются до начала записи ответа, чтобы ошибка вернулась со своим HTTP-статусом.
+     */
+    public void checkCardExport(Long cardId, LocalDateTime from, LocalDateTime to) {
+        validateRange(from, to);
+        if (!cardRepository.existsById(cardId)) {
+            log.error("Карта с ID {} не найдена", cardId);
+            throw new CardNotFoundException("Карта не найдена с ID: " + cardId, 404);
+        }
+    }
+
+    public void checkUserExport(Long userId, LocalDateTime from, LocalDateTime to) {
+        validateRange(from, to);
+        if (!userRepository.existsById(userId)) {
+            log.error("Пользователь с ID {} не найден", userId);
+            throw new UserNotFoundException("Пользователь не найден", 404);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public long exportCardTransfers(Long cardId, LocalDateTime from, LocalDateTime to,
+                                    TransferExportFormat format, OutputStream out) throws IOException {
+        log.info("Выгрузка переводов карты {} за период {} - {} в формате {}", cardId, from, to, format);
+        try (Stream<TransferView> transfers = transferRepository.streamByCardId(cardId, from, to)) {
+            long rows = write(transfers, format, out);
+            log.info("Выгружено {} переводов карты {}", rows, cardId);
+            return rows;
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public long exportUserTransfers(Long userId, LocalDateTime from, LocalDateTime to,
+                                    TransferExportFormat format, OutputStream out) throws IOException {
+        log.info("Выгрузка переводов пользователя {} за период {} - {} в формате {}", userId, from, to, format);
+        try (Stream<TransferView> transfers = transferRepository.streamByUserId(userId, from, to)) {
+            long rows = write(transfers, format, out);
+            log.info("Выгружено {} переводов пользователя {}", rows, userId);
+            return rows;
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageDTO<TransferResponseDTO> getCardHistory(Long cardId, LocalDateTime from, LocalDateTime to,
+                                                             String after, int size) {
+        log.info("Запрос истории переводов карты {} за период {} - {}, курсор: {}, размер: {}", cardId, from, to, after, size);
+        String ownerEmail = cardRepository.findOwnerEmailById(cardId)
+                .orElseThrow(() -> {
+                    log.error("Карта с ID {} не найдена", cardId);
+                    return new CardNotFoundException("Карта не найдена с ID: " + cardId, 404);
+                });
+        checkAccess(ownerEmail);
+        CursorPageDTO<TransferResponseDTO> result = historyPage(List.of(cardId), from, to, after, size);
+        log.info("Получено {} переводов карты {}, есть следующая страница: {}",
+                result.getContent().size(), cardId, result.isHasNext());
+        return result;
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageDTO<TransferResponseDTO> getUserHistory(Long userId, LocalDateTime from, LocalDateTime to,
+                                                             String after, int size) {
+        log.info("Запрос истории переводов пользователя {} за период {} - {}, курсор: {}, размер: {}",
+                userId, from, to, after, size);
+        UserEntity userEntity = userRepository.findById(userId)
+                .orElseThrow(() -> {
+                    log.error("Пользователь с ID {} не найден", userId);
+                    return new UserNotFoundException("Пользователь не найден", 404);
+                });
+        checkAccess(userEntity.getEmail());
+        CursorPageDTO<TransferResponseDTO> result = historyPage(cardRepository.findIdsByUserId(userId), from, to, after, size);
+        log.info("Получено {} переводов пользователя {}, есть следующая страница: {}",
+                result.getContent().size(), userId, result.isHasNext());
+        return result;
+    }
+
+    private CursorPageDTO<TransferResponseDTO> historyPage(List<Long> cardIds, LocalDateTime from, LocalDateTime to,
+                                                           String after, int size) {
+        Pageable pageable = CursorUtil.pageable(size);
+        if (from != null && to != null) {
+            validateRange(from, to);
+        }
+        CursorUtil.TimeCursor cursor = CursorUtil.decodeTime(after);
+        if (cardIds.isEmpty()) {
+            return CursorUtil.toPage(new SliceImpl<TransferView>(List.of(), pageable, false),
+                    TransferView::transferTime, TransferView::id, TransferHistoryService::toResponseDTO);
+        }
+        // без курсора верхняя граница - конец периода, id < Long.MIN_VALUE не выбирает строк на самой границе
+        LocalDateTime beforeTime = cursor != null ? cursor.time() : to;
+        long beforeId = cursor != null ? cursor.id() : Long.MIN_VALUE;
+
+        Slice<TransferView> outgoing = transferRepository.findOutgoingBefore(cardIds, from, beforeTime, beforeId, pageable);
+        Slice<TransferView> incoming = transferRepository.findIncomingBefore(cardIds, from, beforeTime, beforeId, pageable);
+        List<TransferView> merged = Stream.concat(outgoing.stream(), incoming.stream())
+                .distinct()
+                .sorted(NEWEST_FIRST)
+                .toList();
+        boolean hasNext = merged.size() > size || outgoing.hasNext() || incoming.hasNext();
+        List<TransferView> content = merged.size() > size ? merged.subList(0, size) : merged;
+        return CursorUtil.toPage(new SliceImpl<>(content, pageable, hasNext),
+                TransferView::transferTime, TransferView::id, TransferHistoryService::toResponseDTO);
+    }
+
+    private void checkAccess(String ownerEmail) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || (!isAdmin(auth) && !ownerEmail.equals(auth.getName()))) {
+            log.warn("Доступ запрещен к истории переводов для пользователя: {}", auth != null ? auth.getName() : "анонимный");
+            throw new AccessDeniedException("Доступ запрещен");
+        }
+    }
+
+    private static TransferResponseDTO toResponseDTO(TransferView transfer) {
+        return new TransferResponseDTO()
+                .setId(transfer.id())
+                .setTransferTime(transfer.transferTime())
+                .setFromCard(transfer.fromCardId())
+                .setToCard(transfer.toCardId())
+                .setAmount(transfer.amount());
+    }
+
+    private long write(Stream<TransferView> transfers, TransferExportFormat format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == TransferExportFormat.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+        long rows = 0;
+        Iterator<TransferView> iterator = transfers.iterator();
+        while (iterator.hasNext()) {
+            TransferView transfer = iterator.next();
+            writer.write(format == TransferExportFormat.CSV ? toCsv(transfer) : objectMapper.writeValueAsString(transfer));
+            writer.write('\n');
+            rows++;
+        }
+        writer.flush();
+        return rows;
+    }
+
+    private static String toCsv(TransferView transfer) {
+        return transfer.id() + "," + transfer.transferTime() + "," + transfer.fromCardId() + ","
+                + transfer.toCardId() + "," + transfer.amount().toPlainString();
+    }
+
+    private static void validateRange(LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("Начало периода должно быть раньше конца периода");
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.Transfer.TransferDTO;
+import com.example.bankcards.dto.Transfer.TransferResponseDTO;
+import com.example.bankcards.entity.TransferIdempotencyKeyEntity;
+import com.example.bankcards.entity.TransferIdempotencyKeyId;
+import com.example.bankcards.exception.DuplicateResourceException;
+import com.example.bankcards.repository.TransferIdempotencyKeyRepository;
+import com.example.bankcards.util.BoundedCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Выполняет перевод не более одного раза для каждого Idempotency-Key пользователя.
+ * Ключ записывается в той же транзакции, что и перевод: повтор с другого узла ждёт
+ * на первичном ключе (user_id, idempotency_key) до фиксации первой попытки и получает сохранённый результат.
+ * Ключи хранятся transfer.idempotency.retention и удаляются {@link #purgeExpired()}.
+ * В режиме LEDGER перевод фиксируется в журнале вне транзакции ключа, поэтому ключ отклоняется.
+ */
+@Slf4j
+@Service
+public class TransferIdempotencyService {
+    private static final int MAX_KEY_LENGTH = 128;
+    private static final int MAX_KEY_CONFLICTS = 3;
+
+    private final TransferIdempotencyKeyRepository idempotencyKeyRepository;
+    private final TransferService transferService;
+    private final TransactionTemplate transactionTemplate;
+    private final TransferMode transferMode;
+    private final Duration retention;
+    private final BoundedCache<TransferIdempotencyKeyId, TransferIdempotencyKeyEntity> completedKeys;
+    private final ConcurrentMap<TransferIdempotencyKeyId, CompletableFuture<Void>> inFlightKeys = new ConcurrentHashMap<>();
+
+    public TransferIdempotencyService(TransferIdempotencyKeyRepository idempotencyKeyRepository,
+                                      TransferService transferService,
+                                      TransactionTemplate transactionTemplate,
+                                      @Value("${transfer.mode:LOCKING}") TransferMode transferMode,
+                                      @Value("${transfer.idempotency.cache-size:10000}") int cacheSize,
+                                      @Value("${transfer.idempotency.retention:P1D}") Duration retention) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.transferService = transferService;
+        this.transactionTemplate = transactionTemplate;
+        this.transferMode = transferMode;
+        this.retention = retention;
+        this.completedKeys = new BoundedCache<>(cacheSize);
+    }
+
+    public TransferResponseDTO transfer(String idempotencyKey, TransferDTO transferDTO) {
+        if (transferMode == TransferMode.LEDGER) {
+            log.error("Idempotency-Key {} передан в режиме переводов LEDGER", idempotencyKey);
+            throw new IllegalArgumentException("Idempotency-Key не поддерживается в режиме переводов LEDGER");
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            log.error("Некорректный Idempotency-Key длиной {}", idempotencyKey.length());
+            throw new IllegalArgumentException("Idempotency-Key должен содержать от 1 до " + MAX_KEY_LENGTH + " символов");
+        }
+        TransferIdempotencyKeyId keyId = new TransferIdempotencyKeyId(transferDTO.getUserId(), idempotencyKey);
+        String requestHash = requestHash(transferDTO);
+
+        int conflicts = 0;
+        while (true) {
+            TransferResponseDTO stored = findCompleted(keyId, requestHash);
+            if (stored != null) {
+                log.info("Повторный запрос с Idempotency-Key {}, возвращен сохраненный перевод {}", idempotencyKey, stored.getId());
+                return stored;
+            }
+
+            CompletableFuture<Void> attempt = new CompletableFuture<>();
+            CompletableFuture<Void> runningAttempt = inFlightKeys.putIfAbsent(keyId, attempt);
+            if (runningAttempt != null) {
+                log.debug("Ожидание завершения первой попытки с Idempotency-Key {}", idempotencyKey);
+                runningAttempt.exceptionally(e -> null).join();
+                continue;
+            }
+
+            try {
+                return execute(keyId, requestHash, transferDTO);
+            } catch (KeyTakenException e) {
+                if (++conflicts >= MAX_KEY_CONFLICTS) {
+                    log.error("Idempotency-Key {} занят, но сохраненный перевод не найден после {} попыток", idempotencyKey, conflicts);
+                    throw new DuplicateResourceException("Idempotency-Key обрабатывается другим запросом, повторите запрос позже");
+                }
+                log.warn("Idempotency-Key {} уже записан другой попыткой", idempotencyKey);
+            } finally {
+                inFlightKeys.remove(keyId, attempt);
+                attempt.complete(null);
+            }
+        }
+    }
+
+    /**
+     * Удаляет ключи старше transfer.idempotency.retention, возвращает число удаленных.
+     */
+    public int purgeExpired() {
+        LocalDateTime before = LocalDateTime.now().minus(retention);
+        Integer deleted = transactionTemplate.execute(status -> idempotencyKeyRepository.deleteCreatedBefore(before));
+        completedKeys.purgeExpired();
+        return deleted == null ? 0 : deleted;
+    }
+
+    private TransferResponseDTO execute(TransferIdempotencyKeyId keyId, String requestHash, TransferDTO transferDTO) {
+        TransferIdempotencyKeyEntity keyEntity = transactionTemplate.execute(status -> {
+            TransferIdempotencyKeyEntity entity;
+            try {
+                entity = idempotencyKeyRepository.saveAndFlush(new TransferIdempotencyKeyEntity()
+                        .setId(keyId)
+                        .setRequestHash(requestHash)
+                        .setCreatedAt(LocalDateTime.now()));
+            } catch (DataIntegrityViolationException e) {
+                throw new KeyTakenException(e);
+            }
+
+            TransferResponseDTO response = transferService.transfer(transferDTO);
+            entity.setTransferId(response.getId())
+                    .setFromCardId(response.getFromCard())
+                    .setToCardId(response.getToCard())
+                    .setAmount(response.getAmount())
+                    .setTransferTime(response.getTransferTime());
+            return idempotencyKeyRepository.save(entity);
+        });
+        cacheCompleted(keyEntity);
+        return toResponse(keyEntity);
+    }
+
+    private TransferResponseDTO findCompleted(TransferIdempotencyKeyId keyId, String requestHash) {
+        TransferIdempotencyKeyEntity keyEntity = completedKeys.get(keyId);
+        if (keyEntity == null) {
+            keyEntity = idempotencyKeyRepository.findById(keyId).orElse(null);
+            if (keyEntity == null || keyEntity.getTransferId() == null) {
+                return null;
+            }
+            cacheCompleted(keyEntity);
+        }
+        if (!keyEntity.getRequestHash().equals(requestHash)) {
+            log.error("Idempotency-Key {} уже использован для другого перевода", keyId.getIdempotencyKey());
+            throw new DuplicateResourceException("Idempotency-Key уже использован для другого перевода");
+        }
+        return toResponse(keyEntity);
+    }
+
+    /**
+     * Запись кэша живёт не дольше строки в базе, чтобы все узлы одинаково забывали ключ.
+     */
+    private void cacheCompleted(TransferIdempotencyKeyEntity keyEntity) {
+        long expiresAtMillis = keyEntity.getCreatedAt().plus(retention)
+                .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        completedKeys.put(keyEntity.getId(), keyEntity, expiresAtMillis);
+    }
+
+    private TransferResponseDTO toResponse(TransferIdempotencyKeyEntity keyEntity) {
+        return new TransferResponseDTO()
+                .setId(keyEntity.getTransferId())
+                .setFromCard(keyEntity.getFromCardId())
+                .setToCard(keyEntity.getToCardId())
+                .setAmount(keyEntity.getAmount())
+                .setTransferTime(keyEntity.getTransferTime());
+    }
+
+    static String requestHash(TransferDTO transferDTO) {
+        String request = transferDTO.getUserId() + "|" + transferDTO.getFromCardId() + "|" + transferDTO.getToCardId()
+                + "|" + transferDTO.getAmount().stripTrailingZeros().toPlainString();
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(request.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+
+    /**
+     * Нарушен первичный ключ таблицы ключей: ключ записан параллельной попыткой.
+     */
+    private static class KeyTakenException extends RuntimeException {
+        KeyTakenException(DataIntegrityViolationException cause) {
+            super(cause);
+        }
+    }
+}
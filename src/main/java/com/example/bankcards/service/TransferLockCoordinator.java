@@ -0,0 +1,67 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.CardEntity;
+import com.example.bankcards.repository.CardRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+
+/**
+ * Берёт блокировки карт одним запросом SELECT ... FOR UPDATE в порядке возрастания ID.
+ * Все переводы захватывают строки в одном и том же порядке, поэтому встречные переводы
+ * A→B и B→A ждут друг друга, а не взаимно блокируются.
+ * Время запроса вместе с ожиданием чужих блокировок пишется в transfer.lock.acquire.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TransferLockCoordinator {
+    private final CardRepository cardRepository;
+    private final MeterRegistry meterRegistry;
+
+    public Map<Long, CardEntity> lockCards(Collection<Long> cardIds) {
+        TreeSet<Long> orderedIds = new TreeSet<>(cardIds);
+        log.debug("Блокировка карт в порядке ID: {}", orderedIds);
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        List<CardEntity> cards = cardRepository.findAllByIdInOrderByIdForUpdate(orderedIds);
+        sample.stop(meterRegistry.timer("transfer.lock.acquire"));
+
+        Map<Long, CardEntity> lockedCards = new HashMap<>();
+        for (CardEntity card : cards) {
+            lockedCards.put(card.getId(), card);
+        }
+        return lockedCards;
+    }
+
+    /**
+     * Перевод на карту с разбитым балансом: карта отправителя блокируется на запись, карта получателя -
+     * разделяемой блокировкой, в том же порядке возрастания ID. Зачисления в части получателя не ждут
+     * друг друга, а сворачивание его частей под блокировкой на запись ждет их завершения, поэтому
+     * строки частей карты меняет только владелец блокировки её строки в cards.
+     */
+    public Map<Long, CardEntity> lockForStripedCredit(Long fromCardId, Long toCardId) {
+        TreeSet<Long> orderedIds = new TreeSet<>(List.of(fromCardId, toCardId));
+        log.debug("Блокировка карты отправителя {} и разделяемая блокировка карты получателя {}", fromCardId, toCardId);
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Map<Long, CardEntity> lockedCards = new HashMap<>();
+        for (Long cardId : orderedIds) {
+            Optional<CardEntity> card = cardId.equals(fromCardId)
+                    ? cardRepository.findById(cardId)
+                    : cardRepository.findByIdForShare(cardId);
+            card.ifPresent(locked -> lockedCards.put(locked.getId(), locked));
+        }
+        sample.stop(meterRegistry.timer("transfer.lock.acquire"));
+        return lockedCards;
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.bankcards.service;
+
+public enum TransferMode {
+    LOCKING,
+    DIRECT,
+    LEDGER
+}
@@ -1,19 +1,44 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.audit.AuditEvent;
+import com.example.bankcards.audit.AuditEventLog;
+import com.example.bankcards.dto.Transfer.TransferBatchItemResultDTO;
+import com.example.bankcards.dto.Transfer.TransferBatchResponseDTO;
 import com.example.bankcards.dto.Transfer.TransferDTO;
 import com.example.bankcards.dto.Transfer.TransferResponseDTO;
 import com.example.bankcards.entity.CardEntity;
 import com.example.bankcards.entity.TransferEntity;
+import com.example.bankcards.entity.enums.CardStatus;
 import com.example.bankcards.exception.card.CardNotFoundException;
+import com.example.bankcards.exception.transfer.TransferException;
+import com.example.bankcards.ledger.LedgerEngine;
+import com.example.bankcards.ledger.LedgerRecord;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.TransferRepository;
 import com.example.bankcards.util.CardValidationUtil;
-import jakarta.transaction.Transactional;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Service
@@ -21,60 +46,396 @@ import java.time.LocalDateTime;
 public class TransferService {
     private final CardRepository cardRepository;
     private final TransferRepository transferRepository;
+    private final TransferLockCoordinator transferLockCoordinator;
+    private final CardBalanceStripeService cardBalanceStripeService;
+    private final CardCache cardCache;
+    private final AuditEventLog auditEventLog;
+    private final MeterRegistry meterRegistry;
+    private final ObjectProvider<LedgerEngine> ledgerEngine;
+    private final TransactionTemplate transactionTemplate;
 
+    @Value("${transfer.mode:LOCKING}")
+    private TransferMode transferMode = TransferMode.LOCKING;
 
-    @Transactional
+    /**
+     * Итог перевода пишется событием в {@link AuditEventLog}: поток запроса не форматирует строки лога.
+     * Метрики: transfer.duration до фиксации (теги mode, outcome; lock_timeout - не дождались блокировки карт), transfer.commit - сброс и фиксация
+     * транзакции, transfer.rejected - отказы по типу исключения и HTTP-статусу.
+     * В режиме LEDGER перевод выполняет {@link LedgerEngine} без транзакции: запрос не держит соединение с базой,
+     * пока ждет сброса журнала, а запись в базу и событие аудита делает отложенная запись.
+     * LOCKING и DIRECT выполняются в транзакции.
+     */
     public TransferResponseDTO transfer(TransferDTO transferDTO) {
-        log.info("Начало операции перевода. TransferDTO: {}", transferDTO);
+        log.debug("Перевод {} с карты {} на карту {}, режим {}",
+                transferDTO.getAmount(), transferDTO.getFromCardId(), transferDTO.getToCardId(), transferMode);
 
-        log.debug("Поиск карты отправителя с ID: {}", transferDTO.getFromCardId());
-        CardEntity fromCard = getCardEntity(transferDTO.getFromCardId());
-        log.info("Карта отправителя найдена: {}", fromCard);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        if (transferMode == TransferMode.LEDGER) {
+            return transferLedger(sample, transferDTO);
+        }
+        return transactionTemplate.execute(status -> transferInTransaction(sample, transferDTO));
+    }
+
+    private TransferResponseDTO transferInTransaction(Timer.Sample sample, TransferDTO transferDTO) {
+        TransferEntity transferEntity;
+        try {
+            transferEntity = transferMode == TransferMode.DIRECT
+                    ? transferDirect(transferDTO)
+                    : transferLocking(transferDTO);
+        } catch (RuntimeException e) {
+            recordFailure(sample, transferDTO, e);
+            throw e;
+        }
+        sample.stop(transferTimer("completed"));
+        timeCommit();
+        cardCache.evict(List.of(transferDTO.getFromCardId(), transferDTO.getToCardId()));
+        auditEventLog.publishAfterCommit(AuditEvent.transferCompleted(transferEntity.getId(), transferDTO));
+
+        TransferResponseDTO transferResponseDTO = new TransferResponseDTO();
+        transferResponseDTO.setId(transferEntity.getId());
+        transferResponseDTO.setTransferTime(transferEntity.getTransferTime());
+        transferResponseDTO.setFromCard(transferDTO.getFromCardId());
+        transferResponseDTO.setToCard(transferDTO.getToCardId());
+        transferResponseDTO.setAmount(transferDTO.getAmount());
+        return transferResponseDTO;
+    }
+
+    private TransferResponseDTO transferLedger(Timer.Sample sample, TransferDTO transferDTO) {
+        LedgerRecord record;
+        try {
+            record = ledgerEngine.getObject().transfer(transferDTO);
+        } catch (RuntimeException e) {
+            recordFailure(sample, transferDTO, e);
+            throw e;
+        }
+        sample.stop(transferTimer("completed"));
+        return toTransferResponseDTO(record);
+    }
+
+    private TransferResponseDTO toTransferResponseDTO(LedgerRecord record) {
+        return new TransferResponseDTO()
+                .setLedgerSeq(record.seq())
+                .setTransferTime(LocalDateTime.ofInstant(Instant.ofEpochMilli(record.timestampMillis()), ZoneId.systemDefault()))
+                .setFromCard(record.fromCardId())
+                .setToCard(record.toCardId())
+                .setAmount(record.amount());
+    }
+
+    private void recordFailure(Timer.Sample sample, TransferDTO transferDTO, RuntimeException e) {
+        if (e instanceof TransferException transferException) {
+            reject(sample, transferDTO, e, transferException.getHttpStatus());
+        } else if (e instanceof CardNotFoundException cardNotFoundException) {
+            reject(sample, transferDTO, e, cardNotFoundException.getStatus());
+        } else if (e instanceof PessimisticLockingFailureException) {
+            sample.stop(transferTimer("lock_timeout"));
+        } else {
+            sample.stop(transferTimer("failed"));
+        }
+    }
+
+    private void reject(Timer.Sample sample, TransferDTO transferDTO, RuntimeException e, int status) {
+        sample.stop(transferTimer("rejected"));
+        meterRegistry.counter("transfer.rejected",
+                "exception", e.getClass().getSimpleName(), "status", String.valueOf(status)).increment();
+        auditEventLog.publish(AuditEvent.transferRejected(transferDTO, status));
+    }
+
+    private Timer transferTimer(String outcome) {
+        return meterRegistry.timer("transfer.duration", "mode", transferMode.name(), "outcome", outcome);
+    }
 
-        log.debug("Поиск карты получателя с ID: {}", transferDTO.getToCardId());
-        CardEntity toCard = getCardEntity(transferDTO.getToCardId());
-        log.info("Карта получателя найдена: {}", toCard);
+    private void timeCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private long commitStart;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                commitStart = System.nanoTime();
+            }
+
+            @Override
+            public void afterCommit() {
+                meterRegistry.timer("transfer.commit").record(System.nanoTime() - commitStart, TimeUnit.NANOSECONDS);
+            }
+        });
+    }
+
+    private TransferEntity transferLocking(TransferDTO transferDTO) {
+        int toCardStripes = cardBalanceStripeService.cachedStripes(transferDTO.getToCardId());
+        if (toCardStripes > 0 && !transferDTO.getFromCardId().equals(transferDTO.getToCardId())) {
+            return transferToStripedCard(transferDTO, toCardStripes);
+        }
+
+        Map<Long, CardEntity> lockedCards = transferLockCoordinator.lockCards(
+                List.of(transferDTO.getFromCardId(), transferDTO.getToCardId()));
+
+        CardEntity fromCard = getCardEntity(lockedCards, transferDTO.getFromCardId());
+        CardEntity toCard = getCardEntity(lockedCards, transferDTO.getToCardId());
 
         CardValidationUtil.validateSameUserTransfer(fromCard, toCard);
         CardValidationUtil.validateCardsBelongToUser(transferDTO, fromCard, toCard);
         CardValidationUtil.validateStatusesCards(fromCard, toCard);
+        cardBalanceStripeService.foldIfShort(fromCard, transferDTO.getAmount());
         CardValidationUtil.validateBalanceCard(transferDTO, fromCard, toCard);
 
-        log.debug("Обновление баланса карты отправителя. Текущий баланс: {}, Сумма перевода: {}", fromCard.getBalance(), transferDTO.getAmount());
         fromCard.setBalance(fromCard.getBalance().subtract(transferDTO.getAmount()));
-        log.debug("Обновление баланса карты получателя. Текущий баланс: {}, Сумма перевода: {}", toCard.getBalance(), transferDTO.getAmount());
         toCard.setBalance(toCard.getBalance().add(transferDTO.getAmount()));
-
-        log.debug("Сохранение изменений карт в базе данных");
         cardRepository.save(fromCard);
         cardRepository.save(toCard);
-        log.info("Балансы карт обновлены. Новый баланс карты отправителя: {}, Новый баланс карты получателя: {}",
-                fromCard.getBalance(), toCard.getBalance());
 
-        log.debug("Создание сущности перевода");
+        return saveTransfer(fromCard, toCard, transferDTO);
+    }
+
+    /**
+     * Перевод на карту с разбитым балансом: карта получателя блокируется разделяемой блокировкой,
+     * сумма зачисляется в случайную часть её баланса.
+     */
+    private TransferEntity transferToStripedCard(TransferDTO transferDTO, int toCardStripes) {
+        log.debug("Карта получателя {} разбита на {} частей, на запись блокируется только карта отправителя {}",
+                transferDTO.getToCardId(), toCardStripes, transferDTO.getFromCardId());
+        Map<Long, CardEntity> lockedCards = transferLockCoordinator.lockForStripedCredit(
+                transferDTO.getFromCardId(), transferDTO.getToCardId());
+        CardEntity fromCard = getCardEntity(lockedCards, transferDTO.getFromCardId());
+        CardEntity toCard = getCardEntity(lockedCards, transferDTO.getToCardId());
+
+        CardValidationUtil.validateSameUserTransfer(fromCard, toCard);
+        CardValidationUtil.validateCardsBelongToUser(transferDTO, fromCard, toCard);
+        CardValidationUtil.validateStatusesCards(fromCard, toCard);
+        cardBalanceStripeService.foldIfShort(fromCard, transferDTO.getAmount());
+        CardValidationUtil.validateBalanceCard(transferDTO, fromCard, toCard);
+
+        fromCard.setBalance(fromCard.getBalance().subtract(transferDTO.getAmount()));
+        cardRepository.save(fromCard);
+        cardBalanceStripeService.credit(toCard.getId(), toCardStripes, transferDTO.getAmount());
+
+        return saveTransfer(fromCard, toCard, transferDTO);
+    }
+
+    private TransferEntity transferDirect(TransferDTO transferDTO) {
+        Long fromCardId = transferDTO.getFromCardId();
+        Long toCardId = transferDTO.getToCardId();
+
+        // строки обновляются в порядке возрастания ID, как и в TransferLockCoordinator
+        if (fromCardId <= toCardId) {
+            debitDirect(transferDTO);
+            creditDirect(transferDTO);
+        } else {
+            creditDirect(transferDTO);
+            debitDirect(transferDTO);
+        }
+        log.debug("Балансы карт {} и {} обновлены условными UPDATE", fromCardId, toCardId);
+
+        return saveTransfer(cardRepository.getReferenceById(fromCardId), cardRepository.getReferenceById(toCardId), transferDTO);
+    }
+
+    private void debitDirect(TransferDTO transferDTO) {
+        int updated = cardRepository.debitBalance(transferDTO.getFromCardId(), transferDTO.getUserId(),
+                CardStatus.ACTIVE, transferDTO.getAmount());
+        if (updated == 0 && cardBalanceStripeService.foldCard(transferDTO.getFromCardId())) {
+            log.debug("Части баланса карты {} свернуты, повтор списания", transferDTO.getFromCardId());
+            updated = cardRepository.debitBalance(transferDTO.getFromCardId(), transferDTO.getUserId(),
+                    CardStatus.ACTIVE, transferDTO.getAmount());
+        }
+        if (updated == 0) {
+            throwDirectTransferFailure(transferDTO);
+        }
+    }
+
+    private void creditDirect(TransferDTO transferDTO) {
+        int updated = cardRepository.creditBalance(transferDTO.getToCardId(), transferDTO.getUserId(),
+                CardStatus.ACTIVE, transferDTO.getAmount());
+        if (updated == 0) {
+            throwDirectTransferFailure(transferDTO);
+        }
+    }
+
+    private void throwDirectTransferFailure(TransferDTO transferDTO) {
+        log.debug("Условный UPDATE не изменил строку, определение причины отказа для перевода {}", transferDTO);
+        Map<Long, CardEntity> cards = new HashMap<>();
+        cardRepository.findAllById(List.of(transferDTO.getFromCardId(), transferDTO.getToCardId()))
+                .forEach(card -> cards.put(card.getId(), card));
+
+        CardEntity fromCard = getCardEntity(cards, transferDTO.getFromCardId());
+        CardEntity toCard = getCardEntity(cards, transferDTO.getToCardId());
+        CardValidationUtil.validateSameUserTransfer(fromCard, toCard);
+        CardValidationUtil.validateCardsBelongToUser(transferDTO, fromCard, toCard);
+        CardValidationUtil.validateStatusesCards(fromCard, toCard);
+        CardValidationUtil.validateBalanceCard(transferDTO, fromCard, toCard);
+
+        log.error("Состояние карт изменилось во время перевода {}", transferDTO);
+        throw new TransferException("Состояние карты изменилось во время перевода, повторите запрос", 409);
+    }
+
+    private TransferEntity saveTransfer(CardEntity fromCard, CardEntity toCard, TransferDTO transferDTO) {
         TransferEntity transferEntity = new TransferEntity();
         transferEntity.setFromCard(fromCard);
         transferEntity.setToCard(toCard);
         transferEntity.setAmount(transferDTO.getAmount());
         transferEntity.setTransferTime(LocalDateTime.now());
-        log.debug("Сохранение перевода в базе данных");
         transferRepository.save(transferEntity);
-        log.info("Перевод успешно сохранен: {}", transferEntity);
-        TransferResponseDTO transferResponseDTO = new TransferResponseDTO();
-        transferResponseDTO.setId(transferEntity.getId());
-        transferResponseDTO.setTransferTime(transferEntity.getTransferTime());
-        transferResponseDTO.setFromCard(transferDTO.getFromCardId());
-        transferResponseDTO.setToCard(transferDTO.getToCardId());
-        transferResponseDTO.setAmount(transferDTO.getAmount());
-        log.info("Операция перевода завершена успешно. Результат: {}", transferEntity);
-        return transferResponseDTO;
+        return transferEntity;
+    }
+
+    public TransferBatchResponseDTO transferBatch(List<TransferDTO> transfers) {
+        log.info("Начало пакетного перевода. Количество переводов: {}", transfers.size());
+        if (transferMode == TransferMode.LEDGER) {
+            return transferBatchLedger(transfers);
+        }
+        return transactionTemplate.execute(status -> transferBatchLocked(transfers));
+    }
+
+    private TransferBatchResponseDTO transferBatchLocked(List<TransferDTO> transfers) {
+        Set<Long> cardIds = new LinkedHashSet<>();
+        for (TransferDTO transferDTO : transfers) {
+            cardIds.add(transferDTO.getFromCardId());
+            cardIds.add(transferDTO.getToCardId());
+        }
+        Map<Long, CardEntity> lockedCards = transferLockCoordinator.lockCards(cardIds);
+        log.debug("Заблокировано {} карт из {} запрошенных", lockedCards.size(), cardIds.size());
+
+        LocalDateTime transferTime = LocalDateTime.now();
+        Set<CardEntity> changedCards = new LinkedHashSet<>();
+        List<TransferEntity> transferEntities = new ArrayList<>();
+        List<TransferBatchItemResultDTO> results = new ArrayList<>(transfers.size());
+
+        for (int i = 0; i < transfers.size(); i++) {
+            TransferDTO transferDTO = transfers.get(i);
+            TransferBatchItemResultDTO result = new TransferBatchItemResultDTO().setIndex(i);
+            results.add(result);
+            try {
+                CardEntity fromCard = getCardEntity(lockedCards, transferDTO.getFromCardId());
+                CardEntity toCard = getCardEntity(lockedCards, transferDTO.getToCardId());
+
+                CardValidationUtil.validateSameUserTransfer(fromCard, toCard);
+                CardValidationUtil.validateCardsBelongToUser(transferDTO, fromCard, toCard);
+                CardValidationUtil.validateStatusesCards(fromCard, toCard);
+                cardBalanceStripeService.foldIfShort(fromCard, transferDTO.getAmount());
+                CardValidationUtil.validateBalanceCard(transferDTO, fromCard, toCard);
+
+                fromCard.setBalance(fromCard.getBalance().subtract(transferDTO.getAmount()));
+                toCard.setBalance(toCard.getBalance().add(transferDTO.getAmount()));
+                changedCards.add(fromCard);
+                changedCards.add(toCard);
+
+                TransferEntity transferEntity = new TransferEntity();
+                transferEntity.setFromCard(fromCard);
+                transferEntity.setToCard(toCard);
+                transferEntity.setAmount(transferDTO.getAmount());
+                transferEntity.setTransferTime(transferTime);
+                transferEntities.add(transferEntity);
+
+                result.setSuccess(true).setStatus(200);
+            } catch (CardNotFoundException e) {
+                result.setStatus(e.getStatus()).setError(e.getMessage());
+            } catch (TransferException e) {
+                result.setStatus(e.getHttpStatus()).setError(e.getMessage());
+            }
+        }
+
+        log.debug("Сохранение {} карт и {} переводов", changedCards.size(), transferEntities.size());
+        cardRepository.saveAll(changedCards);
+        transferRepository.saveAll(transferEntities);
+        cardCache.evict(changedCards.stream().map(CardEntity::getId).toList());
+
+        int transferIndex = 0;
+        for (TransferBatchItemResultDTO result : results) {
+            if (!result.isSuccess()) {
+                auditEventLog.publish(AuditEvent.transferRejected(transfers.get(result.getIndex()), result.getStatus()));
+                continue;
+            }
+            TransferEntity transferEntity = transferEntities.get(transferIndex++);
+            TransferDTO transferDTO = transfers.get(result.getIndex());
+            auditEventLog.publishAfterCommit(AuditEvent.transferCompleted(transferEntity.getId(), transferDTO));
+            result.setTransfer(new TransferResponseDTO()
+                    .setId(transferEntity.getId())
+                    .setTransferTime(transferEntity.getTransferTime())
+                    .setFromCard(transferDTO.getFromCardId())
+                    .setToCard(transferDTO.getToCardId())
+                    .setAmount(transferDTO.getAmount()));
+        }
+
+        TransferBatchResponseDTO response = new TransferBatchResponseDTO()
+                .setSucceeded(transferEntities.size())
+                .setFailed(transfers.size() - transferEntities.size())
+                .setResults(results);
+        log.info("Пакетный перевод завершен. Выполнено: {}, отклонено: {}", response.getSucceeded(), response.getFailed());
+        return response;
+    }
+
+    /**
+     * В режиме LEDGER переводы пакета списываются и ставятся в очередь журнала сразу, а ответ ждет их
+     * сброса на диск вместе, поэтому пакет делит сбросы журнала. Зачисление видно только после сброса,
+     * поэтому перевод, которому не хватило средств, повторяется после записи предыдущих переводов пакета.
+     */
+    private TransferBatchResponseDTO transferBatchLedger(List<TransferDTO> transfers) {
+        LedgerEngine engine = ledgerEngine.getObject();
+        List<TransferBatchItemResultDTO> results = new ArrayList<>(transfers.size());
+        List<LedgerSubmission> submitted = new ArrayList<>();
+        for (int i = 0; i < transfers.size(); i++) {
+            TransferDTO transferDTO = transfers.get(i);
+            TransferBatchItemResultDTO result = new TransferBatchItemResultDTO().setIndex(i);
+            results.add(result);
+            Timer.Sample sample = Timer.start(meterRegistry);
+            try {
+                CompletableFuture<LedgerRecord> durable;
+                try {
+                    durable = engine.submit(transferDTO);
+                } catch (TransferException e) {
+                    if (e.getHttpStatus() != 400 || submitted.isEmpty()) {
+                        throw e;
+                    }
+                    awaitLedger(engine, submitted);
+                    durable = engine.submit(transferDTO);
+                }
+                submitted.add(new LedgerSubmission(transferDTO, result, sample, durable));
+            } catch (CardNotFoundException e) {
+                recordFailure(sample, transferDTO, e);
+                result.setStatus(e.getStatus()).setError(e.getMessage());
+            } catch (TransferException e) {
+                recordFailure(sample, transferDTO, e);
+                result.setStatus(e.getHttpStatus()).setError(e.getMessage());
+            }
+        }
+        awaitLedger(engine, submitted);
+
+        int succeeded = (int) results.stream().filter(TransferBatchItemResultDTO::isSuccess).count();
+        TransferBatchResponseDTO response = new TransferBatchResponseDTO()
+                .setSucceeded(succeeded)
+                .setFailed(transfers.size() - succeeded)
+                .setResults(results);
+        log.info("Пакетный перевод завершен. Выполнено: {}, отклонено: {}", response.getSucceeded(), response.getFailed());
+        return response;
+    }
+
+    private void awaitLedger(LedgerEngine engine, List<LedgerSubmission> submitted) {
+        for (LedgerSubmission submission : submitted) {
+            try {
+                LedgerRecord record = engine.await(submission.transferDTO(), submission.durable());
+                submission.sample().stop(transferTimer("completed"));
+                submission.result().setTransfer(toTransferResponseDTO(record))
+                        .setSuccess(true)
+                        .setStatus(200);
+            } catch (TransferException e) {
+                recordFailure(submission.sample(), submission.transferDTO(), e);
+                submission.result().setStatus(e.getHttpStatus()).setError(e.getMessage());
+            }
+        }
+        submitted.clear();
+    }
+
+    private record LedgerSubmission(TransferDTO transferDTO, TransferBatchItemResultDTO result,
+                                    Timer.Sample sample, CompletableFuture<LedgerRecord> durable) {
     }
 
-    private CardEntity getCardEntity(Long id) {
-        return cardRepository.findById(id)
-                .orElseThrow(() -> {
-                    log.error("Карта с ID {} не найдена", id);
-                    return new CardNotFoundException("Карта не найдена с ID: " + id, 404);
-                });
+    private CardEntity getCardEntity(Map<Long, CardEntity> lockedCards, Long id) {
+        CardEntity cardEntity = lockedCards.get(id);
+        if (cardEntity == null) {
+            log.error("Карта с ID {} не найдена", id);
+            throw new CardNotFoundException("Карта не найдена с ID: " + id, 404);
+        }
+        return cardEntity;
     }
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package com.example.bankcards.service;
 import com.example.bankcards.dto.Card.CardDTO;
 import com.example.bankcards.dto.Jwt.JwtAuthenticationDto;
 import com.example.bankcards.dto.Jwt.RefreshTokenDto;
+import com.example.bankcards.dto.Pagination.CursorPageDTO;
 import com.example.bankcards.dto.User.UserDTO;
 import com.example.bankcards.dto.User.UserRegisterDTO;
 import com.example.bankcards.dto.User.UserSignInDTO;
@@ -12,8 +13,12 @@ import com.example.bankcards.exception.DuplicateResourceException;
 import com.example.bankcards.exception.user.UserNotFoundException;
 import com.example.bankcards.mappers.CardMapper;
 import com.example.bankcards.mappers.UserMapper;
+import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.repository.projection.CardView;
+import com.example.bankcards.security.UserAccessCache;
 import com.example.bankcards.security.jwt.JwtService;
+import com.example.bankcards.util.CursorUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -29,6 +34,7 @@ import javax.naming.AuthenticationException;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.example.bankcards.util.AuthUtils.isAdmin;
 
@@ -37,10 +43,12 @@ import static com.example.bankcards.util.AuthUtils.isAdmin;
 @RequiredArgsConstructor
 public class UserService {
     private final UserRepository userRepository;
+    private final CardRepository cardRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
     private final UserMapper userMapper;
     private final CardMapper cardMapper;
+    private final UserAccessCache userAccessCache;
 
 
     public JwtAuthenticationDto signIn(UserSignInDTO userSignInDTO) {
@@ -83,6 +91,8 @@ public class UserService {
         //userEntity.setRole(RoleUsers.ROLE_ADMIN);
         userEntity.setFullName(dto.getFullname());
         userEntity = userRepository.save(userEntity);
+        // почта могла быть закэширована без роли, пока пользователя не было
+        userAccessCache.evict(userEntity.getEmail());
         log.info("Пользователь успешно зарегистрирован, email: {}, ID: {}", dto.getEmail(), userEntity.getId());
         return userMapper.toUserDTO(userEntity);
     }
@@ -120,6 +130,10 @@ public class UserService {
         return userMapper.toUserDTO(userEntity);
     }
 
+    /**
+     * Карты пользователя читаются потоком проекций из cards, без загрузки коллекции cardEntities.
+     */
+    @Transactional(readOnly = true)
     public List<CardDTO> getUserCards(Long id) {
         log.info("Запрос карт пользователя с ID: {}", id);
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
@@ -135,10 +149,12 @@ public class UserService {
             throw new AccessDeniedException("Доступ запрещен");
         }
 
-        log.info("Карты пользователя с ID {} успешно возвращены, количество карт: {}", id, userEntity.getCardEntities().size());
-        return userEntity.getCardEntities().stream()
-                .map(cardMapper::toCardDTO)
-                .collect(Collectors.toList());
+        List<CardDTO> cards;
+        try (Stream<CardView> views = cardRepository.streamCardViewsByUserId(id)) {
+            cards = views.map(cardMapper::cardViewToCardDTO).collect(Collectors.toList());
+        }
+        log.info("Карты пользователя с ID {} успешно возвращены, количество карт: {}", id, cards.size());
+        return cards;
     }
 
     @Transactional(readOnly = true)
@@ -149,6 +165,16 @@ public class UserService {
         return users;
     }
 
+    @Transactional(readOnly = true)
+    public CursorPageDTO<UserDTO> getAllUsersAfter(String after, int size) {
+        log.info("Запрос списка всех пользователей после курсора {}, размер страницы: {}", after, size);
+        CursorPageDTO<UserDTO> users = CursorUtil.toPage(
+                userRepository.findByIdGreaterThanOrderByIdAsc(CursorUtil.decode(after), CursorUtil.pageable(size)),
+                UserEntity::getId, userMapper::toUserDTO);
+        log.info("Возвращено {} пользователей, есть следующая страница: {}", users.getContent().size(), users.isHasNext());
+        return users;
+    }
+
     private UserEntity findByUserRegister(UserRegisterDTO dto) throws AuthenticationException {
         log.debug("Поиск пользователя по email: {}", dto.getEmail());
         Optional<UserEntity> optionalUser = userRepository.findByEmail(dto.getEmail());
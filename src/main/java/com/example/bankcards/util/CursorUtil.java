@@ -0,0 +1,97 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.dto.Pagination.CursorPageDTO;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Курсор keyset-пагинации: непрозрачная для клиента строка с ID последнего элемента страницы.
+ * Следующая страница выбирается условием id > курсор, поэтому не зависит от глубины
+ * и не сдвигается при вставке новых строк.
+ * <p>
+ * Для истории переводов курсор составной: время и ID последнего перевода страницы.
+ */
+public class CursorUtil {
+    public static final int MAX_PAGE_SIZE = 100;
+    private static final String TIME_SEPARATOR = "_";
+
+    public record TimeCursor(LocalDateTime time, long id) {
+    }
+
+    public static String encode(Long id) {
+        return encode(id.toString());
+    }
+
+    public static long decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Некорректный курсор страницы");
+        }
+    }
+
+    public static String encode(LocalDateTime time, Long id) {
+        return encode(time + TIME_SEPARATOR + id);
+    }
+
+    /**
+     * @return позиция последнего элемента предыдущей страницы или null для первой страницы
+     */
+    public static TimeCursor decodeTime(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.indexOf(TIME_SEPARATOR);
+            return new TimeCursor(LocalDateTime.parse(value.substring(0, separator)),
+                    Long.parseLong(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Некорректный курсор страницы");
+        }
+    }
+
+    public static Pageable pageable(int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        return PageRequest.ofSize(size);
+    }
+
+    public static <E, T> CursorPageDTO<T> toPage(Slice<E> slice, Function<E, Long> idExtractor, Function<E, T> mapper) {
+        return toCursorPage(slice, mapper, last -> encode(idExtractor.apply(last)));
+    }
+
+    public static <E, T> CursorPageDTO<T> toPage(Slice<E> slice, Function<E, LocalDateTime> timeExtractor,
+                                                 Function<E, Long> idExtractor, Function<E, T> mapper) {
+        return toCursorPage(slice, mapper, last -> encode(timeExtractor.apply(last), idExtractor.apply(last)));
+    }
+
+    private static String encode(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static <E, T> CursorPageDTO<T> toCursorPage(Slice<E> slice, Function<E, T> mapper,
+                                                        Function<E, String> cursorEncoder) {
+        List<E> content = slice.getContent();
+        String nextCursor = slice.hasNext() && !content.isEmpty()
+                ? cursorEncoder.apply(content.get(content.size() - 1))
+                : null;
+        return new CursorPageDTO<T>()
+                .setContent(content.stream().map(mapper).toList())
+                .setSize(slice.getSize())
+                .setHasNext(slice.hasNext())
+                .setNextCursor(nextCursor);
+    }
+}
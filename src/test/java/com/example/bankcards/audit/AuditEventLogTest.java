@@ -0,0 +1,88 @@
+package com.example.bankcards.audit;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.example.bankcards.dto.Transfer.TransferDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuditEventLogTest {
+
+    private final Logger auditLogger = (Logger) LoggerFactory.getLogger("AUDIT");
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    private final TransferDTO transferDTO = new TransferDTO()
+            .setUserId(5L)
+            .setFromCardId(1L)
+            .setToCardId(2L)
+            .setAmount(new BigDecimal("10.00"));
+
+    @BeforeEach
+    void setUp() {
+        appender.start();
+        auditLogger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        auditLogger.detachAppender(appender);
+    }
+
+    @Test
+    void publish_WritesEventsInBackgroundThread() throws InterruptedException {
+        AuditEventLog auditEventLog = new AuditEventLog(16, true);
+        auditEventLog.start();
+
+        auditEventLog.publish(AuditEvent.transferCompleted(7L, transferDTO));
+        auditEventLog.publish(AuditEvent.transferRejected(transferDTO, 400));
+        auditEventLog.stop();
+
+        List<String> messages = appender.list.stream().map(ILoggingEvent::getFormattedMessage).toList();
+        assertEquals(2, messages.size());
+        assertEquals(List.of("audit-writer", "audit-writer"), appender.list.stream().map(ILoggingEvent::getThreadName).toList());
+        assertTrue(messages.get(0).startsWith("event=TRANSFER_COMPLETED"));
+        assertTrue(messages.get(0).endsWith("transferId=7 userId=5 fromCardId=1 toCardId=2 amount=10.00 status=200"));
+        assertTrue(messages.get(1).contains("event=TRANSFER_REJECTED"));
+        assertEquals(2, auditEventLog.getWritten());
+    }
+
+    @Test
+    void publish_FullBuffer_DropsEventWithoutBlocking() throws InterruptedException {
+        AuditEventLog auditEventLog = new AuditEventLog(2, true);
+
+        for (int i = 0; i < 3; i++) {
+            auditEventLog.publish(AuditEvent.transferCompleted((long) i, transferDTO));
+        }
+        auditEventLog.start();
+        auditEventLog.stop();
+
+        assertEquals(1, auditEventLog.getDropped());
+        assertEquals(2, auditEventLog.getWritten());
+        assertEquals(2, appender.list.size());
+    }
+
+    @Test
+    void publishAfterCommit_WritesOnlyAfterCommit() {
+        AuditEventLog auditEventLog = new AuditEventLog(16, false);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            auditEventLog.publishAfterCommit(AuditEvent.transferCompleted(7L, transferDTO));
+            assertEquals(0, appender.list.size());
+
+            TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+            assertEquals(1, appender.list.size());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.dto.Card.CardResponseRequestStatusDTO;
+import com.example.bankcards.dto.User.UserDTO;
+import com.example.bankcards.entity.CardEntity;
+import com.example.bankcards.entity.UserEntity;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.RoleUsers;
+import com.example.bankcards.mappers.CardMapper;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.CardService;
+import com.example.bankcards.util.MaskingUtil;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.function.IntConsumer;
+
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("test")
+class CardListingProjectionBenchmarkTest {
+    private static final int CARDS = 5_000;
+    private static final int PAGE_SIZE = 100;
+    private static final int ROUNDS = 5;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private CardMapper cardMapper;
+
+    @Autowired
+    private CardService cardService;
+
+    @BeforeEach
+    void setUp() {
+        UserEntity user = userRepository.save(new UserEntity().setEmail("listing-benchmark@test.com").setRole(RoleUsers.ROLE_USER));
+        transactionTemplate.executeWithoutResult(status -> {
+            UserEntity owner = entityManager.getReference(UserEntity.class, user.getId());
+            for (int i = 0; i < CARDS; i++) {
+                entityManager.persist(new CardEntity()
+                        .setNumber(String.format("%016d", 4_000_000_000_000_000L + i))
+                        .setUser(owner)
+                        .setBalance(BigDecimal.TEN)
+                        .setStatus(CardStatus.ACTIVE)
+                        .setExpiryDate(LocalDate.now().plusYears(1)));
+                if (i % 500 == 499) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        cardRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void allCardsListing() {
+        compare("/api/cards/all",
+                page -> cardRepository.findAll(pageRequest(page)).map(cardMapper::toCardDTO).getContent(),
+                page -> cardService.getAllCards(pageRequest(page)));
+    }
+
+    @Test
+    void requestStatusListing() {
+        compare("/api/cards/statuses/request/cards",
+                page -> cardRepository.findAll(pageRequest(page)).map(card -> new CardResponseRequestStatusDTO()
+                        .setId(card.getId())
+                        .setMaskedNumber(MaskingUtil.maskCardNumber(card.getNumber()))
+                        .setBlockRequestStatus(card.getBlockRequestStatus())
+                        .setStatus(card.getStatus())
+                        .setUser(new UserDTO()
+                                .setEmail(card.getUser().getEmail())
+                                .setFullName(card.getUser().getFullName())
+                                .setRole(card.getUser().getRole()))).getContent(),
+                page -> cardService.getStatusesByRequestCards(pageRequest(page)));
+    }
+
+    private void compare(String name, IntConsumer entityPage, IntConsumer projectionPage) {
+        for (int warmup = 0; warmup < 2; warmup++) {
+            listAllPages(entityPage);
+            listAllPages(projectionPage);
+        }
+
+        long[] entity = new long[2];
+        long[] projection = new long[2];
+        for (int round = 0; round < ROUNDS; round++) {
+            accumulate(entity, listAllPages(entityPage));
+            accumulate(projection, listAllPages(projectionPage));
+        }
+        log.info("{}: {} страниц по {} карт, сущности {} мс / {} КБ на страницу, проекция {} мс / {} КБ на страницу",
+                name, CARDS / PAGE_SIZE, PAGE_SIZE,
+                entity[0] / ROUNDS / 1_000_000, entity[1] / ROUNDS / (CARDS / PAGE_SIZE) / 1024,
+                projection[0] / ROUNDS / 1_000_000, projection[1] / ROUNDS / (CARDS / PAGE_SIZE) / 1024);
+    }
+
+    private long[] listAllPages(IntConsumer pageLoader) {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+        TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnly.setReadOnly(true);
+        long start = System.nanoTime();
+        for (int page = 0; page < CARDS / PAGE_SIZE; page++) {
+            int currentPage = page;
+            readOnly.executeWithoutResult(status -> pageLoader.accept(currentPage));
+        }
+        return new long[]{System.nanoTime() - start, threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore};
+    }
+
+    private static void accumulate(long[] total, long[] sample) {
+        total[0] += sample[0];
+        total[1] += sample[1];
+    }
+
+    private static PageRequest pageRequest(int page) {
+        return PageRequest.of(page, PAGE_SIZE, Sort.by("id"));
+    }
+}
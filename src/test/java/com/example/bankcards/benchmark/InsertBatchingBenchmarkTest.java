@@ -0,0 +1,134 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.entity.CardEntity;
+import com.example.bankcards.entity.TransferEntity;
+import com.example.bankcards.entity.UserEntity;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.RoleUsers;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.IntFunction;
+
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("test")
+class InsertBatchingBenchmarkTest {
+    private static final int ROWS = 5_000;
+    private static final int ROUNDS = 3;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TransferRepository transferRepository;
+
+    private UserEntity user;
+    private CardEntity fromCard;
+    private CardEntity toCard;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new UserEntity().setEmail("benchmark@test.com").setRole(RoleUsers.ROLE_USER));
+        fromCard = cardRepository.save(newCard("0000000000000001"));
+        toCard = cardRepository.save(newCard("0000000000000002"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        transferRepository.deleteAllInBatch();
+        cardRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void transferInserts() {
+        compare("transfers", i -> {
+            TransferEntity transferEntity = new TransferEntity();
+            transferEntity.setFromCard(entityManager.getReference(CardEntity.class, fromCard.getId()));
+            transferEntity.setToCard(entityManager.getReference(CardEntity.class, toCard.getId()));
+            transferEntity.setAmount(BigDecimal.ONE);
+            transferEntity.setTransferTime(LocalDateTime.now());
+            return transferEntity;
+        });
+    }
+
+    @Test
+    void bulkCardCreation() {
+        compare("cards", i -> newCard(String.format("%016d", 1_000_000L + i))
+                .setUser(entityManager.getReference(UserEntity.class, user.getId())));
+    }
+
+    private void compare(String name, IntFunction<Object> rowFactory) {
+        insert(rowFactory, 1);
+        insert(rowFactory, 50);
+
+        double unbatched = 0;
+        double batched = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            unbatched += insert(rowFactory, 1);
+            batched += insert(rowFactory, 50);
+        }
+        unbatched /= ROUNDS;
+        batched /= ROUNDS;
+        log.info("Вставка {} строк в {}: без батчей {} строк/с, batch_size=50 {} строк/с, ускорение x{}",
+                ROWS, name, Math.round(unbatched), Math.round(batched), String.format("%.2f", batched / unbatched));
+    }
+
+    private double insert(IntFunction<Object> rowFactory, int batchSize) {
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+            for (int i = 0; i < ROWS; i++) {
+                entityManager.persist(rowFactory.apply(i));
+                if (i % 500 == 499) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+        });
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.createQuery("delete from TransferEntity").executeUpdate();
+            entityManager.createQuery("delete from CardEntity c where c.id not in (:ids)")
+                    .setParameter("ids", List.of(fromCard.getId(), toCard.getId()))
+                    .executeUpdate();
+        });
+        return ROWS / seconds;
+    }
+
+    private CardEntity newCard(String number) {
+        return new CardEntity()
+                .setNumber(number)
+                .setUser(user)
+                .setBalance(BigDecimal.TEN)
+                .setStatus(CardStatus.ACTIVE)
+                .setExpiryDate(LocalDate.now().plusYears(1));
+    }
+}
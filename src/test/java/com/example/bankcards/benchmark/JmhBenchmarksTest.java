@@ -0,0 +1,38 @@
+package com.example.bankcards.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Запускает JMH-бенчмарки из пакета benchmark.jmh в рамках mvn test -Pbenchmark.
+ * Отдельный бенчмарк: -Djmh.include=JwtVerificationBenchmark
+ * Результаты сохраняются в target/jmh-result.json для сравнения с предыдущими запусками.
+ */
+@Tag("benchmark")
+class JmhBenchmarksTest {
+
+    @Test
+    void runJmhBenchmarks() throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(System.getProperty("jmh.include", "com.example.bankcards.benchmark.jmh.*"))
+                .forks(1)
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .resultFormat(ResultFormatType.JSON)
+                .result(System.getProperty("jmh.result", "target/jmh-result.json"))
+                .build();
+
+        Collection<RunResult> results = new Runner(options).run();
+        assertFalse(results.isEmpty(), "Не найдено ни одного JMH-бенчмарка");
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.dto.Transfer.TransferDTO;
+import com.example.bankcards.entity.CardEntity;
+import com.example.bankcards.entity.UserEntity;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.RoleUsers;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.CardService;
+import com.example.bankcards.service.TransferService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("test")
+class StripedBalanceContentionBenchmarkTest {
+    // меньше размера пула соединений Hikari (10), иначе потоки ждут соединение, а не блокировку строки
+    private static final int THREADS = 8;
+    private static final int TRANSFERS_PER_THREAD = 200;
+    private static final int STRIPES = 8;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("100000.00");
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TransferRepository transferRepository;
+
+    private UserEntity user;
+    private CardEntity receiver;
+    private final List<CardEntity> senders = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new UserEntity().setEmail("striping@test.com").setRole(RoleUsers.ROLE_USER));
+        receiver = cardRepository.save(newCard(String.format("%016d", 0)));
+        for (int i = 1; i <= THREADS; i++) {
+            senders.add(cardRepository.save(newCard(String.format("%016d", i))));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        transferRepository.deleteAllInBatch();
+        cardRepository.deleteAll();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void fanInTransfers() throws InterruptedException {
+        runFanIn("без разбиения (прогрев)");
+        double unstriped = runFanIn("без разбиения");
+
+        cardService.setBalanceStripes(receiver.getId(), STRIPES);
+        runFanIn(STRIPES + " частей (прогрев)");
+        double striped = runFanIn(STRIPES + " частей");
+
+        log.info("Входящие переводы на одну карту, {} потоков: без разбиения {} переводов/с, {} частей {} переводов/с, ускорение x{}",
+                THREADS, Math.round(unstriped), STRIPES, Math.round(striped), String.format("%.2f", striped / unstriped));
+
+        BigDecimal total = cardService.getBalanceCardByCardId(receiver.getId()).getBalance();
+        for (CardEntity sender : senders) {
+            total = total.add(cardService.getBalanceCardByCardId(sender.getId()).getBalance());
+        }
+        assertEquals(0, INITIAL_BALANCE.multiply(BigDecimal.valueOf(THREADS + 1)).compareTo(total),
+                "Сумма балансов изменилась");
+    }
+
+    /**
+     * Возвращает число успешных переводов в секунду. Переводы, не дождавшиеся блокировки
+     * строки получателя, считаются отдельно: именно их и убирает разбиение баланса.
+     */
+    private double runFanIn(String scenario) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger lockFailures = new AtomicInteger();
+        for (CardEntity sender : senders) {
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                        try {
+                            transferService.transfer(new TransferDTO()
+                                    .setUserId(user.getId())
+                                    .setFromCardId(sender.getId())
+                                    .setToCardId(receiver.getId())
+                                    .setAmount(BigDecimal.ONE));
+                            completed.incrementAndGet();
+                        } catch (DataAccessException e) {
+                            lockFailures.incrementAndGet();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        long startTime = System.nanoTime();
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.MINUTES), "Переводы не завершились вовремя");
+        double seconds = (System.nanoTime() - startTime) / 1_000_000_000.0;
+        log.info("{}: выполнено {} переводов за {} с, отказов по блокировке: {}",
+                scenario, completed.get(), String.format("%.2f", seconds), lockFailures.get());
+        return completed.get() / seconds;
+    }
+
+    private CardEntity newCard(String number) {
+        return new CardEntity()
+                .setNumber(number)
+                .setUser(user)
+                .setBalance(INITIAL_BALANCE)
+                .setStatus(CardStatus.ACTIVE)
+                .setExpiryDate(LocalDate.now().plusYears(1));
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.BANK_RESTApplication;
+import com.example.bankcards.dto.Transfer.TransferDTO;
+import com.example.bankcards.entity.CardEntity;
+import com.example.bankcards.entity.UserEntity;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.RoleUsers;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.jwt.JwtService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Переводы между картами через HTTP при числе клиентов больше пула потоков Tomcat:
+ * запросы ждут потоков, соединений пула и блокировки строк cards. Сравнивает потоки платформы и виртуальные потоки,
+ * для виртуальных дополнительно считает события закрепления потока (jdk.VirtualThreadPinned) и группирует их
+ * по верхнему кадру стека. Прогон идет на H2, поэтому закрепления драйвера MySQL он не показывает, и их число
+ * выводится в отчет, а не проверяется. На Java ниже 21 виртуальный режим пропускается.
+ */
+@Slf4j
+@Tag("benchmark")
+class ThreadingModeBenchmarkTest {
+    private static final int CLIENTS = 100;
+    private static final int REQUESTS_PER_CLIENT = 10;
+    // пересечения по картам есть, но большая часть переводов не упирается в тайм-аут блокировки H2
+    private static final int CARDS = 400;
+    private static final int TOMCAT_THREADS = 50;
+
+    @Test
+    void transfersUnderContention() throws Exception {
+        boolean virtualSupported = Runtime.version().feature() >= 21;
+        if (!virtualSupported) {
+            log.info("Виртуальные потоки пропущены: Java {}, нужна 21+", Runtime.version().feature());
+        }
+        Result platform = run(false);
+        assertEquals(CLIENTS * REQUESTS_PER_CLIENT, platform.succeeded() + platform.failed());
+        assertTrue(platform.succeeded() > 0);
+
+        if (!virtualSupported) {
+            return;
+        }
+        Result virtual = run(true);
+        assertEquals(CLIENTS * REQUESTS_PER_CLIENT, virtual.succeeded() + virtual.failed());
+        assertTrue(virtual.succeeded() > 0);
+    }
+
+    private Result run(boolean virtualThreads) throws Exception {
+        String mode = virtualThreads ? "virtual" : "platform";
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BANK_RESTApplication.class)
+                .profiles("test")
+                .run("--server.port=0",
+                        "--spring.threads.virtual.enabled=" + virtualThreads,
+                        "--server.tomcat.threads.max=" + TOMCAT_THREADS,
+                        // потолком под нагрузкой оказывается пул соединений, а не потоки Tomcat:
+                        // ожидание соединения обрывается быстро и считается ошибкой, а не растягивает прогон
+                        "--spring.datasource.hikari.connection-timeout=2000",
+                        "--spring.datasource.url=jdbc:h2:mem:threading-" + mode + ";DB_CLOSE_DELAY=-1;MODE=MySQL",
+                        "--logging.level.com.example.bankcards=WARN",
+                        "--logging.level.com.example.bankcards.benchmark=INFO",
+                        "--logging.level.org.hibernate.SQL=WARN");
+             RecordingStream pinning = new RecordingStream()) {
+            assertEquals(virtualThreads, Threading.VIRTUAL.isActive(context.getEnvironment()));
+            AtomicInteger pinnedEvents = new AtomicInteger();
+            Map<String, Integer> pinnedFrames = new ConcurrentHashMap<>();
+            pinning.enable("jdk.VirtualThreadPinned").withStackTrace();
+            pinning.onEvent("jdk.VirtualThreadPinned", event -> {
+                pinnedEvents.incrementAndGet();
+                pinnedFrames.merge(pinnedFrame(event.getStackTrace()), 1, Integer::sum);
+            });
+            pinning.startAsync();
+
+            UserEntity user = context.getBean(UserRepository.class)
+                    .save(new UserEntity().setEmail("threading@test.com").setRole(RoleUsers.ROLE_USER));
+            List<Long> cardIds = new ArrayList<>();
+            for (int i = 0; i < CARDS; i++) {
+                cardIds.add(context.getBean(CardRepository.class).save(new CardEntity()
+                        .setNumber(String.format("%016d", 8_000_000_000_000_000L + i))
+                        .setUser(user)
+                        .setBalance(new BigDecimal("1000000.00"))
+                        .setStatus(CardStatus.ACTIVE)
+                        .setExpiryDate(LocalDate.now().plusYears(1))).getId());
+            }
+            String token = context.getBean(JwtService.class).generateAutoToken(user.getEmail()).getToken();
+            String url = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/transfer";
+            ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+
+            HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+            long[] latencies = new long[CLIENTS * REQUESTS_PER_CLIENT];
+            AtomicInteger next = new AtomicInteger();
+            AtomicInteger failed = new AtomicInteger();
+            ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+            long start = System.nanoTime();
+            for (int c = 0; c < CLIENTS; c++) {
+                clients.execute(() -> {
+                    for (int r = 0; r < REQUESTS_PER_CLIENT; r++) {
+                        int from = ThreadLocalRandom.current().nextInt(CARDS);
+                        int to = (from + 1 + ThreadLocalRandom.current().nextInt(CARDS - 1)) % CARDS;
+                        long requestStart = System.nanoTime();
+                        try {
+                            HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                                    .header("Authorization", "Bearer " + token)
+                                    .header("Content-Type", "application/json")
+                                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(new TransferDTO()
+                                            .setUserId(user.getId())
+                                            .setFromCardId(cardIds.get(from))
+                                            .setToCardId(cardIds.get(to))
+                                            .setAmount(BigDecimal.ONE))))
+                                    .build();
+                            if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() != 200) {
+                                failed.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            failed.incrementAndGet();
+                        }
+                        latencies[next.getAndIncrement()] = System.nanoTime() - requestStart;
+                    }
+                });
+            }
+            clients.shutdown();
+            assertTrue(clients.awaitTermination(5, TimeUnit.MINUTES));
+            long elapsed = System.nanoTime() - start;
+
+            Arrays.sort(latencies);
+            int total = latencies.length;
+            Result result = new Result(total - failed.get(), failed.get(),
+                    total * 1_000_000_000L / elapsed,
+                    latencies[total / 2] / 1_000_000, latencies[total * 99 / 100] / 1_000_000,
+                    pinnedEvents.get(), new TreeMap<>(pinnedFrames));
+            // после закрытия контекста логирование уже остановлено
+            log.info("{}: {}", virtualThreads ? "Виртуальные потоки" : "Потоки платформы", result);
+            return result;
+        }
+    }
+
+    /**
+     * Первый кадр вне JDK: верхние кадры события - парковка потока, а не код, держащий монитор.
+     */
+    private static String pinnedFrame(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "?";
+        }
+        return stackTrace.getFrames().stream()
+                .map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName())
+                .filter(frame -> !frame.startsWith("java.") && !frame.startsWith("jdk.") && !frame.startsWith("sun."))
+                .findFirst()
+                .orElse("?");
+    }
+
+    private record Result(int succeeded, int failed, long throughput, long p50Millis, long p99Millis, int pinnedEvents,
+                          Map<String, Integer> pinnedFrames) {
+        @Override
+        public String toString() {
+            return String.format("%d успешных, %d ошибок, %d запросов/с, p50 %d мс, p99 %d мс, закреплений %d %s",
+                    succeeded, failed, throughput, p50Millis, p99Millis, pinnedEvents, pinnedFrames);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.audit.AuditEventLog;
+import com.example.bankcards.dto.Transfer.TransferDTO;
+import com.example.bankcards.entity.CardEntity;
+import com.example.bankcards.entity.UserEntity;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.RoleUsers;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.TransferService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Задержка перевода при записи события аудита в потоке запроса и через буфер {@link AuditEventLog}.
+ * Каждый поток переводит между своей парой карт, чтобы блокировки строк не смешивались с записью лога.
+ */
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("test")
+class TransferAuditBenchmarkTest {
+    private static final int THREADS = 8;
+    private static final int TRANSFERS_PER_THREAD = 500;
+    private static final int WARMUP_TRANSFERS = 100;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TransferRepository transferRepository;
+
+    private UserEntity user;
+    private final List<Long> cardIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new UserEntity().setEmail("audit-benchmark@test.com").setRole(RoleUsers.ROLE_USER));
+        for (int i = 0; i < THREADS * 2; i++) {
+            cardIds.add(cardRepository.save(new CardEntity()
+                    .setNumber(String.format("%016d", 9_000_000_000_000_000L + i))
+                    .setUser(user)
+                    .setBalance(new BigDecimal("1000000.00"))
+                    .setStatus(CardStatus.ACTIVE)
+                    .setExpiryDate(LocalDate.now().plusYears(1))).getId());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        transferRepository.deleteAllInBatch();
+        cardRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void transferLatencyWithAndWithoutAsyncAudit() throws Exception {
+        TransferService target = AopTestUtils.getTargetObject(transferService);
+        Object original = ReflectionTestUtils.getField(target, "auditEventLog");
+        AuditEventLog synchronous = new AuditEventLog(1, false);
+        AuditEventLog asynchronous = new AuditEventLog(65536, true);
+        asynchronous.start();
+        try {
+            ReflectionTestUtils.setField(target, "auditEventLog", synchronous);
+            run(WARMUP_TRANSFERS);
+            long[] sync = run(TRANSFERS_PER_THREAD);
+
+            ReflectionTestUtils.setField(target, "auditEventLog", asynchronous);
+            run(WARMUP_TRANSFERS);
+            long[] async = run(TRANSFERS_PER_THREAD);
+            asynchronous.stop();
+
+            log.info("Аудит в потоке запроса: p50 {} мкс, p99 {} мкс; через буфер: p50 {} мкс, p99 {} мкс, отброшено {}",
+                    percentile(sync, 50), percentile(sync, 99), percentile(async, 50), percentile(async, 99),
+                    asynchronous.getDropped());
+            assertEquals(THREADS * (TRANSFERS_PER_THREAD + WARMUP_TRANSFERS), asynchronous.getWritten());
+        } finally {
+            ReflectionTestUtils.setField(target, "auditEventLog", original);
+        }
+    }
+
+    private long[] run(int transfersPerThread) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                TransferDTO transferDTO = new TransferDTO()
+                        .setUserId(user.getId())
+                        .setFromCardId(cardIds.get(t * 2))
+                        .setToCardId(cardIds.get(t * 2 + 1))
+                        .setAmount(BigDecimal.ONE);
+                futures.add(executor.submit(() -> {
+                    long[] latencies = new long[transfersPerThread];
+                    for (int i = 0; i < transfersPerThread; i++) {
+                        long start = System.nanoTime();
+                        transferService.transfer(transferDTO);
+                        latencies[i] = System.nanoTime() - start;
+                    }
+                    return latencies;
+                }));
+            }
+            long[] all = new long[THREADS * transfersPerThread];
+            for (int t = 0; t < THREADS; t++) {
+                System.arraycopy(futures.get(t).get(), 0, all, t * transfersPerThread, transfersPerThread);
+            }
+            Arrays.sort(all);
+            return all;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        return sorted[sorted.length * percentile / 100] / 1_000;
+    }
+}
@@ -0,0 +1,351 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.BANK_RESTApplication;
+import com.example.bankcards.dto.Jwt.JwtAuthenticationDto;
+import com.example.bankcards.dto.Transfer.TransferDTO;
+import com.example.bankcards.dto.User.UserSignInDTO;
+import com.example.bankcards.entity.CardEntity;
+import com.example.bankcards.entity.UserEntity;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.RoleUsers;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Нагрузочный прогон через весь стек Spring на H2 из application-test.yml: N пользователей с M картами,
+ * клиенты одновременно вызывают /api/transfer, /api/cards/{id}/balance и /api/auth/sign-in.
+ * Печатает пропускную способность и p50/p99 по каждому запросу, тайм-ауты блокировок карт и пула соединений,
+ * после прогона проверяет сохранение суммы балансов каждого пользователя. Отчет пишется в target/load-test-report.txt.
+ * <p>
+ * Параметры (-Dload.*): users, cards, clients, requests (на клиента), transfer-percent, balance-percent,
+ * lock-timeout-ms (LOCK_TIMEOUT H2), seed, profiles (например test,prod для раздельных пулов),
+ * args (дополнительные аргументы Spring через пробел).
+ * <pre>
+ * mvn test -Pbenchmark -Dtest=TransferLoadTest -Dload.clients=64 -Dload.args="--spring.datasource.hikari.maximum-pool-size=5"
+ * </pre>
+ */
+@Slf4j
+@Tag("benchmark")
+class TransferLoadTest {
+    private static final int USERS = Integer.getInteger("load.users", 20);
+    private static final int CARDS = Integer.getInteger("load.cards", 100);
+    private static final int CLIENTS = Integer.getInteger("load.clients", 32);
+    private static final int REQUESTS_PER_CLIENT = Integer.getInteger("load.requests", 200);
+    private static final int TRANSFER_PERCENT = Integer.getInteger("load.transfer-percent", 70);
+    private static final int BALANCE_PERCENT = Integer.getInteger("load.balance-percent", 25);
+    private static final int LOCK_TIMEOUT_MS = Integer.getInteger("load.lock-timeout-ms", 1000);
+    private static final long SEED = Long.getLong("load.seed", 42L);
+    private static final String PROFILES = System.getProperty("load.profiles", "test");
+    private static final String EXTRA_ARGS = System.getProperty("load.args", "");
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("10000.00");
+    private static final String PASSWORD = "load-password";
+
+    private enum Operation { TRANSFER, BALANCE, SIGN_IN }
+
+    @Test
+    void transfersBalancesAndSignInsUnderLoad() throws Exception {
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:load-test;DB_CLOSE_DELAY=-1;MODE=MySQL;LOCK_TIMEOUT=" + LOCK_TIMEOUT_MS,
+                // ожидание соединения обрывается быстро и попадает в тайм-ауты пула, а не растягивает прогон
+                "--spring.datasource.hikari.connection-timeout=2000",
+                "--debug=false",
+                // отказы и тайм-ауты пишутся в лог со стеком на каждый запрос, итог считается по ответам и метрикам
+                "--logging.level.root=OFF",
+                "--logging.level.com.example.bankcards.benchmark=INFO"));
+        if (!EXTRA_ARGS.isBlank()) {
+            args.addAll(Arrays.asList(EXTRA_ARGS.trim().split("\\s+")));
+        }
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BANK_RESTApplication.class)
+                .profiles(PROFILES.split(","))
+                .run(args.toArray(String[]::new))) {
+            List<UserEntity> users = seedUsers(context);
+            Map<Long, List<Long>> cardsByUser = seedCards(context, users);
+            Map<Long, BigDecimal> balancesBefore = balancesByUser(context.getBean(CardRepository.class));
+            MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+            double lockTimeoutsBefore = lockTimeouts(meterRegistry);
+            double poolTimeoutsBefore = poolTimeouts(meterRegistry);
+
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+            HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+            ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+            List<Future<ClientStats>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int c = 0; c < CLIENTS; c++) {
+                UserEntity user = users.get(c % USERS);
+                Client loadClient = new Client(client, objectMapper, baseUrl, user, cardsByUser.get(user.getId()), new Random(SEED + c));
+                futures.add(executor.submit(loadClient::run));
+            }
+            Map<Operation, ClientStats.Series> total = new EnumMap<>(Operation.class);
+            for (Future<ClientStats> future : futures) {
+                future.get().series.forEach((operation, series) ->
+                        total.computeIfAbsent(operation, o -> new ClientStats.Series()).addAll(series));
+            }
+            long elapsed = System.nanoTime() - start;
+            executor.shutdown();
+
+            Map<Long, BigDecimal> balancesAfter = balancesByUser(context.getBean(CardRepository.class));
+            long transferRows = context.getBean(TransferRepository.class).count();
+            long negativeCards = context.getBean(CardRepository.class).findAll().stream()
+                    .filter(card -> card.getBalance().signum() < 0)
+                    .count();
+            int completedTransfers = total.getOrDefault(Operation.TRANSFER, new ClientStats.Series()).succeeded;
+
+            String report = report(total, elapsed, lockTimeouts(meterRegistry) - lockTimeoutsBefore,
+                    poolTimeouts(meterRegistry) - poolTimeoutsBefore, transferRows, completedTransfers,
+                    balancesBefore.equals(balancesAfter), negativeCards);
+            // после закрытия контекста логирование уже остановлено
+            log.info("\n{}", report);
+            Files.writeString(Path.of("target", "load-test-report.txt"), report, StandardCharsets.UTF_8);
+
+            assertEquals(balancesBefore, balancesAfter, "сумма балансов карт пользователя изменилась");
+            assertEquals(0, negativeCards, "баланс карты ушел в минус");
+            assertEquals(completedTransfers, transferRows, "число записей transfers не совпадает с успешными переводами");
+            assertTrue(completedTransfers > 0, "ни один перевод не выполнен");
+        }
+    }
+
+    private static List<UserEntity> seedUsers(ConfigurableApplicationContext context) {
+        String password = context.getBean(PasswordEncoder.class).encode(PASSWORD);
+        List<UserEntity> users = new ArrayList<>();
+        for (int u = 0; u < USERS; u++) {
+            users.add(new UserEntity().setEmail("load" + u + "@test.io").setPassword(password).setRole(RoleUsers.ROLE_USER));
+        }
+        return context.getBean(UserRepository.class).saveAll(users);
+    }
+
+    /**
+     * Карты раздаются пользователям по кругу, у каждого пользователя не меньше двух карт.
+     */
+    private static Map<Long, List<Long>> seedCards(ConfigurableApplicationContext context, List<UserEntity> users) {
+        List<CardEntity> cards = new ArrayList<>();
+        for (int i = 0; i < Math.max(CARDS, USERS * 2); i++) {
+            cards.add(new CardEntity()
+                    .setNumber(String.format("%016d", 7_000_000_000_000_000L + i))
+                    .setUser(users.get(i % USERS))
+                    .setBalance(INITIAL_BALANCE)
+                    .setStatus(CardStatus.ACTIVE)
+                    .setExpiryDate(LocalDate.now().plusYears(1)));
+        }
+        return context.getBean(CardRepository.class).saveAll(cards).stream()
+                .collect(Collectors.groupingBy(card -> card.getUser().getId(),
+                        Collectors.mapping(CardEntity::getId, Collectors.toList())));
+    }
+
+    private static Map<Long, BigDecimal> balancesByUser(CardRepository cardRepository) {
+        Map<Long, BigDecimal> balances = new HashMap<>();
+        for (CardEntity card : cardRepository.findAll()) {
+            balances.merge(card.getUser().getId(), card.getBalance(), BigDecimal::add);
+        }
+        return balances;
+    }
+
+    private static double lockTimeouts(MeterRegistry meterRegistry) {
+        return meterRegistry.find("transfer.duration").tag("outcome", "lock_timeout").timers().stream()
+                .mapToDouble(Timer::count)
+                .sum();
+    }
+
+    private static double poolTimeouts(MeterRegistry meterRegistry) {
+        return meterRegistry.find("hikaricp.connections.timeout").counters().stream()
+                .mapToDouble(counter -> counter.count())
+                .sum();
+    }
+
+    private static String report(Map<Operation, ClientStats.Series> total, long elapsedNanos, double lockTimeouts,
+                                 double poolTimeouts, long transferRows, int completedTransfers,
+                                 boolean conserved, long negativeCards) {
+        StringBuilder report = new StringBuilder(String.format(
+                "Нагрузка: %d пользователей, %d карт, %d клиентов по %d запросов, профили %s, %s%n",
+                USERS, Math.max(CARDS, USERS * 2), CLIENTS, REQUESTS_PER_CLIENT, PROFILES, EXTRA_ARGS));
+        double seconds = elapsedNanos / 1e9;
+        for (Operation operation : Operation.values()) {
+            ClientStats.Series series = total.get(operation);
+            if (series == null) {
+                continue;
+            }
+            long[] latencies = series.sorted();
+            report.append(String.format("%-9s %6d успешных, %5d ошибок, %7.1f запросов/с, p50 %6.2f мс, p99 %7.2f мс%n",
+                    operation, series.succeeded, series.failed, latencies.length / seconds,
+                    percentile(latencies, 50), percentile(latencies, 99)));
+        }
+        report.append(String.format("Тайм-ауты блокировок карт: %.0f, тайм-ауты пула соединений: %.0f%n", lockTimeouts, poolTimeouts));
+        report.append(String.format("Сумма балансов пользователей сохранена: %s, карт с отрицательным балансом: %d, записей transfers: %d из %d успешных переводов%n",
+                conserved ? "да" : "НЕТ", negativeCards, transferRows, completedTransfers));
+        return report.toString();
+    }
+
+    private static double percentile(long[] sorted, int percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, sorted.length * percentile / 100)] / 1e6;
+    }
+
+    /**
+     * Клиент работает от имени одного пользователя: входит в систему, затем случайно чередует
+     * переводы между своими картами, запросы баланса и повторный вход.
+     */
+    private record Client(HttpClient client, ObjectMapper objectMapper, String baseUrl, UserEntity user,
+                          List<Long> cardIds, Random random) {
+
+        ClientStats run() {
+            ClientStats stats = new ClientStats();
+            String token = signIn(stats);
+            for (int r = 0; r < REQUESTS_PER_CLIENT; r++) {
+                int roll = random.nextInt(100);
+                if (roll < TRANSFER_PERCENT) {
+                    transfer(stats, token);
+                } else if (roll < TRANSFER_PERCENT + BALANCE_PERCENT) {
+                    balance(stats, token);
+                } else {
+                    String refreshed = signIn(stats);
+                    token = refreshed != null ? refreshed : token;
+                }
+            }
+            return stats;
+        }
+
+        private String signIn(ClientStats stats) {
+            UserSignInDTO signIn = new UserSignInDTO();
+            signIn.setEmail(user.getEmail());
+            signIn.setPassword(PASSWORD);
+            HttpResponse<String> response = send(stats, Operation.SIGN_IN, post("/api/auth/sign-in", null, signIn));
+            if (response == null || response.statusCode() != 200) {
+                return null;
+            }
+            try {
+                return objectMapper.readValue(response.body(), JwtAuthenticationDto.class).getToken();
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        private void transfer(ClientStats stats, String token) {
+            int from = random.nextInt(cardIds.size());
+            int to = (from + 1 + random.nextInt(cardIds.size() - 1)) % cardIds.size();
+            TransferDTO transferDTO = new TransferDTO()
+                    .setUserId(user.getId())
+                    .setFromCardId(cardIds.get(from))
+                    .setToCardId(cardIds.get(to))
+                    .setAmount(BigDecimal.valueOf(1 + random.nextInt(100)));
+            send(stats, Operation.TRANSFER, post("/api/transfer", token, transferDTO));
+        }
+
+        private void balance(ClientStats stats, String token) {
+            Long cardId = cardIds.get(random.nextInt(cardIds.size()));
+            send(stats, Operation.BALANCE, HttpRequest.newBuilder(URI.create(baseUrl + "/api/cards/" + cardId + "/balance"))
+                    .header("Authorization", "Bearer " + token)
+                    .GET()
+                    .build());
+        }
+
+        private HttpRequest post(String path, String token, Object body) {
+            try {
+                HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)));
+                if (token != null) {
+                    builder.header("Authorization", "Bearer " + token);
+                }
+                return builder.build();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private HttpResponse<String> send(ClientStats stats, Operation operation, HttpRequest request) {
+            long start = System.nanoTime();
+            HttpResponse<String> response = null;
+            try {
+                response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            } catch (IOException e) {
+                // ответ не получен, запрос считается ошибкой
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            stats.record(operation, System.nanoTime() - start, response != null && response.statusCode() == 200);
+            return response;
+        }
+    }
+
+    private static class ClientStats {
+        private final Map<Operation, Series> series = new EnumMap<>(Operation.class);
+
+        void record(Operation operation, long nanos, boolean succeeded) {
+            series.computeIfAbsent(operation, o -> new Series()).add(nanos, succeeded);
+        }
+
+        private static class Series {
+            private long[] latencies = new long[64];
+            private int size;
+            private int succeeded;
+            private int failed;
+
+            void add(long nanos, boolean ok) {
+                if (size == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, size * 2);
+                }
+                latencies[size++] = nanos;
+                if (ok) {
+                    succeeded++;
+                } else {
+                    failed++;
+                }
+            }
+
+            void addAll(Series other) {
+                latencies = Arrays.copyOf(latencies, Math.max(latencies.length, size + other.size));
+                System.arraycopy(other.latencies, 0, latencies, size, other.size);
+                size += other.size;
+                succeeded += other.succeeded;
+                failed += other.failed;
+            }
+
+            long[] sorted() {
+                long[] copy = Arrays.copyOf(latencies, size);
+                Arrays.sort(copy);
+                return copy;
+            }
+        }
+    }
+}
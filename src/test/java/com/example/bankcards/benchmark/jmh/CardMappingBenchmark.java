@@ -0,0 +1,51 @@
+package com.example.bankcards.benchmark.jmh;
+
+import com.example.bankcards.dto.Card.CardDTO;
+import com.example.bankcards.entity.CardEntity;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.mappers.CardMapper;
+import com.example.bankcards.mappers.CardMapperImpl;
+import com.example.bankcards.util.MaskingUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Преобразование карты в CardDTO с маскированием номера - выполняется для каждой карты в выдаче списка.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CardMappingBenchmark {
+    private CardMapper cardMapper;
+    private CardEntity card;
+
+    @Setup
+    public void setUp() {
+        cardMapper = new CardMapperImpl();
+        card = new CardEntity()
+                .setId(101L)
+                .setNumber("4276380012345678")
+                .setBalance(new BigDecimal("1000.00"))
+                .setStatus(CardStatus.ACTIVE)
+                .setExpiryDate(LocalDate.now().plusYears(3));
+    }
+
+    @Benchmark
+    public CardDTO toCardDTO() {
+        return cardMapper.toCardDTO(card);
+    }
+
+    @Benchmark
+    public String maskCardNumber() {
+        return MaskingUtil.maskCardNumber(card.getNumber());
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.bankcards.benchmark.jmh;
+
+import com.example.bankcards.dto.Transfer.TransferDTO;
+import com.example.bankcards.entity.CardEntity;
+import com.example.bankcards.entity.UserEntity;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.exception.transfer.TransferException;
+import com.example.bankcards.util.CardValidationUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Проверки CardValidationUtil перед переводом: успешный путь и отказ по балансу,
+ * в котором основную цену составляют запись в лог и создание исключения.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CardValidationBenchmark {
+    private TransferDTO transferDTO;
+    private TransferDTO overdraftDTO;
+    private CardEntity fromCard;
+    private CardEntity toCard;
+
+    @Setup
+    public void setUp() {
+        UserEntity user = new UserEntity().setId(5L);
+        fromCard = new CardEntity().setId(1L).setUser(user).setBalance(new BigDecimal("100.00")).setStatus(CardStatus.ACTIVE);
+        toCard = new CardEntity().setId(2L).setUser(user).setBalance(new BigDecimal("50.00")).setStatus(CardStatus.ACTIVE);
+        transferDTO = new TransferDTO().setUserId(5L).setFromCardId(1L).setToCardId(2L).setAmount(new BigDecimal("10.00"));
+        overdraftDTO = new TransferDTO().setUserId(5L).setFromCardId(1L).setToCardId(2L).setAmount(new BigDecimal("1000.00"));
+    }
+
+    @Benchmark
+    public CardEntity allChecksPass() {
+        validate(transferDTO);
+        return fromCard;
+    }
+
+    @Benchmark
+    public TransferException insufficientBalance() {
+        try {
+            validate(overdraftDTO);
+            throw new IllegalStateException("Проверка баланса не отклонила перевод");
+        } catch (TransferException e) {
+            return e;
+        }
+    }
+
+    private void validate(TransferDTO dto) {
+        CardValidationUtil.validateSameUserTransfer(fromCard, toCard);
+        CardValidationUtil.validateCardsBelongToUser(dto, fromCard, toCard);
+        CardValidationUtil.validateStatusesCards(fromCard, toCard);
+        CardValidationUtil.validateBalanceCard(dto, fromCard, toCard);
+    }
+}
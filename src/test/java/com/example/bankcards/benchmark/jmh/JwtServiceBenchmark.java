@@ -0,0 +1,55 @@
+package com.example.bankcards.benchmark.jmh;
+
+import com.example.bankcards.security.jwt.JwtService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Выпуск и проверка токена в JwtService: вход пользователя и разбор токена без кэша.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtServiceBenchmark {
+    private static final String SECRET = "c362b68d0793bd37b7b5252f250d4abbe02e671cd98d725d73d63bfd2ca3bda3417c7443";
+
+    private JwtService jwtService;
+    private String token;
+    private String forgedToken;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService(null);
+        jwtService.jwtSecret = SECRET;
+        jwtService.init();
+        token = jwtService.generateJwtToken("user@example.com", "ROLE_USER");
+        forgedToken = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateJwtToken("user@example.com", "ROLE_USER");
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwtService.validateJwtToken(token);
+    }
+
+    @Benchmark
+    public boolean validateForgedToken() {
+        return jwtService.validateJwtToken(forgedToken);
+    }
+
+    @Benchmark
+    public String emailFromToken() {
+        return jwtService.getEmailFromToken(token);
+    }
+}
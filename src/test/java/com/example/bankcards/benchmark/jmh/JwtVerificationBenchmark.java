@@ -0,0 +1,60 @@
+package com.example.bankcards.benchmark.jmh;
+
+import com.example.bankcards.security.jwt.JwtClaims;
+import com.example.bankcards.security.jwt.JwtService;
+import com.example.bankcards.security.jwt.JwtTokenCache;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость обработки токена в JwtFilter на один запрос: прежняя схема (новый ключ и парсер
+ * на каждый вызов, токен разбирается дважды), один verify с готовым парсером и попадание в кэш токенов.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtVerificationBenchmark {
+    private static final String SECRET = "c362b68d0793bd37b7b5252f250d4abbe02e671cd98d725d73d63bfd2ca3bda3417c7443";
+
+    private JwtService jwtService;
+    private JwtTokenCache jwtTokenCache;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService(null);
+        jwtService.jwtSecret = SECRET;
+        jwtService.init();
+        token = jwtService.generateJwtToken("user@example.com", "ROLE_USER");
+        jwtTokenCache = new JwtTokenCache(true, 10_000);
+        jwtTokenCache.put(token, jwtService.verify(token));
+    }
+
+    @Benchmark
+    public String parseTwiceWithNewParser() {
+        Jwts.parser().verifyWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET))).build()
+                .parseSignedClaims(token).getPayload();
+        return Jwts.parser().verifyWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET))).build()
+                .parseSignedClaims(token).getPayload().getSubject();
+    }
+
+    @Benchmark
+    public JwtClaims verifyOnce() {
+        return jwtService.verify(token);
+    }
+
+    @Benchmark
+    public JwtClaims cachedToken() {
+        return jwtTokenCache.get(token);
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.bankcards.benchmark.jmh;
+
+import com.example.bankcards.BANK_RESTApplication;
+import com.example.bankcards.dto.Transfer.TransferDTO;
+import com.example.bankcards.dto.Transfer.TransferResponseDTO;
+import com.example.bankcards.entity.CardEntity;
+import com.example.bankcards.entity.UserEntity;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.RoleUsers;
+import com.example.bankcards.exception.transfer.TransferException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.TransferService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TransferService.transfer на встроенной H2 (профиль test) без HTTP-слоя: блокировка карт,
+ * проверки, запись перевода и фиксация. Контекст Spring поднимается один раз на форк.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TransferServiceBenchmark {
+    private static final int WARMUP_TRANSFERS = 20_000;
+
+    @Param({"LOCKING", "DIRECT", "LEDGER"})
+    public String mode;
+
+    private ConfigurableApplicationContext context;
+    private TransferService transferService;
+    private TransferDTO transferDTO;
+    private TransferDTO overdraftDTO;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(BANK_RESTApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .run("--transfer.mode=" + mode,
+                        "--spring.datasource.url=jdbc:h2:mem:jmh-transfer-" + mode + ";DB_CLOSE_DELAY=-1;MODE=MySQL",
+                        "--ledger.journal-dir=target/jmh-ledger-" + System.nanoTime(),
+                        // вывод в консоль через канал JMH дороже самого перевода: SQL, отказы проверок и аудит не пишутся
+                        "--debug=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.org.hibernate.SQL=WARN",
+                        "--logging.level.com.example.bankcards=OFF",
+                        "--logging.level.AUDIT=OFF");
+        transferService = context.getBean(TransferService.class);
+
+        UserEntity user = context.getBean(UserRepository.class)
+                .save(new UserEntity().setEmail("jmh@test.com").setRole(RoleUsers.ROLE_USER));
+        CardRepository cardRepository = context.getBean(CardRepository.class);
+        Long fromCardId = cardRepository.save(newCard(user, "5000000000000001")).getId();
+        Long toCardId = cardRepository.save(newCard(user, "5000000000000002")).getId();
+        transferDTO = new TransferDTO().setUserId(user.getId()).setFromCardId(fromCardId).setToCardId(toCardId)
+                .setAmount(new BigDecimal("0.01"));
+        overdraftDTO = new TransferDTO().setUserId(user.getId()).setFromCardId(fromCardId).setToCardId(toCardId)
+                .setAmount(new BigDecimal("100000000000.00"));
+
+        // путь перевода проходит через прокси Spring и Hibernate и компилируется дольше трех итераций прогрева JMH
+        for (int i = 0; i < WARMUP_TRANSFERS; i++) {
+            transferService.transfer(transferDTO);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public TransferResponseDTO transfer() {
+        return transferService.transfer(transferDTO);
+    }
+
+    @Benchmark
+    public TransferException rejectedTransfer() {
+        try {
+            transferService.transfer(overdraftDTO);
+            throw new IllegalStateException("Перевод сверх баланса не отклонен");
+        } catch (TransferException e) {
+            return e;
+        }
+    }
+
+    private static CardEntity newCard(UserEntity user, String number) {
+        return new CardEntity()
+                .setNumber(number)
+                .setUser(user)
+                .setBalance(new BigDecimal("1000000000.00"))
+                .setStatus(CardStatus.ACTIVE)
+                .setExpiryDate(LocalDate.now().plusYears(1));
+    }
+}
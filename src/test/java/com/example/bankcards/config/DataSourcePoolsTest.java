@@ -0,0 +1,145 @@
+package com.example.bankcards.config;
+
+import com.example.bankcards.dto.Transfer.TransferDTO;
+import com.example.bankcards.dto.Transfer.TransferResponseDTO;
+import com.example.bankcards.entity.CardEntity;
+import com.example.bankcards.entity.UserEntity;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.RoleUsers;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.TransferService;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@SpringBootTest(properties = {
+        "datasource.pools.enabled=true",
+        "spring.datasource.url=jdbc:h2:mem:pools;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "datasource.pools.transfer.pool-name=transfer",
+        // одно соединение: генератор id не должен ждать соединения, которое держит сам перевод
+        "datasource.pools.transfer.maximum-pool-size=1",
+        "datasource.pools.transfer.connection-timeout=2000",
+        "datasource.pools.read.pool-name=read",
+        "datasource.pools.read.maximum-pool-size=2",
+        "datasource.pools.nested.pool-name=nested",
+        "datasource.pools.nested.maximum-pool-size=1",
+        "datasource.pools.nested.connection-timeout=2000"
+})
+@ActiveProfiles("test")
+class DataSourcePoolsTest {
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TransferRepository transferRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    @Qualifier("transferDataSource")
+    private HikariDataSource transferDataSource;
+
+    @Autowired
+    @Qualifier("readDataSource")
+    private HikariDataSource readDataSource;
+
+    @Autowired
+    @Qualifier("nestedDataSource")
+    private HikariDataSource nestedDataSource;
+
+    private UserEntity user;
+    private CardEntity fromCard;
+    private CardEntity toCard;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new UserEntity().setEmail("pools@test.com").setRole(RoleUsers.ROLE_USER));
+        fromCard = cardRepository.save(newCard("1111000011110000"));
+        toCard = cardRepository.save(newCard("2222000022220000"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        transferRepository.deleteAll();
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void transfer_AllocatesIdOutsideSingleConnectionTransferPool() {
+        TransferResponseDTO response = transferService.transfer(new TransferDTO()
+                .setUserId(user.getId())
+                .setFromCardId(fromCard.getId())
+                .setToCardId(toCard.getId())
+                .setAmount(BigDecimal.ONE));
+
+        assertNotNull(response.getId());
+        assertEquals(new BigDecimal("99.00"), cardRepository.findWithoutLockById(fromCard.getId()).orElseThrow().getBalance());
+        assertEquals(1, transferDataSource.getHikariPoolMXBean().getTotalConnections());
+        assertEquals(1, nestedDataSource.getHikariPoolMXBean().getTotalConnections());
+    }
+
+    @Test
+    void readOnlyTransaction_UsesReadPool() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        List<Integer> activeConnections = readOnly.execute(status -> {
+            cardRepository.findWithoutLockById(fromCard.getId()).orElseThrow();
+            return List.of(readDataSource.getHikariPoolMXBean().getActiveConnections(),
+                    transferDataSource.getHikariPoolMXBean().getActiveConnections());
+        });
+
+        assertEquals(List.of(1, 0), activeConnections);
+    }
+
+    @Test
+    void poolMetrics_PublishedPerPool() throws SQLException {
+        cardRepository.findWithoutLockById(fromCard.getId()).orElseThrow();
+        // пул запускается и регистрирует метрики при первом соединении
+        nestedDataSource.getConnection().close();
+
+        for (String pool : List.of("transfer", "read", "nested")) {
+            assertNotNull(meterRegistry.find("hikaricp.connections.active").tag("pool", pool).gauge(), pool);
+            assertNotNull(meterRegistry.find("hikaricp.connections.pending").tag("pool", pool).gauge(), pool);
+            assertNotNull(meterRegistry.find("hikaricp.connections.acquire").tag("pool", pool).timer(), pool);
+        }
+    }
+
+    private CardEntity newCard(String number) {
+        return new CardEntity()
+                .setNumber(number)
+                .setUser(user)
+                .setBalance(new BigDecimal("100.00"))
+                .setStatus(CardStatus.ACTIVE)
+                .setExpiryDate(LocalDate.now().plusYears(1));
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.bankcards.config;
+
+import org.hibernate.dialect.MySQL8Dialect;
+import org.hibernate.dialect.MySQLSqlAstTranslator;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.sql.ast.SqlAstTranslator;
+import org.hibernate.sql.ast.SqlAstTranslatorFactory;
+import org.hibernate.sql.ast.spi.StandardSqlAstTranslatorFactory;
+import org.hibernate.sql.ast.tree.Statement;
+import org.hibernate.sql.exec.spi.JdbcOperation;
+
+/**
+ * Диалект MySQL для H2 в режиме MySQL: H2 не поддерживает FOR SHARE,
+ * поэтому разделяемая блокировка строки в тестах берется как FOR UPDATE.
+ */
+public class H2MySQLDialect extends MySQL8Dialect {
+
+    @Override
+    public SqlAstTranslatorFactory getSqlAstTranslatorFactory() {
+        return new StandardSqlAstTranslatorFactory() {
+            @Override
+            protected <T extends JdbcOperation> SqlAstTranslator<T> buildTranslator(SessionFactoryImplementor sessionFactory,
+                                                                                   Statement statement) {
+                return new MySQLSqlAstTranslator<>(sessionFactory, statement) {
+                    @Override
+                    protected String getForShare(int timeoutMillis) {
+                        return " for update";
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public String getReadLockString(int timeout) {
+        return getWriteLockString(timeout);
+    }
+
+    @Override
+    public String getReadLockString(String aliases, int timeout) {
+        return getWriteLockString(aliases, timeout);
+    }
+}
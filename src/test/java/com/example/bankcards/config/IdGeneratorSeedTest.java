@@ -0,0 +1,84 @@
+package com.example.bankcards.config;
+
+import com.example.bankcards.entity.CardEntity;
+import com.example.bankcards.entity.TransferEntity;
+import com.example.bankcards.entity.UserEntity;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.RoleUsers;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.repository.UserRepository;
+import liquibase.Liquibase;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Генераторы id на базе с существующими строками: миграции после 1.1 накатываются на заполненные таблицы.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:id-generator-seed;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "spring.liquibase.enabled=false"
+})
+@ActiveProfiles("test")
+class IdGeneratorSeedTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TransferRepository transferRepository;
+
+    @Test
+    void firstGeneratedIds_ContinueAfterExistingRows() throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            Database database = DatabaseFactory.getInstance().findCorrectDatabaseImplementation(new JdbcConnection(connection));
+            ClassLoaderResourceAccessor resourceAccessor = new ClassLoaderResourceAccessor();
+            new Liquibase("db/changelog/v1.0/1.1-create-tables.xml", resourceAccessor, database).update("");
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("INSERT INTO users (id, email, role) VALUES (100, 'seed@test.com', 'ROLE_USER')");
+                statement.executeUpdate("INSERT INTO cards (id, number, user_id, balance, status) VALUES (200, '0000000000000001', 100, 0, 'ACTIVE')");
+                statement.executeUpdate("INSERT INTO transfers (id, transfer_time, from_card_id, to_card_id, amount) VALUES (300, CURRENT_TIMESTAMP, 200, 200, 1)");
+            }
+            new Liquibase("db/changelog/db.changelog-master.yaml", resourceAccessor, database).update("");
+        }
+
+        UserEntity user = userRepository.save(new UserEntity().setEmail("first@test.com").setRole(RoleUsers.ROLE_USER));
+        CardEntity card = cardRepository.save(new CardEntity()
+                .setNumber("0000000000000002")
+                .setUser(user)
+                .setBalance(BigDecimal.ZERO)
+                .setStatus(CardStatus.ACTIVE)
+                .setExpiryDate(LocalDate.now().plusYears(1)));
+        TransferEntity transferEntity = new TransferEntity();
+        transferEntity.setFromCard(card);
+        transferEntity.setToCard(card);
+        transferEntity.setAmount(BigDecimal.ONE);
+        transferEntity.setTransferTime(LocalDateTime.now());
+        transferRepository.save(transferEntity);
+
+        assertEquals(101L, user.getId());
+        assertEquals(201L, card.getId());
+        assertEquals(301L, transferEntity.getId());
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.bankcards.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLFeatureNotSupportedException;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NestedConnectionDataSourceTest {
+
+    @Mock
+    private DataSource targetDataSource;
+
+    @Mock
+    private DataSource nestedDataSource;
+
+    @Mock
+    private Connection targetConnection;
+
+    @Test
+    void getConnectionWithCredentials_UsesTargetThenNestedPool() throws Exception {
+        NestedConnectionDataSource dataSource = new NestedConnectionDataSource(targetDataSource, nestedDataSource);
+        when(targetDataSource.getConnection("user", "secret")).thenReturn(targetConnection);
+
+        Connection outer = dataSource.getConnection("user", "secret");
+        dataSource.getConnection("user", "secret");
+        outer.close();
+        dataSource.getConnection("user", "secret");
+
+        verify(targetDataSource, times(2)).getConnection("user", "secret");
+        verify(nestedDataSource, times(1)).getConnection("user", "secret");
+        verify(targetConnection).close();
+    }
+
+    @Test
+    void getConnectionWithCredentials_PropagatesPoolSqlException() throws Exception {
+        NestedConnectionDataSource dataSource = new NestedConnectionDataSource(targetDataSource, nestedDataSource);
+        when(targetDataSource.getConnection("user", "secret")).thenThrow(new SQLFeatureNotSupportedException());
+
+        assertThrows(SQLFeatureNotSupportedException.class, () -> dataSource.getConnection("user", "secret"));
+        when(targetDataSource.getConnection()).thenReturn(targetConnection);
+        dataSource.getConnection();
+        verify(nestedDataSource, never()).getConnection();
+    }
+}
@@ -2,6 +2,7 @@ package com.example.bankcards.controller;
 
 
 import com.example.bankcards.dto.Card.*;
+import com.example.bankcards.dto.Pagination.CursorPageDTO;
 import com.example.bankcards.entity.enums.BlockRequestStatus;
 import com.example.bankcards.entity.enums.CardStatus;
 import com.example.bankcards.security.jwt.JwtFilter;
@@ -138,6 +139,56 @@ public class CardControllerTest {
                 .andExpect(jsonPath("$.id").exists());
     }
 
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void getPendingBlockRequests_ShouldReturnCursorPage() throws Exception {
+        CardResponseRequestStatusDTO statusDTO = new CardResponseRequestStatusDTO()
+                .setId(1L)
+                .setBlockRequestStatus(BlockRequestStatus.PENDING);
+        CursorPageDTO<CardResponseRequestStatusDTO> page = new CursorPageDTO<CardResponseRequestStatusDTO>()
+                .setContent(Collections.singletonList(statusDTO))
+                .setSize(20)
+                .setHasNext(false);
+
+        given(cardService.getPendingBlockRequests(null, 20)).willReturn(page);
+
+        mockMvc.perform(get("/api/cards/block-requests/pending"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].blockRequestStatus").value("PENDING"));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void decideBlockRequests_ShouldReturnOk() throws Exception {
+        CardBlockRequestDecisionDTO request = new CardBlockRequestDecisionDTO()
+                .setCardIds(List.of(1L, 2L))
+                .setDecision(BlockRequestStatus.APPROVED);
+        given(cardService.decideBlockRequests(any(CardBlockRequestDecisionDTO.class)))
+                .willReturn(new CardBlockRequestDecisionResponseDTO()
+                        .setDecision(BlockRequestStatus.APPROVED)
+                        .setRequested(2)
+                        .setUpdated(2));
+
+        mockMvc.perform(patch("/api/cards/block-requests")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated").value(2));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void decideBlockRequests_EmptyList_ShouldReturnBadRequest() throws Exception {
+        CardBlockRequestDecisionDTO request = new CardBlockRequestDecisionDTO()
+                .setCardIds(List.of())
+                .setDecision(BlockRequestStatus.REJECTED);
+
+        mockMvc.perform(patch("/api/cards/block-requests")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @WithMockUser(roles = "ADMIN")
     void setStatusCard_ShouldReturnOk() throws Exception {
@@ -179,6 +230,38 @@ public class CardControllerTest {
                 .andExpect(jsonPath("$.content[0].id").value(cardDTO.getId()));
     }
 
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void getAllCardsAfter_ShouldReturnCursorPage() throws Exception {
+        CardDTO cardDTO = new CardDTO()
+                .setId(1L)
+                .setMaskedNumber("**** **** **** 3456")
+                .setStatus(CardStatus.ACTIVE)
+                .setExpiryDate(LocalDate.now().plusYears(3));
+        CursorPageDTO<CardDTO> page = new CursorPageDTO<CardDTO>()
+                .setContent(Collections.singletonList(cardDTO))
+                .setSize(20)
+                .setHasNext(false);
+
+        given(cardService.getAllCardsAfter(null, 20)).willReturn(page);
+
+
+        mockMvc.perform(get("/api/cards/all/cursor"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(cardDTO.getId()))
+                .andExpect(jsonPath("$.hasNext").value(false));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void getAllCardsAfter_InvalidCursor_ShouldReturnBadRequest() throws Exception {
+        given(cardService.getAllCardsAfter("bad", 20)).willThrow(new IllegalArgumentException("Некорректный курсор страницы"));
+
+        mockMvc.perform(get("/api/cards/all/cursor")
+                        .param("after", "bad"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @WithMockUser(roles = "ADMIN")
     void getStatusByRequestStatus_ShouldReturnPageOfStatuses() throws Exception {
@@ -1,11 +1,18 @@
 package com.example.bankcards.controller;
 
 
+import com.example.bankcards.dto.Pagination.CursorPageDTO;
+import com.example.bankcards.dto.Transfer.TransferBatchDTO;
+import com.example.bankcards.dto.Transfer.TransferBatchItemResultDTO;
+import com.example.bankcards.dto.Transfer.TransferBatchResponseDTO;
 import com.example.bankcards.dto.Transfer.TransferDTO;
 import com.example.bankcards.dto.Transfer.TransferResponseDTO;
 import com.example.bankcards.exception.card.CardNotFoundException;
 import com.example.bankcards.exception.transfer.TransferException;
 import com.example.bankcards.security.jwt.JwtFilter;
+import com.example.bankcards.service.TransferExportFormat;
+import com.example.bankcards.service.TransferHistoryService;
+import com.example.bankcards.service.TransferIdempotencyService;
 import com.example.bankcards.service.TransferService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -17,12 +24,23 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(TransferController.class)
@@ -35,6 +53,12 @@ class TransferControllerTest {
     @MockBean
     private TransferService transferService;
 
+    @MockBean
+    private TransferIdempotencyService transferIdempotencyService;
+
+    @MockBean
+    private TransferHistoryService transferHistoryService;
+
     @MockBean
     private JwtFilter jwtFilter;
 
@@ -113,4 +137,111 @@ class TransferControllerTest {
                         .content(objectMapper.writeValueAsString(transferDTO)))
                 .andExpect(status().isBadRequest());
     }
-}
\ No newline at end of file
+
+    @Test
+    @WithMockUser(username = "user", roles = "USER")
+    void transferBatch_Success() throws Exception {
+        TransferBatchResponseDTO batchResponse = new TransferBatchResponseDTO()
+                .setSucceeded(1)
+                .setFailed(1)
+                .setResults(List.of(
+                        new TransferBatchItemResultDTO().setIndex(0).setSuccess(true).setStatus(200).setTransfer(responseDTO),
+                        new TransferBatchItemResultDTO().setIndex(1).setStatus(404).setError("Card not found")));
+        when(transferService.transferBatch(anyList())).thenReturn(batchResponse);
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .post("/api/transfer/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new TransferBatchDTO().setTransfers(List.of(transferDTO, transferDTO)))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.succeeded").value(1))
+                .andExpect(jsonPath("$.results[0].transfer.id").value(1L))
+                .andExpect(jsonPath("$.results[1].status").value(404));
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = "USER")
+    void transferBatch_InvalidItem() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders
+                        .post("/api/transfer/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new TransferBatchDTO().setTransfers(List.of(new TransferDTO())))))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = "USER")
+    void transfer_WithIdempotencyKey_UsesIdempotentPath() throws Exception {
+        when(transferIdempotencyService.transfer(eq("retry-1"), any(TransferDTO.class))).thenReturn(responseDTO);
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .post("/api/transfer")
+                        .header("Idempotency-Key", "retry-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(transferDTO)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1L));
+        verify(transferService, never()).transfer(any(TransferDTO.class));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void exportCardTransfers_StreamsNdjson() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2025, 1, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2025, 2, 1, 0, 0);
+        when(transferHistoryService.exportCardTransfers(eq(1L), eq(from), eq(to), eq(TransferExportFormat.NDJSON), any()))
+                .thenAnswer(invocation -> {
+                    OutputStream out = invocation.getArgument(4);
+                    out.write("{\"id\":1}\n{\"id\":2}\n".getBytes(StandardCharsets.UTF_8));
+                    return 2L;
+                });
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders
+                        .get("/api/transfer/export/cards/1")
+                        .param("from", "2025-01-01T00:00:00")
+                        .param("to", "2025-02-01T00:00:00"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/x-ndjson"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"card-1-transfers.ndjson\""))
+                .andExpect(content().string("{\"id\":1}\n{\"id\":2}\n"));
+        verify(transferHistoryService).checkCardExport(1L, from, to);
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void exportUserTransfers_InvalidRange_ReturnsBadRequest() throws Exception {
+        doThrow(new IllegalArgumentException("Начало периода должно быть раньше конца периода"))
+                .when(transferHistoryService).checkUserExport(eq(1L), any(), any());
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/api/transfer/export/users/1")
+                        .param("from", "2025-02-01T00:00:00")
+                        .param("to", "2025-01-01T00:00:00")
+                        .param("format", "CSV"))
+                .andExpect(status().isBadRequest());
+        verify(transferHistoryService, never()).exportUserTransfers(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @WithMockUser(username = "user", roles = "USER")
+    void getCardHistory_Success() throws Exception {
+        when(transferHistoryService.getCardHistory(1L, null, null, "MTAx", 2))
+                .thenReturn(new CursorPageDTO<TransferResponseDTO>()
+                        .setContent(List.of(responseDTO))
+                        .setSize(2)
+                        .setHasNext(false));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/api/transfer/history/cards/1")
+                        .param("after", "MTAx")
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(1L))
+                .andExpect(jsonPath("$.content[0].fromCard").value(1L))
+                .andExpect(jsonPath("$.hasNext").value(false));
+    }
+}
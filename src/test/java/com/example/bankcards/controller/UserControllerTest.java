@@ -1,5 +1,6 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.Pagination.CursorPageDTO;
 import com.example.bankcards.dto.User.UserDTO;
 import com.example.bankcards.entity.enums.RoleUsers;
 import com.example.bankcards.security.jwt.JwtFilter;
@@ -60,4 +61,28 @@ public class UserControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.content[0].email").value(userDTO.getEmail()));
     }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void getAllUsersAfter_ShouldReturnCursorPage() throws Exception {
+        UserDTO userDTO = new UserDTO()
+                .setEmail("user@example.com")
+                .setRole(RoleUsers.ROLE_USER)
+                .setFullName("Userov");
+        CursorPageDTO<UserDTO> page = new CursorPageDTO<UserDTO>()
+                .setContent(Collections.singletonList(userDTO))
+                .setSize(10)
+                .setHasNext(true)
+                .setNextCursor("MQ");
+
+        given(userService.getAllUsersAfter("MA", 10)).willReturn(page);
+
+
+        mockMvc.perform(get("/api/users/all/cursor")
+                        .param("after", "MA")
+                        .param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].email").value(userDTO.getEmail()))
+                .andExpect(jsonPath("$.nextCursor").value("MQ"));
+    }
 }
@@ -0,0 +1,321 @@
+package com.example.bankcards.ledger;
+
+import com.example.bankcards.audit.AuditEventLog;
+import com.example.bankcards.dto.Transfer.TransferBatchResponseDTO;
+import com.example.bankcards.dto.Transfer.TransferDTO;
+import com.example.bankcards.dto.Transfer.TransferResponseDTO;
+import com.example.bankcards.entity.CardEntity;
+import com.example.bankcards.entity.UserEntity;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.RoleUsers;
+import com.example.bankcards.exception.transfer.TransferException;
+import com.example.bankcards.mappers.CardMapper;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.CardBalanceStripeService;
+import com.example.bankcards.service.CardCache;
+import com.example.bankcards.service.TransferService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {"transfer.mode=LEDGER", "ledger.flush-interval-ms=3600000"})
+@ActiveProfiles("test")
+class LedgerEngineTest {
+    private static final int THREADS = 4;
+    private static final int TRANSFERS_PER_THREAD = 100;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000.00");
+
+    @DynamicPropertySource
+    static void journalDir(DynamicPropertyRegistry registry) {
+        registry.add("ledger.journal-dir", () -> {
+            try {
+                return Files.createTempDirectory("ledger-test").toString();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    @TempDir
+    Path replayDirectory;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private LedgerWriteBehind writeBehind;
+
+    @Autowired
+    private LedgerEngine ledgerEngine;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private CardBalanceStripeService cardBalanceStripeService;
+
+    @Autowired
+    private CardCache cardCache;
+
+    @Autowired
+    private CardMapper cardMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransferRepository transferRepository;
+
+    @Autowired
+    private AuditEventLog auditEventLog;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private UserEntity user;
+    private CardEntity cardA;
+    private CardEntity cardB;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new UserEntity()
+                .setEmail("ledger@test.com")
+                .setRole(RoleUsers.ROLE_USER));
+        cardA = cardRepository.save(newCard("1111222233334444"));
+        cardB = cardRepository.save(newCard("5555666677778888"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        writeBehind.flush();
+        transferRepository.deleteAll();
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentTransfers_ConserveBalancesAfterWriteBehind() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        for (int t = 0; t < THREADS; t++) {
+            boolean forward = t % 2 == 0;
+            executor.submit(() -> {
+                try {
+                    for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                        TransferResponseDTO response = transferService.transfer(transfer(
+                                forward ? cardA : cardB, forward ? cardB : cardA, BigDecimal.ONE));
+                        assertNotNull(response.getLedgerSeq());
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES), "Переводы не завершились вовремя");
+        assertTrue(failures.isEmpty(), () -> "Ошибки при переводах: " + failures);
+
+        writeBehind.flush();
+
+        assertEquals(0, writeBehind.getPending());
+        assertEquals(THREADS * TRANSFERS_PER_THREAD, transferRepository.count());
+        assertEquals(0, INITIAL_BALANCE.compareTo(balance(cardA)));
+        assertEquals(0, INITIAL_BALANCE.compareTo(balance(cardB)));
+    }
+
+    @Test
+    void racingDebitsAndCredits_OnNearZeroBalance_KeepMemoryAndDatabaseInStep() throws InterruptedException {
+        CardEntity nearZero = cardRepository.save(newCard("9999888877776666").setBalance(new BigDecimal("0.02")));
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        for (int t = 0; t < THREADS; t++) {
+            boolean debit = t % 2 == 0;
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                        try {
+                            transferService.transfer(debit
+                                    ? transfer(nearZero, cardA, new BigDecimal("0.03"))
+                                    : transfer(cardA, nearZero, new BigDecimal("0.01")));
+                        } catch (TransferException e) {
+                            assertEquals(400, e.getHttpStatus());
+                        }
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES), "Переводы не завершились вовремя");
+        assertTrue(failures.isEmpty(), () -> "Ошибки при переводах: " + failures);
+
+        writeBehind.flush();
+
+        BigDecimal stored = balance(nearZero);
+        assertTrue(stored.signum() >= 0, () -> "Баланс в базе отрицательный: " + stored);
+        assertEquals(0, stored.compareTo(ledgerEngine.balance(nearZero.getId())));
+        assertEquals(0, INITIAL_BALANCE.add(new BigDecimal("0.02")).compareTo(stored.add(balance(cardA))));
+    }
+
+    @Test
+    void transfer_RejectsInsufficientBalanceWithoutJournalRecord() {
+        TransferException exception = assertThrows(TransferException.class,
+                () -> transferService.transfer(transfer(cardA, cardB, new BigDecimal("1000.01"))));
+
+        assertEquals(400, exception.getHttpStatus());
+        writeBehind.flush();
+        assertEquals(0, transferRepository.count());
+        assertEquals(0, INITIAL_BALANCE.compareTo(balance(cardA)));
+    }
+
+    @Test
+    void transferBatch_SpendsCreditOfEarlierItemAfterItIsJournaled() {
+        TransferBatchResponseDTO response = transferService.transferBatch(List.of(
+                transfer(cardA, cardB, new BigDecimal("300.00")),
+                transfer(cardB, cardA, new BigDecimal("1200.00")),
+                transfer(cardA, cardB, new BigDecimal("5000.00"))));
+
+        assertEquals(2, response.getSucceeded());
+        assertEquals(400, response.getResults().get(2).getStatus());
+        assertEquals(0, new BigDecimal("1900.00").compareTo(ledgerEngine.balance(cardA.getId())));
+        assertEquals(0, new BigDecimal("100.00").compareTo(ledgerEngine.balance(cardB.getId())));
+        writeBehind.flush();
+        assertEquals(2, transferRepository.count());
+        assertEquals(0, new BigDecimal("100.00").compareTo(balance(cardB)));
+    }
+
+    @Test
+    void start_ReplaysJournalRecordsMissingFromDatabase() throws Exception {
+        long checkpoint = writeBehind.checkpoint();
+        long timestamp = System.currentTimeMillis();
+        try (LedgerJournal journal = new LedgerJournal(replayDirectory, 1000)) {
+            journal.open(checkpoint);
+            journal.write(List.of(
+                    new LedgerRecord(checkpoint + 1, cardA.getId(), cardB.getId(), user.getId(), 25000, timestamp),
+                    new LedgerRecord(checkpoint + 2, cardB.getId(), cardA.getId(), user.getId(), 5000, timestamp)));
+        }
+
+        LedgerEngine engine = new LedgerEngine(cardRepository, cardBalanceStripeService, cardCache, cardMapper,
+                writeBehind, new SimpleMeterRegistry(), replayDirectory, 1000, 16, 16);
+        engine.start();
+        try {
+            assertEquals(2, transferRepository.count());
+            assertEquals(checkpoint + 2, writeBehind.getFlushedSeq());
+            assertEquals(0, new BigDecimal("800.00").compareTo(balance(cardA)));
+            assertEquals(0, new BigDecimal("1200.00").compareTo(balance(cardB)));
+
+            LedgerRecord record = engine.transfer(transfer(cardA, cardB, new BigDecimal("100.00")));
+            assertEquals(checkpoint + 3, record.seq());
+            assertEquals(0, new BigDecimal("700.00").compareTo(engine.balance(cardA.getId())));
+        } finally {
+            engine.stop();
+        }
+        assertEquals(0, new BigDecimal("700.00").compareTo(balance(cardA)));
+    }
+
+    @Test
+    void journalWriteFailure_RefundsDebitAndStopsAcceptingTransfers() throws Exception {
+        LedgerEngine engine = new LedgerEngine(cardRepository, cardBalanceStripeService, cardCache, cardMapper,
+                writeBehind, new SimpleMeterRegistry(), replayDirectory, 1, 16, 16);
+        engine.start();
+        try {
+            LedgerRecord record = engine.transfer(transfer(cardA, cardB, new BigDecimal("100.00")));
+            // следующая пачка открывает новый сегмент, а его имя уже занято каталогом
+            Files.createDirectory(replayDirectory.resolve(String.format("ledger-%020d.log", record.seq() + 1)));
+
+            TransferException failed = assertThrows(TransferException.class,
+                    () -> engine.transfer(transfer(cardA, cardB, new BigDecimal("50.00"))));
+            assertEquals(503, failed.getHttpStatus());
+            assertEquals(0, new BigDecimal("900.00").compareTo(engine.balance(cardA.getId())));
+            assertEquals(0, new BigDecimal("1100.00").compareTo(engine.balance(cardB.getId())));
+
+            TransferException rejected = assertThrows(TransferException.class,
+                    () -> engine.transfer(transfer(cardA, cardB, new BigDecimal("10.00"))));
+            assertEquals(503, rejected.getHttpStatus());
+            assertEquals(0, new BigDecimal("900.00").compareTo(engine.balance(cardA.getId())));
+        } finally {
+            engine.stop();
+        }
+    }
+
+    @Test
+    void poisonedWriteBehindBatch_StopsEngineAfterMaxAttempts() throws Exception {
+        LedgerWriteBehind poisoned = new LedgerWriteBehind(cardRepository, transferRepository, cardCache,
+                auditEventLog, transactionTemplate, new SimpleMeterRegistry(), 16, 2);
+        LedgerEngine engine = new LedgerEngine(cardRepository, cardBalanceStripeService, cardCache, cardMapper,
+                poisoned, new SimpleMeterRegistry(), replayDirectory, 1000, 16, 16);
+        engine.start();
+        try {
+            long seq = engine.transfer(transfer(cardA, cardB, new BigDecimal("100.00"))).seq();
+            // карта получателя удалена после записи в журнал
+            poisoned.enqueue(List.of(new LedgerRecord(seq + 1000, cardA.getId(), Long.MAX_VALUE, user.getId(), 100, System.currentTimeMillis())));
+
+            poisoned.flush();
+            assertNull(poisoned.getFailure());
+            engine.transfer(transfer(cardA, cardB, BigDecimal.ONE));
+
+            poisoned.flush();
+            assertNotNull(poisoned.getFailure());
+            TransferException rejected = assertThrows(TransferException.class,
+                    () -> engine.transfer(transfer(cardA, cardB, BigDecimal.ONE)));
+            assertEquals(503, rejected.getHttpStatus());
+            assertEquals(0, transferRepository.count());
+            assertEquals(0, INITIAL_BALANCE.compareTo(balance(cardA)));
+        } finally {
+            engine.stop();
+        }
+    }
+
+    private BigDecimal balance(CardEntity card) {
+        return cardRepository.findById(card.getId()).orElseThrow().getBalance();
+    }
+
+    private TransferDTO transfer(CardEntity from, CardEntity to, BigDecimal amount) {
+        return new TransferDTO()
+                .setUserId(user.getId())
+                .setFromCardId(from.getId())
+                .setToCardId(to.getId())
+                .setAmount(amount);
+    }
+
+    private CardEntity newCard(String number) {
+        return new CardEntity()
+                .setNumber(number)
+                .setUser(user)
+                .setBalance(INITIAL_BALANCE)
+                .setStatus(CardStatus.ACTIVE)
+                .setExpiryDate(LocalDate.now().plusYears(1));
+    }
+}
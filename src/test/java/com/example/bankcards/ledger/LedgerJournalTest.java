@@ -0,0 +1,112 @@
+package com.example.bankcards.ledger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LedgerJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replay_ReturnsRecordsAcrossSegmentsInOrder() throws IOException {
+        try (LedgerJournal journal = new LedgerJournal(directory, 2)) {
+            journal.open(0);
+            journal.write(records(1, 2));
+            journal.write(records(3, 4));
+            journal.write(records(5, 7));
+        }
+        assertEquals(3, segments().size());
+
+        List<LedgerRecord> replayed = new ArrayList<>();
+        long lastSeq = new LedgerJournal(directory, 2).replay(2, replayed::add);
+
+        assertEquals(7, lastSeq);
+        assertEquals(List.of(3L, 4L, 5L, 6L, 7L), replayed.stream().map(LedgerRecord::seq).toList());
+        assertEquals(records(3, 3).get(0), replayed.get(0));
+    }
+
+    @Test
+    void replay_StopsAtTornRecord() throws IOException {
+        try (LedgerJournal journal = new LedgerJournal(directory, 100)) {
+            journal.open(0);
+            journal.write(records(1, 3));
+        }
+        Path segment = segments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(3L * LedgerJournal.RECORD_SIZE - 5);
+        }
+
+        List<LedgerRecord> replayed = new ArrayList<>();
+        long lastSeq = new LedgerJournal(directory, 100).replay(0, replayed::add);
+
+        assertEquals(2, lastSeq);
+        assertEquals(2, replayed.size());
+    }
+
+    @Test
+    void discardUnsynced_TruncatesBytesOfFailedWrite() throws IOException {
+        try (LedgerJournal journal = new LedgerJournal(directory, 100)) {
+            journal.open(0);
+            journal.write(records(1, 2));
+            try (FileChannel channel = FileChannel.open(segments().get(0), StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                channel.write(ByteBuffer.wrap(new byte[LedgerJournal.RECORD_SIZE + 7]));
+            }
+
+            assertTrue(journal.discardUnsynced());
+            assertEquals(2L * LedgerJournal.RECORD_SIZE, Files.size(segments().get(0)));
+
+            journal.write(records(3, 3));
+        }
+
+        List<LedgerRecord> replayed = new ArrayList<>();
+        long lastSeq = new LedgerJournal(directory, 100).replay(0, replayed::add);
+
+        assertEquals(3, lastSeq);
+        assertEquals(records(1, 3), replayed);
+    }
+
+    @Test
+    void deleteSegmentsUpTo_KeepsSegmentsWithUnflushedRecords() throws IOException {
+        try (LedgerJournal journal = new LedgerJournal(directory, 2)) {
+            journal.open(0);
+            journal.write(records(1, 2));
+            journal.write(records(3, 4));
+            journal.write(records(5, 6));
+
+            journal.deleteSegmentsUpTo(3);
+            assertEquals(2, segments().size());
+
+            journal.deleteSegmentsUpTo(6);
+            assertEquals(1, segments().size());
+            assertTrue(segments().get(0).getFileName().toString().endsWith("00005.log"));
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static List<LedgerRecord> records(long fromSeq, long toSeq) {
+        List<LedgerRecord> records = new ArrayList<>();
+        for (long seq = fromSeq; seq <= toSeq; seq++) {
+            records.add(new LedgerRecord(seq, 1L, 2L, 3L, seq * 100, 1_700_000_000_000L + seq));
+        }
+        return records;
+    }
+}
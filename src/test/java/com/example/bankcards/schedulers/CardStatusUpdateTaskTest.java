@@ -0,0 +1,123 @@
+package com.example.bankcards.schedulers;
+
+import com.example.bankcards.entity.CardEntity;
+import com.example.bankcards.entity.UserEntity;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.RoleUsers;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.SchedulerLockRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.SchedulerLockService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CardStatusUpdateTaskTest {
+
+    @Autowired
+    private CardStatusUpdateTask cardStatusUpdateTask;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SchedulerLockRepository schedulerLockRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private UserEntity user;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new UserEntity().setEmail("expiry@test.com").setRole(RoleUsers.ROLE_USER));
+        ReflectionTestUtils.setField(cardStatusUpdateTask, "chunkSize", 3);
+        schedulerLockRepository.deleteAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.setField(cardStatusUpdateTask, "chunkSize", 1000);
+        schedulerLockRepository.deleteAll();
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void updateExpiredCards_ExpiresOnlyOverdueCardsInChunks() {
+        for (int i = 0; i < 7; i++) {
+            cardRepository.save(newCard("1000" + i, i % 2 == 0 ? CardStatus.ACTIVE : CardStatus.BLOCK, LocalDate.now().minusDays(1)));
+        }
+        cardRepository.save(newCard("2000", CardStatus.ACTIVE, LocalDate.now().plusDays(1)));
+        cardRepository.save(newCard("3000", CardStatus.ACTIVE, LocalDate.now()));
+
+        cardStatusUpdateTask.updateExpiredCards();
+
+        Map<CardStatus, Long> statuses = cardRepository.findAll().stream()
+                .collect(Collectors.groupingBy(CardEntity::getStatus, Collectors.counting()));
+        assertEquals(7L, statuses.get(CardStatus.EXPIRED));
+        assertEquals(2L, statuses.get(CardStatus.ACTIVE));
+    }
+
+    @Test
+    void updateExpiredCards_SkipsPartitionsLeasedByAnotherNode() {
+        for (int i = 0; i < 8; i++) {
+            cardRepository.save(newCard("4000" + i, CardStatus.ACTIVE, LocalDate.now().minusDays(1)));
+        }
+        SchedulerLockService otherNode = new SchedulerLockService(schedulerLockRepository, transactionTemplate, "other-node");
+        otherNode.tryAcquire("card-expiry-0", Duration.ofMinutes(10));
+
+        cardStatusUpdateTask.updateExpiredCards();
+
+        List<CardEntity> active = cardRepository.findAll().stream()
+                .filter(card -> card.getStatus() == CardStatus.ACTIVE)
+                .toList();
+        assertFalse(active.isEmpty());
+        assertTrue(active.stream().allMatch(card -> card.getId() % 4 == 0));
+
+        otherNode.release("card-expiry-0", false);
+        cardStatusUpdateTask.resumeUnfinishedPartitions();
+
+        assertTrue(cardRepository.findAll().stream().allMatch(card -> card.getStatus() == CardStatus.EXPIRED));
+    }
+
+    @Test
+    void updateExpiredCards_CompletedPartitionsAreNotSweptAgainBeforeNextRun() {
+        cardStatusUpdateTask.updateExpiredCards();
+        CardEntity card = cardRepository.save(newCard("5000", CardStatus.ACTIVE, LocalDate.now().minusDays(1)));
+
+        cardStatusUpdateTask.resumeUnfinishedPartitions();
+
+        assertEquals(CardStatus.ACTIVE, cardRepository.findById(card.getId()).orElseThrow().getStatus());
+    }
+
+    private CardEntity newCard(String number, CardStatus status, LocalDate expiryDate) {
+        return new CardEntity()
+                .setNumber(number)
+                .setUser(user)
+                .setBalance(BigDecimal.TEN)
+                .setStatus(status)
+                .setExpiryDate(expiryDate);
+    }
+}
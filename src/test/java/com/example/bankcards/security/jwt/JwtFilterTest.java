@@ -0,0 +1,172 @@
+package com.example.bankcards.security.jwt;
+
+import com.example.bankcards.entity.UserEntity;
+import com.example.bankcards.entity.enums.RoleUsers;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.CustomUserDetails;
+import com.example.bankcards.security.CustomUserServiceImpl;
+import com.example.bankcards.security.UserAccessCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class JwtFilterTest {
+
+    @Mock
+    private JwtService jwtService;
+
+    @Mock
+    private CustomUserServiceImpl customUserService;
+
+    @Mock
+    private UserRepository userRepository;
+
+    private JwtTokenCache jwtTokenCache;
+
+    private UserAccessCache userAccessCache;
+
+    private JwtFilter jwtFilter;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        userAccessCache = new UserAccessCache(userRepository, 100, Duration.ofMinutes(1));
+        jwtTokenCache = new JwtTokenCache(true, 100);
+        meterRegistry = new SimpleMeterRegistry();
+        jwtFilter = new JwtFilter(jwtService, jwtTokenCache, customUserService, userAccessCache, meterRegistry);
+        ReflectionTestUtils.setField(jwtFilter, "stateless", true);
+
+        when(jwtService.verify("token")).thenReturn(new JwtClaims("user@example.com", "ROLE_ADMIN",
+                new Date(System.currentTimeMillis() + 60_000)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void stateless_BuildsUserFromClaimsAndChecksRoleOncePerWindow() throws Exception {
+        when(userRepository.findByEmail("user@example.com")).thenReturn(Optional.of(user(RoleUsers.ROLE_ADMIN)));
+
+        filter();
+        SecurityContextHolder.clearContext();
+        filter();
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertNotNull(authentication);
+        assertEquals("user@example.com", authentication.getName());
+        assertTrue(authentication.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN")));
+        verify(userRepository, times(1)).findByEmail("user@example.com");
+        verify(customUserService, never()).loadUserByUsername(any());
+    }
+
+    @Test
+    void stateless_DemotedUser_IsNotAuthenticated() throws Exception {
+        when(userRepository.findByEmail("user@example.com")).thenReturn(Optional.of(user(RoleUsers.ROLE_USER)));
+
+        filter();
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @Test
+    void stateless_DeletedUser_IsNotAuthenticated() throws Exception {
+        when(userRepository.findByEmail("user@example.com")).thenReturn(Optional.empty());
+
+        filter();
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @Test
+    void stateless_EvictedUser_IsRecheckedBeforeWindowEnds() throws Exception {
+        when(userRepository.findByEmail("user@example.com")).thenReturn(Optional.of(user(RoleUsers.ROLE_ADMIN)));
+        filter();
+        SecurityContextHolder.clearContext();
+
+        when(userRepository.findByEmail("user@example.com")).thenReturn(Optional.of(user(RoleUsers.ROLE_USER)));
+        userAccessCache.evict("user@example.com");
+        filter();
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        verify(userRepository, times(2)).findByEmail("user@example.com");
+    }
+
+    @Test
+    void defaultMode_LoadsUserFromDatabase() throws Exception {
+        ReflectionTestUtils.setField(jwtFilter, "stateless", false);
+        when(customUserService.loadUserByUsername("user@example.com"))
+                .thenReturn(new CustomUserDetails(user(RoleUsers.ROLE_USER)));
+
+        filter();
+
+        assertEquals("user@example.com", SecurityContextHolder.getContext().getAuthentication().getName());
+        verify(customUserService).loadUserByUsername("user@example.com");
+        assertEquals(1, meterRegistry.get("jwt.user.lookup").tag("mode", "database").timer().count());
+    }
+
+    private void filter() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/cards/1");
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer token");
+        jwtFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+    }
+
+    private UserEntity user(RoleUsers role) {
+        UserEntity userEntity = new UserEntity();
+        userEntity.setEmail("user@example.com");
+        userEntity.setRole(role);
+        return userEntity;
+    }
+
+    @Test
+    void repeatedToken_IsVerifiedOnce() throws Exception {
+        when(userRepository.findByEmail("user@example.com")).thenReturn(Optional.of(user(RoleUsers.ROLE_ADMIN)));
+
+        filter();
+        filter();
+
+        verify(jwtService, times(1)).verify("token");
+        assertEquals(1, jwtTokenCache.stats().hits());
+        assertEquals(1, jwtTokenCache.stats().misses());
+        assertEquals(1, meterRegistry.get("jwt.verify").tags("cache", "miss", "result", "valid").timer().count());
+        assertEquals(1, meterRegistry.get("jwt.verify").tags("cache", "hit", "result", "valid").timer().count());
+        assertEquals(2, meterRegistry.get("jwt.user.lookup").tag("mode", "stateless").timer().count());
+    }
+
+    @Test
+    void expiredCachedToken_IsVerifiedAgain() throws Exception {
+        when(jwtService.verify("token")).thenReturn(new JwtClaims("user@example.com", "ROLE_ADMIN",
+                new Date(System.currentTimeMillis() - 1)));
+        when(userRepository.findByEmail("user@example.com")).thenReturn(Optional.of(user(RoleUsers.ROLE_ADMIN)));
+
+        filter();
+        filter();
+
+        verify(jwtService, times(2)).verify("token");
+    }
+}
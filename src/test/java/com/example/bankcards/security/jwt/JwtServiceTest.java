@@ -0,0 +1,41 @@
+package com.example.bankcards.security.jwt;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtServiceTest {
+
+    private JwtService jwtService;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = new JwtService(null);
+        jwtService.jwtSecret = "c362b68d0793bd37b7b5252f250d4abbe02e671cd98d725d73d63bfd2ca3bda3417c7443";
+        jwtService.init();
+    }
+
+    @Test
+    void verify_ValidToken_ReturnsClaims() {
+        String token = jwtService.generateJwtToken("user@example.com", "ROLE_ADMIN");
+
+        JwtClaims claims = jwtService.verify(token);
+
+        assertNotNull(claims);
+        assertEquals("user@example.com", claims.email());
+        assertEquals("ROLE_ADMIN", claims.role());
+        assertTrue(claims.expiration().getTime() > System.currentTimeMillis());
+        assertTrue(jwtService.validateJwtToken(token));
+        assertEquals("user@example.com", jwtService.getEmailFromToken(token));
+    }
+
+    @Test
+    void verify_TamperedToken_ReturnsNull() {
+        String token = jwtService.generateJwtToken("user@example.com", "ROLE_USER");
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        assertNull(jwtService.verify(tampered));
+        assertFalse(jwtService.validateJwtToken(tampered));
+    }
+}
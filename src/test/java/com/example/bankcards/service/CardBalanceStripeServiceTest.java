@@ -0,0 +1,126 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.CardBalanceStripeEntity;
+import com.example.bankcards.entity.CardBalanceStripeId;
+import com.example.bankcards.entity.CardEntity;
+import com.example.bankcards.exception.transfer.TransferException;
+import com.example.bankcards.repository.CardBalanceStripeRepository;
+import com.example.bankcards.repository.CardRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CardBalanceStripeServiceTest {
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private CardBalanceStripeRepository cardBalanceStripeRepository;
+
+    @InjectMocks
+    private CardBalanceStripeService cardBalanceStripeService;
+
+    private CardEntity card;
+
+    @BeforeEach
+    void setUp() {
+        card = new CardEntity();
+        card.setId(1L);
+        card.setBalance(new BigDecimal("100.00"));
+    }
+
+    @Test
+    void fold_MovesStripeBalancesToCard() {
+        CardBalanceStripeEntity first = stripe(0, "30.00");
+        CardBalanceStripeEntity second = stripe(1, "20.00");
+        when(cardBalanceStripeRepository.findAllByCardIdForUpdate(1L)).thenReturn(List.of(first, second));
+
+        BigDecimal folded = cardBalanceStripeService.fold(card);
+
+        assertEquals(new BigDecimal("50.00"), folded);
+        assertEquals(new BigDecimal("150.00"), card.getBalance());
+        assertEquals(0, first.getBalance().signum());
+        assertEquals(0, second.getBalance().signum());
+    }
+
+    @Test
+    void foldIfShort_EnoughBalance_DoesNotTouchStripes() {
+        cardBalanceStripeService.foldIfShort(card, new BigDecimal("50.00"));
+
+        verifyNoInteractions(cardBalanceStripeRepository);
+    }
+
+    @Test
+    void setStripes_CreatesOnlyMissingStripes() {
+        when(cardBalanceStripeRepository.countByIdCardId(1L)).thenReturn(2L);
+
+        cardBalanceStripeService.setStripes(card, 4);
+
+        assertEquals(4, card.getBalanceStripes());
+        verify(cardBalanceStripeRepository, times(2)).save(any(CardBalanceStripeEntity.class));
+        verify(cardBalanceStripeRepository).save(argThat(stripe -> stripe.getId().getStripe() == 3));
+    }
+
+    @Test
+    void setStripes_Zero_FoldsBalance() {
+        card.setBalanceStripes(4);
+        when(cardBalanceStripeRepository.findAllByCardIdForUpdate(1L)).thenReturn(List.of(stripe(2, "5.00")));
+
+        cardBalanceStripeService.setStripes(card, 0);
+
+        assertEquals(0, card.getBalanceStripes());
+        assertEquals(new BigDecimal("105.00"), card.getBalance());
+    }
+
+    @Test
+    void setStripes_TooMany_ThrowsException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> cardBalanceStripeService.setStripes(card, CardBalanceStripeService.MAX_STRIPES + 1));
+    }
+
+    @Test
+    void cachedStripes_ReadsCountOnceUntilStripesChange() {
+        when(cardRepository.findBalanceStripesById(1L)).thenReturn(Optional.of(4), Optional.of(8));
+        when(cardBalanceStripeRepository.countByIdCardId(1L)).thenReturn(4L);
+
+        assertEquals(4, cardBalanceStripeService.cachedStripes(1L));
+        assertEquals(4, cardBalanceStripeService.cachedStripes(1L));
+        verify(cardRepository, times(1)).findBalanceStripesById(1L);
+
+        cardBalanceStripeService.setStripes(card, 8);
+
+        assertEquals(8, cardBalanceStripeService.cachedStripes(1L));
+        verify(cardRepository, times(2)).findBalanceStripesById(1L);
+    }
+
+    @Test
+    void credit_MissingStripe_ThrowsConflict() {
+        when(cardBalanceStripeRepository.creditStripe(eq(1L), anyInt(), any())).thenReturn(0);
+
+        TransferException exception = assertThrows(TransferException.class,
+                () -> cardBalanceStripeService.credit(1L, 4, BigDecimal.TEN));
+        assertEquals(409, exception.getHttpStatus());
+    }
+
+    private CardBalanceStripeEntity stripe(int index, String balance) {
+        return new CardBalanceStripeEntity()
+                .setId(new CardBalanceStripeId(1L, index))
+                .setBalance(new BigDecimal(balance));
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.Card.CardBlockRequestDecisionDTO;
+import com.example.bankcards.dto.Card.CardBlockRequestDecisionResponseDTO;
+import com.example.bankcards.dto.Card.CardResponseRequestStatusDTO;
+import com.example.bankcards.dto.Pagination.CursorPageDTO;
+import com.example.bankcards.entity.CardEntity;
+import com.example.bankcards.entity.UserEntity;
+import com.example.bankcards.entity.enums.BlockRequestStatus;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.RoleUsers;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CardBlockRequestQueueTest {
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private UserEntity user;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new UserEntity().setEmail("queue@test.com").setRole(RoleUsers.ROLE_USER));
+    }
+
+    @AfterEach
+    void tearDown() {
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void pendingQueue_ApproveAndReject_UpdateOnlyPendingCards() {
+        CardEntity pendingActive = cardRepository.save(newCard("1001", CardStatus.ACTIVE, BlockRequestStatus.PENDING));
+        CardEntity pendingExpired = cardRepository.save(newCard("1002", CardStatus.EXPIRED, BlockRequestStatus.PENDING));
+        CardEntity pendingToReject = cardRepository.save(newCard("1003", CardStatus.ACTIVE, BlockRequestStatus.PENDING));
+        CardEntity withoutRequest = cardRepository.save(newCard("1004", CardStatus.ACTIVE, BlockRequestStatus.NONE));
+
+        CursorPageDTO<CardResponseRequestStatusDTO> queue = cardService.getPendingBlockRequests(null, 20);
+        assertEquals(List.of(pendingActive.getId(), pendingExpired.getId(), pendingToReject.getId()),
+                queue.getContent().stream().map(CardResponseRequestStatusDTO::getId).toList());
+        assertEquals("queue@test.com", queue.getContent().get(0).getUser().getEmail());
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        CardBlockRequestDecisionResponseDTO approved;
+        try {
+            approved = cardService.decideBlockRequests(new CardBlockRequestDecisionDTO()
+                    .setCardIds(List.of(pendingActive.getId(), pendingExpired.getId(), withoutRequest.getId()))
+                    .setDecision(BlockRequestStatus.APPROVED));
+            assertEquals(0, statistics.getEntityLoadCount());
+            assertEquals(0, statistics.getEntityUpdateCount());
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+        CardBlockRequestDecisionResponseDTO rejected = cardService.decideBlockRequests(new CardBlockRequestDecisionDTO()
+                .setCardIds(List.of(pendingToReject.getId()))
+                .setDecision(BlockRequestStatus.REJECTED));
+
+        assertEquals(2, approved.getUpdated());
+        assertEquals(1, rejected.getUpdated());
+        assertCard(pendingActive, CardStatus.BLOCK, BlockRequestStatus.APPROVED);
+        assertCard(pendingExpired, CardStatus.EXPIRED, BlockRequestStatus.APPROVED);
+        assertCard(pendingToReject, CardStatus.ACTIVE, BlockRequestStatus.REJECTED);
+        assertCard(withoutRequest, CardStatus.ACTIVE, BlockRequestStatus.NONE);
+        assertEquals(0, cardService.getPendingBlockRequests(null, 20).getContent().size());
+    }
+
+    private void assertCard(CardEntity card, CardStatus status, BlockRequestStatus blockRequestStatus) {
+        CardEntity stored = cardRepository.findWithoutLockById(card.getId()).orElseThrow();
+        assertEquals(status, stored.getStatus());
+        assertEquals(blockRequestStatus, stored.getBlockRequestStatus());
+    }
+
+    private CardEntity newCard(String number, CardStatus status, BlockRequestStatus blockRequestStatus) {
+        return new CardEntity()
+                .setNumber(number)
+                .setUser(user)
+                .setBalance(BigDecimal.TEN)
+                .setStatus(status)
+                .setBlockRequestStatus(blockRequestStatus)
+                .setExpiryDate(LocalDate.now().plusYears(1));
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.Card.CardDTO;
+import com.example.bankcards.dto.Card.CardResponseRequestStatusDTO;
+import com.example.bankcards.dto.Pagination.CursorPageDTO;
+import com.example.bankcards.entity.CardEntity;
+import com.example.bankcards.entity.UserEntity;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.RoleUsers;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CardListingProjectionTest {
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        UserEntity user = userRepository.save(new UserEntity()
+                .setEmail("listing@test.com")
+                .setFullName("Listing User")
+                .setRole(RoleUsers.ROLE_USER));
+        for (int i = 0; i < 3; i++) {
+            cardRepository.save(new CardEntity()
+                    .setNumber("400000000000000" + i)
+                    .setUser(user)
+                    .setBalance(BigDecimal.TEN)
+                    .setStatus(CardStatus.ACTIVE)
+                    .setExpiryDate(LocalDate.now().plusYears(1)));
+        }
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        statistics.setStatisticsEnabled(false);
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void getStatusesByRequestCards_SelectsColumnsWithoutLoadingEntities() {
+        Page<CardResponseRequestStatusDTO> page = cardService.getStatusesByRequestCards(PageRequest.of(0, 2, Sort.by("id")));
+
+        assertEquals(3, page.getTotalElements());
+        CardResponseRequestStatusDTO first = page.getContent().get(0);
+        assertEquals("**** **** **** 0000", first.getMaskedNumber());
+        assertEquals("listing@test.com", first.getUser().getEmail());
+        assertEquals("Listing User", first.getUser().getFullName());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void getAllCardsAfter_WalksAllCardsWithoutLoadingEntities() {
+        CursorPageDTO<CardDTO> first = cardService.getAllCardsAfter(null, 2);
+        CursorPageDTO<CardDTO> second = cardService.getAllCardsAfter(first.getNextCursor(), 2);
+
+        assertEquals(2, first.getContent().size());
+        assertTrue(first.isHasNext());
+        assertEquals(1, second.getContent().size());
+        assertFalse(second.isHasNext());
+        assertEquals("**** **** **** 0002", second.getContent().get(0).getMaskedNumber());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+}
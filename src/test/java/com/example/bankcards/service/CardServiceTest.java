@@ -1,35 +1,59 @@
 package com.example.bankcards.service;
 
 import com.example.bankcards.dto.Card.*;
+import com.example.bankcards.dto.Pagination.CursorPageDTO;
+import com.example.bankcards.dto.User.UserDTO;
 import com.example.bankcards.entity.CardEntity;
 import com.example.bankcards.entity.UserEntity;
 import com.example.bankcards.entity.enums.BlockRequestStatus;
 import com.example.bankcards.entity.enums.CardStatus;
 import com.example.bankcards.entity.enums.RoleUsers;
+import com.example.bankcards.ledger.LedgerEngine;
 import com.example.bankcards.mappers.CardMapper;
+import com.example.bankcards.mappers.UserMapper;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.repository.projection.CardRequestStatusView;
+import com.example.bankcards.repository.projection.CardView;
+import com.example.bankcards.repository.projection.UserView;
+import com.example.bankcards.util.CursorUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 
@@ -46,6 +70,18 @@ class CardServiceTest {
     @Mock
     private CardMapper cardMapper;
 
+    @Mock
+    private UserMapper userMapper;
+
+    @Mock
+    private CardBalanceStripeService cardBalanceStripeService;
+
+    @Mock
+    private ObjectProvider<LedgerEngine> ledgerEngine;
+
+    @Spy
+    private CardCache cardCache = new CardCache(100, Duration.ofMinutes(1));
+
     @Mock
     private SecurityContext securityContext;
 
@@ -66,6 +102,9 @@ class CardServiceTest {
     private CardResponseBlockDTO testBlockResponseDTO;
     private CardSetStatusResponseDTO testStatusResponseDTO;
     private CardResponseRequestStatusDTO testRequestStatusDTO;
+    private CardView testCardView;
+    private CardRequestStatusView testRequestStatusView;
+    private UserView testUserView;
 
     @BeforeEach
     void setUp() {
@@ -108,34 +147,45 @@ class CardServiceTest {
         testRequestStatusDTO = new CardResponseRequestStatusDTO();
         testRequestStatusDTO.setId(1L);
         testRequestStatusDTO.setMaskedNumber("**** **** **** 1234");
-        testRequestStatusDTO.setUser(testUserEntity);
+        testRequestStatusDTO.setUser(new UserDTO()
+                .setEmail(testUserEntity.getEmail())
+                .setRole(testUserEntity.getRole()));
         testRequestStatusDTO.setBlockRequestStatus(BlockRequestStatus.PENDING);
         testRequestStatusDTO.setStatus(CardStatus.ACTIVE);
+
+        testCardView = new CardView(1L, "1234123412341234", BigDecimal.valueOf(1000),
+                LocalDate.now().plusYears(1), CardStatus.ACTIVE);
+        testRequestStatusView = new CardRequestStatusView(1L, "1234123412341234", BlockRequestStatus.PENDING,
+                CardStatus.ACTIVE, 1L);
+        testUserView = new UserView(1L, "user@example.com", null, RoleUsers.ROLE_USER);
     }
 
 
     @Test
     void getAllCards_ShouldReturnAllCards() {
-        List<CardEntity> cardList = Collections.singletonList(testCardEntity);
-        Page<CardEntity> cardPage = new PageImpl<>(cardList, pageable, cardList.size());
+        List<CardView> cardList = Collections.singletonList(testCardView);
+        Page<CardView> cardPage = new PageImpl<>(cardList, pageable, cardList.size());
 
-        when(cardRepository.findAll(any(Pageable.class))).thenReturn(cardPage);
-        when(cardMapper.toCardDTO(any(CardEntity.class))).thenReturn(testCardDTO);
+        when(cardRepository.findAllCardViews(any(Pageable.class))).thenReturn(cardPage);
+        when(cardMapper.cardViewToCardDTO(any(CardView.class))).thenReturn(testCardDTO);
 
         Page<CardDTO> result = cardService.getAllCards(PageRequest.of(0, 10));
 
         assertNotNull(result);
         assertEquals(1, result.getTotalElements());
         assertEquals(testCardDTO, result.getContent().get(0));
+        verify(cardRepository, never()).findAll(any(Pageable.class));
     }
 
     @Test
     void getStatusesByRequestCards_ShouldReturnStatuses() {
-        List<CardEntity> cardList = Collections.singletonList(testCardEntity);
-        Page<CardEntity> cardPage = new PageImpl<>(cardList, pageable, cardList.size());
+        List<CardRequestStatusView> cardList = Collections.singletonList(testRequestStatusView);
+        Page<CardRequestStatusView> cardPage = new PageImpl<>(cardList, pageable, cardList.size());
 
-        when(cardRepository.findAll(any(Pageable.class))).thenReturn(cardPage);
-        when(cardMapper.toCardResponseRequestStatusDTO(any(CardEntity.class))).thenReturn(testRequestStatusDTO);
+        when(cardRepository.findAllRequestStatusViews(any(Pageable.class))).thenReturn(cardPage);
+        when(cardMapper.toCardResponseRequestStatusDTO(any(CardRequestStatusView.class))).thenReturn(testRequestStatusDTO);
+        when(userRepository.findUserViewsByIdIn(Set.of(1L))).thenReturn(List.of(testUserView));
+        when(userMapper.userViewToUserDTO(testUserView)).thenReturn(testRequestStatusDTO.getUser());
 
         Page<CardResponseRequestStatusDTO> result = cardService.getStatusesByRequestCards(PageRequest.of(0, 10));
 
@@ -143,4 +193,147 @@ class CardServiceTest {
         assertEquals(1, result.getTotalElements());
         assertEquals(testRequestStatusDTO, result.getContent().get(0));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getAllCardsAfter_ShouldReturnSliceAfterCursor() {
+        Slice<CardView> slice = new SliceImpl<>(Collections.singletonList(testCardView), PageRequest.ofSize(1), true);
+        when(cardRepository.findCardViewsAfter(eq(0L), any(Pageable.class))).thenReturn(slice);
+        when(cardMapper.cardViewToCardDTO(any(CardView.class))).thenReturn(testCardDTO);
+
+        CursorPageDTO<CardDTO> result = cardService.getAllCardsAfter(null, 1);
+
+        assertEquals(testCardDTO, result.getContent().get(0));
+        assertTrue(result.isHasNext());
+        assertEquals(testCardEntity.getId(), CursorUtil.decode(result.getNextCursor()));
+        verify(cardRepository, never()).findAll(any(Pageable.class));
+    }
+
+    @Test
+    void getStatusesByRequestCardsAfter_ShouldContinueFromCursor() {
+        Slice<CardRequestStatusView> slice = new SliceImpl<>(Collections.singletonList(testRequestStatusView), PageRequest.ofSize(10), false);
+        when(cardRepository.findRequestStatusViewsAfter(eq(5L), any(Pageable.class))).thenReturn(slice);
+        when(cardMapper.toCardResponseRequestStatusDTO(any(CardRequestStatusView.class))).thenReturn(testRequestStatusDTO);
+        when(userRepository.findUserViewsByIdIn(Set.of(1L))).thenReturn(List.of(testUserView));
+        when(userMapper.userViewToUserDTO(testUserView)).thenReturn(testRequestStatusDTO.getUser());
+
+        CursorPageDTO<CardResponseRequestStatusDTO> result = cardService.getStatusesByRequestCardsAfter(CursorUtil.encode(5L), 10);
+
+        assertEquals(testRequestStatusDTO, result.getContent().get(0));
+        assertFalse(result.isHasNext());
+        assertNull(result.getNextCursor());
+    }
+
+    @Test
+    void getAllCardsAfter_PageSizeOverLimit_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> cardService.getAllCardsAfter(null, 101));
+        verify(cardRepository, never()).findCardViewsAfter(any(), any());
+    }
+
+    @Test
+    void getBalanceCardByCardId_ShouldIncludeBalanceStripes() {
+        testCardEntity.setBalanceStripes(4);
+        when(cardRepository.findWithoutLockById(1L)).thenReturn(Optional.of(testCardEntity));
+        when(cardMapper.toCardDTO(testCardEntity)).thenReturn(testCardDTO);
+        when(cardBalanceStripeService.totalBalance(testCardEntity)).thenReturn(BigDecimal.valueOf(1250));
+
+        CardResponseBalanceDTO result = cardService.getBalanceCardByCardId(1L);
+
+        assertEquals(1L, result.getId());
+        assertEquals(BigDecimal.valueOf(1250), result.getBalance());
+    }
+
+    @Test
+    void getBalanceCardByCardId_RepeatedReads_UseCacheWithoutLocking() {
+        when(cardRepository.findWithoutLockById(1L)).thenReturn(Optional.of(testCardEntity));
+        when(cardMapper.toCardDTO(testCardEntity)).thenReturn(testCardDTO);
+        when(cardBalanceStripeService.totalBalance(testCardEntity)).thenReturn(BigDecimal.valueOf(1000));
+
+        cardService.getBalanceCardByCardId(1L);
+        cardService.getCard(1L);
+
+        verify(cardRepository, times(1)).findWithoutLockById(1L);
+        verify(cardRepository, never()).findById(any());
+    }
+
+    @Test
+    void getBalanceCardByCardId_LedgerMode_ReadsBalanceFromMemory() {
+        LedgerEngine engine = mock(LedgerEngine.class);
+        when(ledgerEngine.getIfAvailable()).thenReturn(engine);
+        when(engine.balance(1L)).thenReturn(new BigDecimal("750.00"));
+
+        CardResponseBalanceDTO result = cardService.getBalanceCardByCardId(1L);
+
+        assertEquals(1L, result.getId());
+        assertEquals(new BigDecimal("750.00"), result.getBalance());
+        verify(cardRepository, never()).findWithoutLockById(any());
+    }
+
+    @Test
+    void requestBlock_EvictsCachedCard() {
+        when(cardRepository.findWithoutLockById(1L)).thenReturn(Optional.of(testCardEntity));
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(testCardEntity));
+        when(cardRepository.save(testCardEntity)).thenReturn(testCardEntity);
+        when(cardMapper.toCardDTO(testCardEntity)).thenReturn(testCardDTO);
+        when(cardBalanceStripeService.totalBalance(testCardEntity)).thenReturn(BigDecimal.valueOf(1000));
+
+        cardService.getCard(1L);
+        cardService.requestBlock(1L);
+        cardService.getCard(1L);
+
+        verify(cardRepository, times(2)).findWithoutLockById(1L);
+    }
+
+    @Test
+    void decideBlockRequests_Approved_BlocksPendingCardsInOneUpdate() {
+        when(cardRepository.approveBlockRequests(Set.of(1L, 2L), BlockRequestStatus.PENDING,
+                BlockRequestStatus.APPROVED, CardStatus.BLOCK, CardStatus.EXPIRED)).thenReturn(1);
+
+        CardBlockRequestDecisionResponseDTO result = cardService.decideBlockRequests(new CardBlockRequestDecisionDTO()
+                .setCardIds(List.of(2L, 1L, 2L))
+                .setDecision(BlockRequestStatus.APPROVED));
+
+        assertEquals(BlockRequestStatus.APPROVED, result.getDecision());
+        assertEquals(2, result.getRequested());
+        assertEquals(1, result.getUpdated());
+        verify(cardRepository, never()).findById(any());
+        verify(cardCache).evict(Set.of(1L, 2L));
+    }
+
+    @Test
+    void decideBlockRequests_Rejected_KeepsCardStatus() {
+        when(cardRepository.rejectBlockRequests(Set.of(1L), BlockRequestStatus.PENDING, BlockRequestStatus.REJECTED))
+                .thenReturn(1);
+
+        CardBlockRequestDecisionResponseDTO result = cardService.decideBlockRequests(new CardBlockRequestDecisionDTO()
+                .setCardIds(List.of(1L))
+                .setDecision(BlockRequestStatus.REJECTED));
+
+        assertEquals(1, result.getUpdated());
+        verify(cardRepository, never()).approveBlockRequests(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void decideBlockRequests_PendingDecision_ThrowsException() {
+        CardBlockRequestDecisionDTO dto = new CardBlockRequestDecisionDTO()
+                .setCardIds(List.of(1L))
+                .setDecision(BlockRequestStatus.PENDING);
+
+        assertThrows(IllegalArgumentException.class, () -> cardService.decideBlockRequests(dto));
+    }
+
+    @Test
+    void getPendingBlockRequests_ReadsOnlyPendingQueue() {
+        Slice<CardRequestStatusView> slice = new SliceImpl<>(Collections.singletonList(testRequestStatusView), PageRequest.ofSize(20), false);
+        when(cardRepository.findRequestStatusViewsByBlockRequestStatusAfter(eq(BlockRequestStatus.PENDING), eq(0L), any(Pageable.class)))
+                .thenReturn(slice);
+        when(cardMapper.toCardResponseRequestStatusDTO(any(CardRequestStatusView.class))).thenReturn(testRequestStatusDTO);
+        when(userRepository.findUserViewsByIdIn(Set.of(1L))).thenReturn(List.of(testUserView));
+        when(userMapper.userViewToUserDTO(testUserView)).thenReturn(testRequestStatusDTO.getUser());
+
+        CursorPageDTO<CardResponseRequestStatusDTO> result = cardService.getPendingBlockRequests(null, 20);
+
+        assertEquals(testRequestStatusDTO, result.getContent().get(0));
+        assertFalse(result.isHasNext());
+        verify(cardRepository, never()).findAllRequestStatusViews(any());
+    }
+}
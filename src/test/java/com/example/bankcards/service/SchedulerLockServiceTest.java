@@ -0,0 +1,90 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.SchedulerLockRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class SchedulerLockServiceTest {
+    private static final String JOB = "test-job";
+
+    @Autowired
+    private SchedulerLockRepository schedulerLockRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private SchedulerLockService nodeA;
+    private SchedulerLockService nodeB;
+
+    @BeforeEach
+    void setUp() {
+        schedulerLockRepository.deleteAll();
+        nodeA = new SchedulerLockService(schedulerLockRepository, transactionTemplate, "node-a");
+        nodeB = new SchedulerLockService(schedulerLockRepository, transactionTemplate, "node-b");
+    }
+
+    @AfterEach
+    void tearDown() {
+        schedulerLockRepository.deleteAll();
+    }
+
+    @Test
+    void tryAcquire_LeaseHeldByAnotherNode_ReturnsFalse() {
+        assertTrue(nodeA.tryAcquire(JOB, Duration.ofMinutes(10)));
+
+        assertFalse(nodeB.tryAcquire(JOB, Duration.ofMinutes(10)));
+        assertTrue(nodeA.tryAcquire(JOB, Duration.ofMinutes(10)));
+    }
+
+    @Test
+    void tryAcquire_ExpiredLease_TakenOverByAnotherNode() throws InterruptedException {
+        assertTrue(nodeA.tryAcquire(JOB, Duration.ofMillis(50)));
+        Thread.sleep(100);
+
+        assertTrue(nodeB.tryAcquire(JOB, Duration.ofMinutes(10)));
+        assertFalse(nodeA.extend(JOB, Duration.ofMinutes(10)));
+        assertEquals("node-b", schedulerLockRepository.findById(JOB).orElseThrow().getLockedBy());
+    }
+
+    @Test
+    void runLocked_CompletedTask_ReleasesLeaseAndRecordsCompletion() {
+        AtomicBoolean executed = new AtomicBoolean();
+
+        assertTrue(nodeA.runLocked(JOB, Duration.ofMinutes(10), () -> executed.set(true)));
+
+        assertTrue(executed.get());
+        assertNotNull(nodeB.lastCompletedAt(JOB));
+        assertTrue(nodeB.tryAcquire(JOB, Duration.ofMinutes(10)));
+    }
+
+    @Test
+    void runLocked_FailedTask_ReleasesLeaseWithoutCompletion() {
+        assertThrows(IllegalStateException.class, () -> nodeA.runLocked(JOB, Duration.ofMinutes(10), () -> {
+            throw new IllegalStateException("сбой");
+        }));
+
+        assertNull(nodeB.lastCompletedAt(JOB));
+        assertTrue(nodeB.tryAcquire(JOB, Duration.ofMinutes(10)));
+    }
+
+    @Test
+    void runLocked_LeaseHeldByAnotherNode_SkipsTask() {
+        nodeB.tryAcquire(JOB, Duration.ofMinutes(10));
+        AtomicBoolean executed = new AtomicBoolean();
+
+        assertFalse(nodeA.runLocked(JOB, Duration.ofMinutes(10), () -> executed.set(true)));
+        assertFalse(executed.get());
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.Transfer.TransferDTO;
+import com.example.bankcards.entity.CardEntity;
+import com.example.bankcards.entity.UserEntity;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.RoleUsers;
+import com.example.bankcards.exception.transfer.TransferException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Встречные переводы между двумя картами с разбитым балансом, у которых основной баланс
+ * постоянно заканчивается: каждый перевод сворачивает части отправителя и зачисляет в часть получателя.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class StripedTransferConcurrencyTest {
+    private static final int THREADS = 4;
+    private static final int TRANSFERS_PER_THREAD = 100;
+    private static final BigDecimal FUNDING = new BigDecimal("50.00");
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardBalanceStripeService cardBalanceStripeService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TransferRepository transferRepository;
+
+    private UserEntity user;
+    private CardEntity cardA;
+    private CardEntity cardB;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new UserEntity().setEmail("striped-pair@test.com").setRole(RoleUsers.ROLE_USER));
+        CardEntity funding = cardRepository.save(newCard("9999000011112222", new BigDecimal("1000.00")));
+        cardA = cardRepository.save(newCard("9999000011113333", BigDecimal.ZERO));
+        cardB = cardRepository.save(newCard("9999000011114444", BigDecimal.ZERO));
+        cardService.setBalanceStripes(cardA.getId(), 4);
+        cardService.setBalanceStripes(cardB.getId(), 4);
+        transferService.transfer(transfer(funding, cardA, FUNDING));
+        transferService.transfer(transfer(funding, cardB, FUNDING));
+    }
+
+    @AfterEach
+    void tearDown() {
+        transferRepository.deleteAllInBatch();
+        cardRepository.deleteAll();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void crossTransfers_BetweenShortStripedCards_DoNotDeadlock() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        for (int t = 0; t < THREADS; t++) {
+            boolean forward = t % 2 == 0;
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                        try {
+                            transferService.transfer(forward
+                                    ? transfer(cardA, cardB, BigDecimal.ONE)
+                                    : transfer(cardB, cardA, BigDecimal.ONE));
+                        } catch (TransferException e) {
+                            // недостаточно средств, пока встречные зачисления лежат в частях
+                        }
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES), "Переводы не завершились вовремя");
+        assertTrue(failures.isEmpty(), () -> "Ошибки при переводах: " + failures);
+
+        BigDecimal total = totalBalance(cardA).add(totalBalance(cardB));
+        assertEquals(0, FUNDING.add(FUNDING).compareTo(total), "Сумма балансов изменилась");
+    }
+
+    private BigDecimal totalBalance(CardEntity card) {
+        return cardBalanceStripeService.totalBalance(cardRepository.findWithoutLockById(card.getId()).orElseThrow());
+    }
+
+    private TransferDTO transfer(CardEntity from, CardEntity to, BigDecimal amount) {
+        return new TransferDTO()
+                .setUserId(user.getId())
+                .setFromCardId(from.getId())
+                .setToCardId(to.getId())
+                .setAmount(amount);
+    }
+
+    private CardEntity newCard(String number, BigDecimal balance) {
+        return new CardEntity()
+                .setNumber(number)
+                .setUser(user)
+                .setBalance(balance)
+                .setStatus(CardStatus.ACTIVE)
+                .setExpiryDate(LocalDate.now().plusYears(1));
+    }
+}
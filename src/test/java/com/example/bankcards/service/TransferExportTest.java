@@ -0,0 +1,143 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.CardEntity;
+import com.example.bankcards.entity.TransferEntity;
+import com.example.bankcards.entity.UserEntity;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.RoleUsers;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class TransferExportTest {
+    private static final LocalDateTime FROM = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final LocalDateTime TO = LocalDateTime.of(2025, 2, 1, 0, 0);
+
+    @Autowired
+    private TransferHistoryService transferHistoryService;
+
+    @Autowired
+    private TransferRepository transferRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private UserEntity owner;
+    private CardEntity first;
+    private CardEntity second;
+    private CardEntity foreign;
+    private final List<Long> transferIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        owner = userRepository.save(new UserEntity().setEmail("export-owner@test.com").setRole(RoleUsers.ROLE_USER));
+        UserEntity other = userRepository.save(new UserEntity().setEmail("export-other@test.com").setRole(RoleUsers.ROLE_USER));
+        first = cardRepository.save(newCard("6000000000000001", owner));
+        second = cardRepository.save(newCard("6000000000000002", owner));
+        foreign = cardRepository.save(newCard("6000000000000003", other));
+
+        saveTransfer(first, second, "10.00", FROM.plusDays(2));
+        saveTransfer(second, first, "20.50", FROM.plusDays(1));
+        saveTransfer(first, second, "30.00", TO);
+        saveTransfer(foreign, foreign, "40.00", FROM.plusDays(3));
+        saveTransfer(foreign, second, "50.00", FROM.plusDays(4));
+    }
+
+    @AfterEach
+    void tearDown() {
+        transferRepository.deleteAllInBatch();
+        cardRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void exportCardTransfers_Ndjson_WritesRangeInTimeOrderWithoutLoadingEntities() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows;
+        try {
+            rows = transferHistoryService.exportCardTransfers(first.getId(), FROM, TO, TransferExportFormat.NDJSON, out);
+            assertEquals(0, statistics.getEntityLoadCount());
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(2, rows);
+        assertEquals(2, lines.size());
+        assertEquals("{\"id\":" + idAt(1) + ",\"transferTime\":\"2025-01-02T00:00:00\",\"fromCardId\":" + second.getId()
+                + ",\"toCardId\":" + first.getId() + ",\"amount\":20.50}", lines.get(0));
+        assertEquals("{\"id\":" + idAt(0) + ",\"transferTime\":\"2025-01-03T00:00:00\",\"fromCardId\":" + first.getId()
+                + ",\"toCardId\":" + second.getId() + ",\"amount\":10.00}", lines.get(1));
+    }
+
+    @Test
+    void exportUserTransfers_Csv_IncludesIncomingTransfersFromOtherUsers() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = transferHistoryService.exportUserTransfers(owner.getId(), FROM, TO, TransferExportFormat.CSV, out);
+
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(3, rows);
+        assertEquals("id,transfer_time,from_card_id,to_card_id,amount", lines.get(0));
+        assertEquals(idAt(1) + ",2025-01-02T00:00," + second.getId() + "," + first.getId() + ",20.50", lines.get(1));
+        assertEquals(idAt(4) + ",2025-01-05T00:00," + foreign.getId() + "," + second.getId() + ",50.00", lines.get(3));
+    }
+
+    @Test
+    void checkCardExport_EmptyRange_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> transferHistoryService.checkCardExport(first.getId(), TO, FROM));
+    }
+
+    private Long idAt(int index) {
+        return transferIds.get(index);
+    }
+
+    private void saveTransfer(CardEntity from, CardEntity to, String amount, LocalDateTime time) {
+        TransferEntity transfer = new TransferEntity();
+        transfer.setFromCard(from);
+        transfer.setToCard(to);
+        transfer.setAmount(new BigDecimal(amount));
+        transfer.setTransferTime(time);
+        transferIds.add(transferRepository.save(transfer).getId());
+    }
+
+    private static CardEntity newCard(String number, UserEntity user) {
+        return new CardEntity()
+                .setNumber(number)
+                .setUser(user)
+                .setBalance(BigDecimal.TEN)
+                .setStatus(CardStatus.ACTIVE)
+                .setExpiryDate(LocalDate.now().plusYears(1));
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.Pagination.CursorPageDTO;
+import com.example.bankcards.dto.Transfer.TransferResponseDTO;
+import com.example.bankcards.entity.CardEntity;
+import com.example.bankcards.entity.TransferEntity;
+import com.example.bankcards.entity.UserEntity;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.RoleUsers;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class TransferHistoryTest {
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @Autowired
+    private TransferHistoryService transferHistoryService;
+
+    @Autowired
+    private TransferRepository transferRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private UserEntity owner;
+    private CardEntity first;
+    private CardEntity second;
+    private CardEntity foreign;
+    private final List<Long> transferIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        owner = userRepository.save(new UserEntity().setEmail("history-owner@test.com").setRole(RoleUsers.ROLE_USER));
+        UserEntity other = userRepository.save(new UserEntity().setEmail("history-other@test.com").setRole(RoleUsers.ROLE_USER));
+        first = cardRepository.save(newCard("7000000000000001", owner));
+        second = cardRepository.save(newCard("7000000000000002", owner));
+        foreign = cardRepository.save(newCard("7000000000000003", other));
+
+        saveTransfer(first, second, START.plusDays(1));
+        saveTransfer(second, first, START.plusDays(2));
+        saveTransfer(first, second, START.plusDays(2));
+        saveTransfer(foreign, first, START.plusDays(3));
+        saveTransfer(foreign, foreign, START.plusDays(4));
+        saveTransfer(first, second, START.plusDays(5));
+        authenticate("history-owner@test.com", "ROLE_USER");
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        transferRepository.deleteAllInBatch();
+        cardRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void getCardHistory_WalksPagesFromNewestWithoutGapsOrDuplicates() {
+        List<Long> walked = new ArrayList<>();
+        String after = null;
+        int pages = 0;
+        do {
+            CursorPageDTO<TransferResponseDTO> page = transferHistoryService.getCardHistory(first.getId(), null, null, after, 2);
+            page.getContent().forEach(transfer -> walked.add(transfer.getId()));
+            after = page.getNextCursor();
+            pages++;
+        } while (after != null);
+
+        assertEquals(List.of(transferIds.get(5), transferIds.get(3), transferIds.get(2), transferIds.get(1), transferIds.get(0)), walked);
+        assertEquals(3, pages);
+    }
+
+    @Test
+    void getUserHistory_RangeFilter_ReturnsOwnTransfersInRange() {
+        CursorPageDTO<TransferResponseDTO> page = transferHistoryService.getUserHistory(owner.getId(),
+                START.plusDays(2), START.plusDays(5), null, 10);
+
+        assertEquals(List.of(transferIds.get(3), transferIds.get(2), transferIds.get(1)),
+                page.getContent().stream().map(TransferResponseDTO::getId).toList());
+        assertFalse(page.isHasNext());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void getCardHistory_ForeignCard_ThrowsAccessDenied() {
+        assertThrows(AccessDeniedException.class,
+                () -> transferHistoryService.getCardHistory(foreign.getId(), null, null, null, 10));
+
+        authenticate("admin@test.com", "ROLE_ADMIN");
+        assertEquals(List.of(transferIds.get(4), transferIds.get(3)), transferHistoryService.getCardHistory(
+                foreign.getId(), null, null, null, 10).getContent().stream().map(TransferResponseDTO::getId).toList());
+    }
+
+    private void authenticate(String email, String role) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                email, null, List.of(new SimpleGrantedAuthority(role))));
+    }
+
+    private void saveTransfer(CardEntity from, CardEntity to, LocalDateTime time) {
+        TransferEntity transfer = new TransferEntity();
+        transfer.setFromCard(from);
+        transfer.setToCard(to);
+        transfer.setAmount(BigDecimal.ONE);
+        transfer.setTransferTime(time);
+        transferIds.add(transferRepository.save(transfer).getId());
+    }
+
+    private static CardEntity newCard(String number, UserEntity user) {
+        return new CardEntity()
+                .setNumber(number)
+                .setUser(user)
+                .setBalance(BigDecimal.TEN)
+                .setStatus(CardStatus.ACTIVE)
+                .setExpiryDate(LocalDate.now().plusYears(1));
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.Transfer.TransferDTO;
+import com.example.bankcards.dto.Transfer.TransferResponseDTO;
+import com.example.bankcards.entity.TransferIdempotencyKeyEntity;
+import com.example.bankcards.entity.TransferIdempotencyKeyId;
+import com.example.bankcards.exception.DuplicateResourceException;
+import com.example.bankcards.repository.TransferIdempotencyKeyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class TransferIdempotencyServiceTest {
+
+    @Mock
+    private TransferIdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Mock
+    private TransferService transferService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private TransferIdempotencyService transferIdempotencyService;
+
+    private TransferDTO transferDTO;
+    private TransferResponseDTO responseDTO;
+
+    @BeforeEach
+    void setUp() {
+        transferIdempotencyService = new TransferIdempotencyService(idempotencyKeyRepository, transferService, transactionTemplate,
+                TransferMode.LOCKING, 100, Duration.ofDays(1));
+
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(idempotencyKeyRepository.findById(any())).thenReturn(Optional.empty());
+        when(idempotencyKeyRepository.saveAndFlush(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(idempotencyKeyRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        transferDTO = new TransferDTO()
+                .setUserId(1L)
+                .setFromCardId(1L)
+                .setToCardId(2L)
+                .setAmount(new BigDecimal("100.00"));
+
+        responseDTO = new TransferResponseDTO()
+                .setId(10L)
+                .setFromCard(1L)
+                .setToCard(2L)
+                .setAmount(new BigDecimal("100.00"))
+                .setTransferTime(LocalDateTime.now());
+    }
+
+    @Test
+    void transfer_RepeatedKey_ReturnsStoredTransfer() {
+        when(transferService.transfer(transferDTO)).thenReturn(responseDTO);
+
+        TransferResponseDTO first = transferIdempotencyService.transfer("key-1", transferDTO);
+        TransferResponseDTO second = transferIdempotencyService.transfer("key-1", transferDTO);
+
+        assertEquals(first, second);
+        assertEquals(10L, second.getId());
+        verify(transferService, times(1)).transfer(any());
+    }
+
+    @Test
+    void transfer_KeyStoredByAnotherNode_ReturnsStoredTransferWithoutTransfer() {
+        TransferIdempotencyKeyEntity stored = new TransferIdempotencyKeyEntity()
+                .setId(new TransferIdempotencyKeyId(1L, "key-2"))
+                .setRequestHash(TransferIdempotencyService.requestHash(transferDTO))
+                .setTransferId(20L)
+                .setFromCardId(1L)
+                .setToCardId(2L)
+                .setAmount(new BigDecimal("100.00"))
+                .setCreatedAt(LocalDateTime.now());
+        when(idempotencyKeyRepository.findById(new TransferIdempotencyKeyId(1L, "key-2"))).thenReturn(Optional.of(stored));
+
+        TransferResponseDTO result = transferIdempotencyService.transfer("key-2", transferDTO);
+
+        assertEquals(20L, result.getId());
+        verify(transferService, never()).transfer(any());
+    }
+
+    @Test
+    void transfer_SameKeyDifferentRequest_ThrowsConflict() {
+        when(transferService.transfer(any())).thenReturn(responseDTO);
+        transferIdempotencyService.transfer("key-3", transferDTO);
+
+        TransferDTO otherTransfer = new TransferDTO()
+                .setUserId(1L)
+                .setFromCardId(1L)
+                .setToCardId(2L)
+                .setAmount(new BigDecimal("999.00"));
+
+        assertThrows(DuplicateResourceException.class, () -> transferIdempotencyService.transfer("key-3", otherTransfer));
+        verify(transferService, times(1)).transfer(any());
+    }
+
+    @Test
+    void transfer_SameKeyDifferentUsers_RunsBothTransfers() {
+        when(transferService.transfer(any())).thenReturn(responseDTO);
+        TransferDTO otherUserTransfer = new TransferDTO()
+                .setUserId(2L)
+                .setFromCardId(3L)
+                .setToCardId(4L)
+                .setAmount(new BigDecimal("100.00"));
+
+        transferIdempotencyService.transfer("key-shared", transferDTO);
+        transferIdempotencyService.transfer("key-shared", otherUserTransfer);
+
+        verify(transferService).transfer(transferDTO);
+        verify(transferService).transfer(otherUserTransfer);
+    }
+
+    @Test
+    void transfer_IntegrityViolationInTransfer_IsNotRetried() {
+        when(transferService.transfer(any())).thenThrow(new DataIntegrityViolationException("fk_transfer_card"));
+
+        assertThrows(DataIntegrityViolationException.class, () -> transferIdempotencyService.transfer("key-fk", transferDTO));
+
+        verify(transferService, times(1)).transfer(any());
+    }
+
+    @Test
+    void transfer_KeyTakenWithoutStoredTransfer_StopsAfterBoundedRetries() {
+        when(idempotencyKeyRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("pk_transfer_idempotency_keys"));
+
+        assertThrows(DuplicateResourceException.class, () -> transferIdempotencyService.transfer("key-taken", transferDTO));
+
+        verify(idempotencyKeyRepository, times(3)).saveAndFlush(any());
+        verify(transferService, never()).transfer(any());
+    }
+
+    @Test
+    void purgeExpired_DeletesKeysOlderThanRetention() {
+        when(idempotencyKeyRepository.deleteCreatedBefore(any())).thenReturn(2);
+
+        assertEquals(2, transferIdempotencyService.purgeExpired());
+
+        ArgumentCaptor<LocalDateTime> before = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(idempotencyKeyRepository).deleteCreatedBefore(before.capture());
+        assertTrue(before.getValue().isBefore(LocalDateTime.now().minusHours(23)));
+    }
+
+    @Test
+    void transfer_ConcurrentDuplicates_WaitForFirstAttempt() throws Exception {
+        CountDownLatch firstAttemptStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstAttempt = new CountDownLatch(1);
+        when(transferService.transfer(any())).thenAnswer(invocation -> {
+            firstAttemptStarted.countDown();
+            releaseFirstAttempt.await(5, TimeUnit.SECONDS);
+            return responseDTO;
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<TransferResponseDTO> first = executor.submit(() -> transferIdempotencyService.transfer("key-4", transferDTO));
+            assertTrue(firstAttemptStarted.await(5, TimeUnit.SECONDS));
+            Future<TransferResponseDTO> duplicate = executor.submit(() -> transferIdempotencyService.transfer("key-4", transferDTO));
+
+            Thread.sleep(100);
+            assertFalse(duplicate.isDone());
+            releaseFirstAttempt.countDown();
+
+            assertEquals(10L, first.get(5, TimeUnit.SECONDS).getId());
+            assertEquals(10L, duplicate.get(5, TimeUnit.SECONDS).getId());
+            verify(transferService, times(1)).transfer(any());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void transfer_BlankKey_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> transferIdempotencyService.transfer(" ", transferDTO));
+        verify(transferService, never()).transfer(any());
+    }
+
+    @Test
+    void transfer_LedgerMode_RejectsKeyWithoutTransfer() {
+        TransferIdempotencyService ledgerService = new TransferIdempotencyService(idempotencyKeyRepository, transferService,
+                transactionTemplate, TransferMode.LEDGER, 100, Duration.ofDays(1));
+
+        assertThrows(IllegalArgumentException.class, () -> ledgerService.transfer("key-ledger", transferDTO));
+
+        verify(transferService, never()).transfer(any());
+        verify(idempotencyKeyRepository, never()).saveAndFlush(any());
+    }
+}
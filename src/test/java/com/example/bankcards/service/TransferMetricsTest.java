@@ -0,0 +1,114 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.Transfer.TransferDTO;
+import com.example.bankcards.entity.CardEntity;
+import com.example.bankcards.entity.UserEntity;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.RoleUsers;
+import com.example.bankcards.exception.transfer.TransferException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+@ActiveProfiles("test")
+class TransferMetricsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TransferRepository transferRepository;
+
+    private UserEntity user;
+    private CardEntity fromCard;
+    private CardEntity toCard;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new UserEntity().setEmail("metrics@test.com").setRole(RoleUsers.ROLE_USER));
+        fromCard = cardRepository.save(newCard("3333000033330000"));
+        toCard = cardRepository.save(newCard("4444000044440000"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        transferRepository.deleteAll();
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void prometheusEndpoint_RequiresAdmin() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    @WithMockUser(username = "metrics@test.com", roles = "USER")
+    void prometheusEndpoint_ForbiddenForUser() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @WithMockUser(username = "admin@test.com", roles = "ADMIN")
+    void prometheusEndpoint_ExposesTransferHistograms() throws Exception {
+        transferService.transfer(transfer(BigDecimal.ONE));
+        assertThrows(TransferException.class, () -> transferService.transfer(transfer(new BigDecimal("1000.00"))));
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("transfer_duration_seconds_bucket{mode=\"LOCKING\",outcome=\"completed\"")))
+                .andExpect(content().string(containsString("transfer_lock_acquire_seconds_bucket{")))
+                .andExpect(content().string(containsString("transfer_commit_seconds_count ")))
+                .andExpect(content().string(containsString("transfer_rejected_total{exception=\"TransferException\",status=\"400\"} 1.0")));
+    }
+
+    private TransferDTO transfer(BigDecimal amount) {
+        return new TransferDTO()
+                .setUserId(user.getId())
+                .setFromCardId(fromCard.getId())
+                .setToCardId(toCard.getId())
+                .setAmount(amount);
+    }
+
+    private CardEntity newCard(String number) {
+        return new CardEntity()
+                .setNumber(number)
+                .setUser(user)
+                .setBalance(new BigDecimal("100.00"))
+                .setStatus(CardStatus.ACTIVE)
+                .setExpiryDate(LocalDate.now().plusYears(1));
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.Transfer.TransferDTO;
+import com.example.bankcards.entity.CardEntity;
+import com.example.bankcards.entity.UserEntity;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.RoleUsers;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class TransferServiceConcurrencyTest {
+    private static final int THREADS = 8;
+    private static final int TRANSFERS_PER_THREAD = 250;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("100000.00");
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TransferRepository transferRepository;
+
+    private UserEntity user;
+    private CardEntity cardA;
+    private CardEntity cardB;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new UserEntity()
+                .setEmail("concurrency@test.com")
+                .setRole(RoleUsers.ROLE_USER));
+        cardA = cardRepository.save(newCard("1111222233334444"));
+        cardB = cardRepository.save(newCard("5555666677778888"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        transferRepository.deleteAll();
+        cardRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void oppositeTransfers_ShouldCompleteWithoutLockTimeouts() throws InterruptedException {
+        runOppositeTransfers();
+    }
+
+    @Test
+    void oppositeDirectTransfers_ShouldCompleteWithoutLockTimeouts() throws InterruptedException {
+        TransferService target = AopTestUtils.getTargetObject(transferService);
+        ReflectionTestUtils.setField(target, "transferMode", TransferMode.DIRECT);
+        try {
+            runOppositeTransfers();
+        } finally {
+            ReflectionTestUtils.setField(target, "transferMode", TransferMode.LOCKING);
+        }
+    }
+
+    private void runOppositeTransfers() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        List<Runnable> tasks = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            boolean forward = t % 2 == 0;
+            tasks.add(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                        transferService.transfer(new TransferDTO()
+                                .setUserId(user.getId())
+                                .setFromCardId(forward ? cardA.getId() : cardB.getId())
+                                .setToCardId(forward ? cardB.getId() : cardA.getId())
+                                .setAmount(BigDecimal.ONE));
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+        }
+        tasks.forEach(executor::submit);
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES), "Переводы не завершились вовремя");
+
+        assertTrue(failures.isEmpty(), () -> "Ошибки при встречных переводах: " + failures);
+        assertEquals(THREADS * TRANSFERS_PER_THREAD, transferRepository.count());
+        assertEquals(0, INITIAL_BALANCE.compareTo(cardRepository.findById(cardA.getId()).orElseThrow().getBalance()));
+        assertEquals(0, INITIAL_BALANCE.compareTo(cardRepository.findById(cardB.getId()).orElseThrow().getBalance()));
+    }
+
+    private CardEntity newCard(String number) {
+        return new CardEntity()
+                .setNumber(number)
+                .setUser(user)
+                .setBalance(INITIAL_BALANCE)
+                .setStatus(CardStatus.ACTIVE)
+                .setExpiryDate(LocalDate.now().plusYears(1));
+    }
+}
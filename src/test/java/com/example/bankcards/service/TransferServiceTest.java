@@ -1,33 +1,55 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.audit.AuditEventLog;
+import com.example.bankcards.audit.AuditEventType;
+import com.example.bankcards.dto.Transfer.TransferBatchResponseDTO;
 import com.example.bankcards.dto.Transfer.TransferDTO;
 import com.example.bankcards.dto.Transfer.TransferResponseDTO;
 import com.example.bankcards.entity.CardEntity;
 import com.example.bankcards.entity.TransferEntity;
+import com.example.bankcards.entity.UserEntity;
 import com.example.bankcards.entity.enums.CardStatus;
 import com.example.bankcards.exception.card.CardNotFoundException;
+import com.example.bankcards.exception.transfer.TransferException;
+import com.example.bankcards.ledger.LedgerEngine;
+import com.example.bankcards.ledger.LedgerRecord;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.TransferRepository;
 import com.example.bankcards.util.CardValidationUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.CannotAcquireLockException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -40,6 +62,27 @@ class TransferServiceTest {
     @Mock
     private TransferRepository transferRepository;
 
+    @Mock
+    private TransferLockCoordinator transferLockCoordinator;
+
+    @Mock
+    private CardBalanceStripeService cardBalanceStripeService;
+
+    @Mock
+    private CardCache cardCache;
+
+    @Mock
+    private AuditEventLog auditEventLog;
+
+    @Mock
+    private ObjectProvider<LedgerEngine> ledgerEngineProvider;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @InjectMocks
     private TransferService transferService;
 
@@ -54,6 +97,8 @@ class TransferServiceTest {
         SecurityContext securityContext = mock(SecurityContext.class);
         when(securityContext.getAuthentication()).thenReturn(authentication);
         SecurityContextHolder.setContext(securityContext);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
 
         fromCard = new CardEntity();
         fromCard.setId(3L);
@@ -84,8 +129,7 @@ class TransferServiceTest {
     @Test
     void testTransfer_Successful() {
 
-        when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findById(2L)).thenReturn(Optional.of(toCard));
+        when(transferLockCoordinator.lockCards(any())).thenReturn(Map.of(1L, fromCard, 2L, toCard));
         when(transferRepository.save(any(TransferEntity.class))).thenReturn(transferEntity);
 
         try (MockedStatic<CardValidationUtil> mocked = mockStatic(CardValidationUtil.class)) {
@@ -104,15 +148,19 @@ class TransferServiceTest {
             assertEquals(transferDTO.getAmount(), result.getAmount());
             assertEquals(new BigDecimal("900.00"), fromCard.getBalance());
             assertEquals(new BigDecimal("600.00"), toCard.getBalance());
+            verify(transferLockCoordinator).lockCards(List.of(1L, 2L));
             verify(cardRepository, times(2)).save(any(CardEntity.class));
             verify(transferRepository, times(1)).save(any(TransferEntity.class));
+            verify(auditEventLog).publishAfterCommit(argThat(event -> event.type() == AuditEventType.TRANSFER_COMPLETED
+                    && event.fromCardId().equals(1L) && event.toCardId().equals(2L)));
+            assertEquals(1, meterRegistry.get("transfer.duration").tag("outcome", "completed").timer().count());
         }
     }
 
     @Test
     void testTransfer_FromCardNotFound_ThrowsException() {
 
-        when(cardRepository.findById(1L)).thenReturn(Optional.empty());
+        when(transferLockCoordinator.lockCards(any())).thenReturn(Map.of());
 
 
         CardNotFoundException exception = assertThrows(CardNotFoundException.class, () -> transferService.transfer(transferDTO));
@@ -120,13 +168,16 @@ class TransferServiceTest {
         assertEquals(404, exception.getStatus());
         verify(cardRepository, never()).save(any(CardEntity.class));
         verify(transferRepository, never()).save(any(TransferEntity.class));
+        verify(auditEventLog).publish(argThat(event -> event.type() == AuditEventType.TRANSFER_REJECTED && event.status() == 404));
+        verify(auditEventLog, never()).publishAfterCommit(any());
+        assertEquals(1, meterRegistry.get("transfer.rejected")
+                .tags("exception", "CardNotFoundException", "status", "404").counter().count());
     }
 
     @Test
     void testTransfer_ToCardNotFound_ThrowsException() {
 
-        when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findById(2L)).thenReturn(Optional.empty());
+        when(transferLockCoordinator.lockCards(any())).thenReturn(Map.of(1L, fromCard));
 
 
         CardNotFoundException exception = assertThrows(CardNotFoundException.class, () -> transferService.transfer(transferDTO));
@@ -136,12 +187,23 @@ class TransferServiceTest {
         verify(transferRepository, never()).save(any(TransferEntity.class));
     }
 
+    @Test
+    void testTransfer_LockTimeout_RecordsLockTimeoutOutcome() {
+
+        when(transferLockCoordinator.lockCards(any())).thenThrow(new CannotAcquireLockException("Timeout trying to lock table"));
+
+
+        assertThrows(CannotAcquireLockException.class, () -> transferService.transfer(transferDTO));
+        verify(transferRepository, never()).save(any(TransferEntity.class));
+        verify(auditEventLog, never()).publish(any());
+        assertEquals(1, meterRegistry.get("transfer.duration").tag("outcome", "lock_timeout").timer().count());
+    }
+
     @Test
     void testTransfer_InvalidBalance_ThrowsException() {
 
         transferDTO.setAmount(new BigDecimal("2000.00")); // More than fromCard balance
-        when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findById(2L)).thenReturn(Optional.of(toCard));
+        when(transferLockCoordinator.lockCards(any())).thenReturn(Map.of(1L, fromCard, 2L, toCard));
 
         try (MockedStatic<CardValidationUtil> mocked = mockStatic(CardValidationUtil.class)) {
             mocked.when(() -> CardValidationUtil.validateSameUserTransfer(any(), any())).thenAnswer(invocation -> null);
@@ -157,4 +219,194 @@ class TransferServiceTest {
             verify(transferRepository, never()).save(any(TransferEntity.class));
         }
     }
+
+    @Test
+    void testTransferBatch_ReportsResultPerItem() {
+        UserEntity user = new UserEntity();
+        user.setId(1L);
+        fromCard.setUser(user);
+        toCard.setUser(user);
+        when(transferLockCoordinator.lockCards(any())).thenReturn(Map.of(1L, fromCard, 2L, toCard));
+
+        TransferDTO tooLarge = new TransferDTO().setUserId(1L).setFromCardId(1L).setToCardId(2L).setAmount(new BigDecimal("5000.00"));
+        TransferDTO unknownCard = new TransferDTO().setUserId(1L).setFromCardId(1L).setToCardId(9L).setAmount(BigDecimal.TEN);
+        TransferDTO back = new TransferDTO().setUserId(1L).setFromCardId(2L).setToCardId(1L).setAmount(new BigDecimal("50.00"));
+
+        TransferBatchResponseDTO result = transferService.transferBatch(List.of(transferDTO, tooLarge, unknownCard, back));
+
+        assertEquals(2, result.getSucceeded());
+        assertEquals(2, result.getFailed());
+        assertTrue(result.getResults().get(0).isSuccess());
+        assertEquals(400, result.getResults().get(1).getStatus());
+        assertEquals(404, result.getResults().get(2).getStatus());
+        assertTrue(result.getResults().get(3).isSuccess());
+        assertEquals(new BigDecimal("950.00"), fromCard.getBalance());
+        assertEquals(new BigDecimal("550.00"), toCard.getBalance());
+        verify(transferLockCoordinator, times(1)).lockCards(any());
+        verify(transferRepository, times(1)).saveAll(argThat(entities -> ((List<?>) entities).size() == 2));
+    }
+
+    @Test
+    void testTransferDirect_UpdatesBalancesInCardIdOrder() {
+        ReflectionTestUtils.setField(transferService, "transferMode", TransferMode.DIRECT);
+        transferDTO.setFromCardId(2L).setToCardId(1L);
+        when(cardRepository.debitBalance(2L, 1L, CardStatus.ACTIVE, transferDTO.getAmount())).thenReturn(1);
+        when(cardRepository.creditBalance(1L, 1L, CardStatus.ACTIVE, transferDTO.getAmount())).thenReturn(1);
+        when(cardRepository.getReferenceById(anyLong())).thenReturn(new CardEntity());
+
+        TransferResponseDTO result = transferService.transfer(transferDTO);
+
+        assertEquals(2L, result.getFromCard());
+        assertEquals(1L, result.getToCard());
+        var inOrder = inOrder(cardRepository);
+        inOrder.verify(cardRepository).creditBalance(eq(1L), eq(1L), eq(CardStatus.ACTIVE), any());
+        inOrder.verify(cardRepository).debitBalance(eq(2L), eq(1L), eq(CardStatus.ACTIVE), any());
+        verify(transferLockCoordinator, never()).lockCards(any());
+        verify(cardRepository, never()).save(any(CardEntity.class));
+        verify(transferRepository, times(1)).save(any(TransferEntity.class));
+    }
+
+    @Test
+    void testTransferDirect_InsufficientBalance_MapsToTransferException() {
+        ReflectionTestUtils.setField(transferService, "transferMode", TransferMode.DIRECT);
+        UserEntity user = new UserEntity();
+        user.setId(1L);
+        fromCard.setId(1L);
+        fromCard.setUser(user);
+        toCard.setId(2L);
+        toCard.setUser(user);
+        transferDTO.setAmount(new BigDecimal("2000.00"));
+        when(cardRepository.debitBalance(anyLong(), anyLong(), any(), any())).thenReturn(0);
+        when(cardRepository.findAllById(any())).thenReturn(List.of(fromCard, toCard));
+
+        TransferException exception = assertThrows(TransferException.class, () -> transferService.transfer(transferDTO));
+
+        assertEquals(400, exception.getHttpStatus());
+        verify(cardRepository, never()).creditBalance(anyLong(), anyLong(), any(), any());
+        verify(transferRepository, never()).save(any(TransferEntity.class));
+    }
+
+    @Test
+    void testTransferDirect_ReceiverBlocked_MapsToTransferException() {
+        ReflectionTestUtils.setField(transferService, "transferMode", TransferMode.DIRECT);
+        UserEntity user = new UserEntity();
+        user.setId(1L);
+        fromCard.setId(1L);
+        fromCard.setUser(user);
+        toCard.setId(2L);
+        toCard.setUser(user);
+        toCard.setStatus(CardStatus.BLOCK);
+        when(cardRepository.debitBalance(anyLong(), anyLong(), any(), any())).thenReturn(1);
+        when(cardRepository.creditBalance(anyLong(), anyLong(), any(), any())).thenReturn(0);
+        when(cardRepository.findAllById(any())).thenReturn(List.of(fromCard, toCard));
+
+        TransferException exception = assertThrows(TransferException.class, () -> transferService.transfer(transferDTO));
+
+        assertEquals(422, exception.getHttpStatus());
+        verify(transferRepository, never()).save(any(TransferEntity.class));
+    }
+
+    @Test
+    void testTransfer_ToStripedCard_SharesReceiverLockAndCreditsStripe() {
+        UserEntity user = new UserEntity();
+        user.setId(1L);
+        fromCard.setUser(user);
+        toCard.setId(2L);
+        toCard.setUser(user);
+        when(cardBalanceStripeService.cachedStripes(2L)).thenReturn(4);
+        when(transferLockCoordinator.lockForStripedCredit(1L, 2L)).thenReturn(Map.of(1L, fromCard, 2L, toCard));
+
+        transferService.transfer(transferDTO);
+
+        verify(transferLockCoordinator, never()).lockCards(any());
+        verify(cardBalanceStripeService).credit(2L, 4, transferDTO.getAmount());
+        assertEquals(new BigDecimal("900.00"), fromCard.getBalance());
+        assertEquals(new BigDecimal("500.00"), toCard.getBalance());
+        verify(cardRepository, times(1)).save(fromCard);
+        verify(transferRepository, times(1)).save(any(TransferEntity.class));
+    }
+
+    @Test
+    void testTransferDirect_FoldsStripesBeforeRejectingDebit() {
+        ReflectionTestUtils.setField(transferService, "transferMode", TransferMode.DIRECT);
+        when(cardRepository.debitBalance(1L, 1L, CardStatus.ACTIVE, transferDTO.getAmount())).thenReturn(0, 1);
+        when(cardBalanceStripeService.foldCard(1L)).thenReturn(true);
+        when(cardRepository.creditBalance(2L, 1L, CardStatus.ACTIVE, transferDTO.getAmount())).thenReturn(1);
+        when(cardRepository.getReferenceById(anyLong())).thenReturn(new CardEntity());
+
+        transferService.transfer(transferDTO);
+
+        verify(cardRepository, times(2)).debitBalance(1L, 1L, CardStatus.ACTIVE, transferDTO.getAmount());
+        verify(cardRepository, never()).findAllById(any());
+        verify(transferRepository, times(1)).save(any(TransferEntity.class));
+    }
+
+    @Test
+    void testTransferLedger_DelegatesToEngineWithoutDatabase() {
+        ReflectionTestUtils.setField(transferService, "transferMode", TransferMode.LEDGER);
+        LedgerEngine ledgerEngine = mock(LedgerEngine.class);
+        when(ledgerEngineProvider.getObject()).thenReturn(ledgerEngine);
+        when(ledgerEngine.transfer(transferDTO)).thenReturn(new LedgerRecord(7L, 1L, 2L, 1L, 10000L, System.currentTimeMillis()));
+
+        TransferResponseDTO response = transferService.transfer(transferDTO);
+
+        assertEquals(7L, response.getLedgerSeq());
+        assertNull(response.getId());
+        assertEquals(new BigDecimal("100.00"), response.getAmount());
+        verifyNoInteractions(cardRepository, transferRepository, transferLockCoordinator, transactionTemplate);
+        verify(auditEventLog, never()).publishAfterCommit(any());
+        assertEquals(1, meterRegistry.get("transfer.duration").tag("mode", "LEDGER").tag("outcome", "completed").timer().count());
+    }
+
+    @Test
+    void testTransferBatchLedger_CollectsPerItemResults() {
+        ReflectionTestUtils.setField(transferService, "transferMode", TransferMode.LEDGER);
+        LedgerEngine ledgerEngine = mock(LedgerEngine.class);
+        when(ledgerEngineProvider.getObject()).thenReturn(ledgerEngine);
+        TransferDTO rejected = new TransferDTO().setUserId(1L).setFromCardId(1L).setToCardId(2L).setAmount(new BigDecimal("5000.00"));
+        LedgerRecord record = new LedgerRecord(8L, 1L, 2L, 1L, 10000L, System.currentTimeMillis());
+        CompletableFuture<LedgerRecord> durable = CompletableFuture.completedFuture(record);
+        when(ledgerEngine.submit(transferDTO)).thenReturn(durable);
+        when(ledgerEngine.await(transferDTO, durable)).thenReturn(record);
+        when(ledgerEngine.submit(rejected)).thenThrow(new TransferException("Недостаточно средств или карта заблокирована(BLOCK, EXPIRED)", 400));
+
+        TransferBatchResponseDTO response = transferService.transferBatch(List.of(transferDTO, rejected));
+
+        assertEquals(1, response.getSucceeded());
+        assertEquals(1, response.getFailed());
+        assertEquals(8L, response.getResults().get(0).getTransfer().getLedgerSeq());
+        assertEquals(400, response.getResults().get(1).getStatus());
+        InOrder inOrder = inOrder(ledgerEngine);
+        inOrder.verify(ledgerEngine).submit(transferDTO);
+        inOrder.verify(ledgerEngine).submit(rejected);
+        inOrder.verify(ledgerEngine).await(transferDTO, durable);
+        inOrder.verify(ledgerEngine).submit(rejected);
+        verify(transferLockCoordinator, never()).lockCards(any());
+        verifyNoInteractions(transactionTemplate);
+        verify(auditEventLog).publish(argThat(event -> event.type() == AuditEventType.TRANSFER_REJECTED));
+    }
+
+    @Test
+    void testTransferBatchLedger_SubmitsAllTransfersBeforeWaitingForJournal() {
+        ReflectionTestUtils.setField(transferService, "transferMode", TransferMode.LEDGER);
+        LedgerEngine ledgerEngine = mock(LedgerEngine.class);
+        when(ledgerEngineProvider.getObject()).thenReturn(ledgerEngine);
+        TransferDTO second = new TransferDTO().setUserId(1L).setFromCardId(1L).setToCardId(3L).setAmount(new BigDecimal("50.00"));
+        CompletableFuture<LedgerRecord> firstDurable = new CompletableFuture<>();
+        CompletableFuture<LedgerRecord> secondDurable = new CompletableFuture<>();
+        when(ledgerEngine.submit(transferDTO)).thenReturn(firstDurable);
+        when(ledgerEngine.submit(second)).thenReturn(secondDurable);
+        when(ledgerEngine.await(transferDTO, firstDurable)).thenReturn(new LedgerRecord(9L, 1L, 2L, 1L, 10000L, System.currentTimeMillis()));
+        when(ledgerEngine.await(second, secondDurable)).thenReturn(new LedgerRecord(10L, 1L, 3L, 1L, 5000L, System.currentTimeMillis()));
+
+        TransferBatchResponseDTO response = transferService.transferBatch(List.of(transferDTO, second));
+
+        assertEquals(2, response.getSucceeded());
+        assertEquals(10L, response.getResults().get(1).getTransfer().getLedgerSeq());
+        InOrder inOrder = inOrder(ledgerEngine);
+        inOrder.verify(ledgerEngine).submit(transferDTO);
+        inOrder.verify(ledgerEngine).submit(second);
+        inOrder.verify(ledgerEngine).await(transferDTO, firstDurable);
+        inOrder.verify(ledgerEngine).await(second, secondDurable);
+    }
 }
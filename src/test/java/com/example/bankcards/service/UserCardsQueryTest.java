@@ -0,0 +1,130 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.Card.CardDTO;
+import com.example.bankcards.entity.CardEntity;
+import com.example.bankcards.entity.UserEntity;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.RoleUsers;
+import com.example.bankcards.repository.CardBalanceStripeRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class UserCardsQueryTest {
+    private static final int CARDS = 20;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private CardBalanceStripeRepository cardBalanceStripeRepository;
+
+    @Autowired
+    private CardBalanceStripeService cardBalanceStripeService;
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private UserEntity user;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new UserEntity().setEmail("cards-owner@test.com").setRole(RoleUsers.ROLE_USER));
+        for (int i = 0; i < CARDS; i++) {
+            cardRepository.save(new CardEntity()
+                    .setNumber(String.format("%016d", 5_000_000_000_000_000L + i))
+                    .setUser(user)
+                    .setBalance(BigDecimal.TEN)
+                    .setStatus(CardStatus.ACTIVE)
+                    .setExpiryDate(LocalDate.now().plusYears(1)));
+        }
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "cards-owner@test.com", null, List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        statistics.setStatisticsEnabled(false);
+        SecurityContextHolder.clearContext();
+        cardBalanceStripeRepository.deleteAllInBatch();
+        cardRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void getUserCards_ReadsOwnerAndCardsInTwoStatements() {
+        List<CardDTO> cards = userService.getUserCards(user.getId());
+
+        assertEquals(CARDS, cards.size());
+        assertEquals("**** **** **** 0000", cards.get(0).getMaskedNumber());
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getCollectionLoadCount());
+        assertEquals(1, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void findWithCardsById_LoadsUserAndCardsInOneStatement() {
+        int loaded = transactionTemplate.execute(status ->
+                userRepository.findWithCardsById(user.getId()).orElseThrow().getCardEntities().size());
+
+        assertEquals(CARDS, loaded);
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void cardLists_IncludeStripedBalance() {
+        Long cardId = cardRepository.findIdsByUserId(user.getId()).get(0);
+        transactionTemplate.executeWithoutResult(status -> {
+            CardEntity card = cardRepository.findById(cardId).orElseThrow();
+            cardBalanceStripeService.setStripes(card, 4);
+            cardRepository.save(card);
+            cardBalanceStripeService.credit(cardId, 4, new BigDecimal("5.50"));
+        });
+        BigDecimal expected = new BigDecimal("15.50");
+
+        CardDTO listed = userService.getUserCards(user.getId()).stream()
+                .filter(card -> card.getId().equals(cardId)).findFirst().orElseThrow();
+
+        assertEquals(0, expected.compareTo(listed.getBalance()));
+        assertEquals(0, expected.compareTo(cardRepository.findAllCardViews(PageRequest.of(0, CARDS)).stream()
+                .filter(view -> view.id().equals(cardId)).findFirst().orElseThrow().balance()));
+        assertEquals(0, expected.compareTo(cardService.getBalanceCardByCardId(cardId).getBalance()));
+    }
+}
@@ -3,6 +3,7 @@ package com.example.bankcards.service;
 import com.example.bankcards.dto.Card.CardDTO;
 import com.example.bankcards.dto.Jwt.JwtAuthenticationDto;
 import com.example.bankcards.dto.Jwt.RefreshTokenDto;
+import com.example.bankcards.dto.Pagination.CursorPageDTO;
 import com.example.bankcards.dto.User.UserDTO;
 import com.example.bankcards.dto.User.UserRegisterDTO;
 import com.example.bankcards.dto.User.UserSignInDTO;
@@ -14,9 +15,13 @@ import com.example.bankcards.exception.DuplicateResourceException;
 import com.example.bankcards.exception.user.UserNotFoundException;
 import com.example.bankcards.mappers.CardMapper;
 import com.example.bankcards.mappers.UserMapper;
+import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.repository.projection.CardView;
+import com.example.bankcards.security.UserAccessCache;
 import com.example.bankcards.security.jwt.JwtService;
 import com.example.bankcards.util.AuthUtils;
+import com.example.bankcards.util.CursorUtil;
 import jakarta.validation.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -31,6 +36,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
@@ -41,9 +47,11 @@ import javax.naming.AuthenticationException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -53,6 +61,9 @@ class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private CardRepository cardRepository;
+
     @Mock
     private PasswordEncoder passwordEncoder;
 
@@ -65,6 +76,9 @@ class UserServiceTest {
     @Mock
     private CardMapper cardMapper;
 
+    @Mock
+    private UserAccessCache userAccessCache;
+
     @InjectMocks
     private UserService userService;
 
@@ -73,6 +87,7 @@ class UserServiceTest {
     private UserRegisterDTO userRegisterDTO;
     private UserDTO userDTO;
     private CardEntity cardEntity;
+    private CardView cardView;
     private CardDTO cardDTO;
     private JwtAuthenticationDto jwtAuthenticationDto;
     private RefreshTokenDto refreshTokenDto;
@@ -113,6 +128,8 @@ class UserServiceTest {
         cardEntity.setNumber("1234567890123456");
         cardEntity.setStatus(CardStatus.ACTIVE);
 
+        cardView = new CardView(1L, "1234567890123456", null, null, CardStatus.ACTIVE);
+
         cardDTO = new CardDTO();
         cardDTO.setMaskedNumber("**** **** **** 3456");
         cardDTO.setStatus(CardStatus.ACTIVE);
@@ -210,6 +227,7 @@ class UserServiceTest {
         verify(userMapper, times(1)).toEntity(userRegisterDTO, passwordEncoder);
         verify(userRepository, times(1)).save(userEntity);
         verify(userMapper, times(1)).toUserDTO(userEntity);
+        verify(userAccessCache, times(1)).evict(userEntity.getEmail());
     }
 
     @Test
@@ -335,10 +353,10 @@ class UserServiceTest {
     @Test
     void testGetUserCards_Successful_AsAdmin() {
         
-        userEntity.setCardEntities(List.of(cardEntity));
+        when(cardRepository.streamCardViewsByUserId(1L)).thenReturn(Stream.of(cardView));
         when(userRepository.findById(1L)).thenReturn(Optional.of(userEntity));
         when(authentication.getName()).thenReturn("admin@example.com");
-        when(cardMapper.toCardDTO(cardEntity)).thenReturn(cardDTO);
+        when(cardMapper.cardViewToCardDTO(cardView)).thenReturn(cardDTO);
         try (MockedStatic<AuthUtils> mocked = mockStatic(AuthUtils.class)) {
             mocked.when(() -> AuthUtils.isAdmin(authentication)).thenReturn(true);
 
@@ -352,17 +370,18 @@ class UserServiceTest {
             assertEquals("**** **** **** 3456", result.get(0).getMaskedNumber());
             assertEquals(CardStatus.ACTIVE, result.get(0).getStatus());
             verify(userRepository, times(1)).findById(1L);
-            verify(cardMapper, times(1)).toCardDTO(cardEntity);
+            verify(cardRepository, times(1)).streamCardViewsByUserId(1L);
+            verify(cardMapper, times(1)).cardViewToCardDTO(cardView);
         }
     }
 
     @Test
     void testGetUserCards_Successful_AsSameUser() {
         
-        userEntity.setCardEntities(List.of(cardEntity));
+        when(cardRepository.streamCardViewsByUserId(1L)).thenReturn(Stream.of(cardView));
         when(userRepository.findById(1L)).thenReturn(Optional.of(userEntity));
         when(authentication.getName()).thenReturn("test@example.com");
-        when(cardMapper.toCardDTO(cardEntity)).thenReturn(cardDTO);
+        when(cardMapper.cardViewToCardDTO(cardView)).thenReturn(cardDTO);
         try (MockedStatic<AuthUtils> mocked = mockStatic(AuthUtils.class)) {
             mocked.when(() -> AuthUtils.isAdmin(authentication)).thenReturn(false);
 
@@ -376,7 +395,8 @@ class UserServiceTest {
             assertEquals("**** **** **** 3456", result.get(0).getMaskedNumber());
             assertEquals(CardStatus.ACTIVE, result.get(0).getStatus());
             verify(userRepository, times(1)).findById(1L);
-            verify(cardMapper, times(1)).toCardDTO(cardEntity);
+            verify(cardRepository, times(1)).streamCardViewsByUserId(1L);
+            verify(cardMapper, times(1)).cardViewToCardDTO(cardView);
         }
     }
 
@@ -390,7 +410,8 @@ class UserServiceTest {
         assertEquals("Пользователь не найден", exception.getMessage());
         assertEquals(404, exception.getStatus());
         verify(userRepository, times(1)).findById(1L);
-        verify(cardMapper, never()).toCardDTO(any());
+        verify(cardRepository, never()).streamCardViewsByUserId(1L);
+        verify(cardMapper, never()).cardViewToCardDTO(any());
     }
 
     @Test
@@ -405,7 +426,8 @@ class UserServiceTest {
             AccessDeniedException exception = assertThrows(AccessDeniedException.class, () -> userService.getUserCards(1L));
             assertEquals("Доступ запрещен", exception.getMessage());
             verify(userRepository, times(1)).findById(1L);
-            verify(cardMapper, never()).toCardDTO(any());
+            verify(cardRepository, never()).streamCardViewsByUserId(1L);
+            verify(cardMapper, never()).cardViewToCardDTO(any());
         }
     }
 
@@ -429,6 +451,30 @@ class UserServiceTest {
     }
 
 
+    @Test
+    void testGetAllUsersAfter_Successful() {
+
+        when(userRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(userEntity), PageRequest.ofSize(1), true));
+        when(userMapper.toUserDTO(userEntity)).thenReturn(userDTO);
+
+
+        CursorPageDTO<UserDTO> result = userService.getAllUsersAfter(null, 1);
+
+
+        assertEquals(userDTO, result.getContent().get(0));
+        assertTrue(result.isHasNext());
+        assertEquals(userEntity.getId(), CursorUtil.decode(result.getNextCursor()));
+        verify(userRepository, never()).findAll(any(Pageable.class));
+    }
+
+    @Test
+    void testGetAllUsersAfter_InvalidCursor_ThrowsException() {
+
+        assertThrows(IllegalArgumentException.class, () -> userService.getAllUsersAfter("@@@", 10));
+        verify(userRepository, never()).findByIdGreaterThanOrderByIdAsc(any(), any());
+    }
+
     @Test
     void testRefreshToken_UserNotFound_ThrowsException() throws Exception {
         
@@ -467,7 +513,7 @@ class UserServiceTest {
     @Test
     void testGetUserCards_EmptyCardList() {
         
-        userEntity.setCardEntities(Collections.emptyList());
+        when(cardRepository.streamCardViewsByUserId(1L)).thenReturn(Stream.empty());
         when(userRepository.findById(1L)).thenReturn(Optional.of(userEntity));
         when(authentication.getName()).thenReturn("test@example.com");
         try (MockedStatic<AuthUtils> mocked = mockStatic(AuthUtils.class)) {
@@ -480,7 +526,8 @@ class UserServiceTest {
             assertNotNull(result);
             assertTrue(result.isEmpty());
             verify(userRepository, times(1)).findById(1L);
-            verify(cardMapper, never()).toCardDTO(any());
+            verify(cardRepository, times(1)).streamCardViewsByUserId(1L);
+            verify(cardMapper, never()).cardViewToCardDTO(any());
         }
     }
 
@@ -496,11 +543,12 @@ class UserServiceTest {
         cardDTO2.setMaskedNumber("**** **** **** 7654");
         cardDTO2.setStatus(CardStatus.BLOCK);
 
-        userEntity.setCardEntities(List.of(cardEntity, cardEntity2));
+        CardView cardView2 = new CardView(2L, "9876543210987654", null, null, CardStatus.BLOCK);
+        when(cardRepository.streamCardViewsByUserId(1L)).thenReturn(Stream.of(cardView, cardView2));
         when(userRepository.findById(1L)).thenReturn(Optional.of(userEntity));
         when(authentication.getName()).thenReturn("test@example.com");
-        when(cardMapper.toCardDTO(cardEntity)).thenReturn(cardDTO);
-        when(cardMapper.toCardDTO(cardEntity2)).thenReturn(cardDTO2);
+        when(cardMapper.cardViewToCardDTO(cardView)).thenReturn(cardDTO);
+        when(cardMapper.cardViewToCardDTO(cardView2)).thenReturn(cardDTO2);
 
         try (MockedStatic<AuthUtils> mocked = mockStatic(AuthUtils.class)) {
             mocked.when(() -> AuthUtils.isAdmin(authentication)).thenReturn(false);
@@ -516,8 +564,9 @@ class UserServiceTest {
             assertEquals("**** **** **** 7654", result.get(1).getMaskedNumber());
             assertEquals(CardStatus.BLOCK, result.get(1).getStatus());
             verify(userRepository, times(1)).findById(1L);
-            verify(cardMapper, times(1)).toCardDTO(cardEntity);
-            verify(cardMapper, times(1)).toCardDTO(cardEntity2);
+            verify(cardRepository, times(1)).streamCardViewsByUserId(1L);
+            verify(cardMapper, times(1)).cardViewToCardDTO(cardView);
+            verify(cardMapper, times(1)).cardViewToCardDTO(cardView2);
         }
     }
     
@@ -0,0 +1,44 @@
+package com.example.bankcards.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedCacheTest {
+
+    @Test
+    void put_OverMaxSize_EvictsLeastRecentlyUsed() {
+        BoundedCache<String, Integer> cache = new BoundedCache<>(2);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.get("a");
+        cache.put("c", 3);
+
+        assertEquals(1, cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(3, cache.get("c"));
+        assertEquals(1, cache.stats().evictions());
+    }
+
+    @Test
+    void get_ExpiredEntry_ReturnsNullAndCountsExpiration() {
+        BoundedCache<String, Integer> cache = new BoundedCache<>(10);
+        cache.put("expired", 1, System.currentTimeMillis() - 1);
+        cache.put("alive", 2, System.currentTimeMillis() + 60_000);
+
+        assertNull(cache.get("expired"));
+        assertEquals(2, cache.get("alive"));
+        assertEquals(1, cache.stats().expirations());
+        assertEquals(0.5, cache.stats().hitRate());
+    }
+
+    @Test
+    void purgeExpired_RemovesOnlyExpiredEntries() {
+        BoundedCache<String, Integer> cache = new BoundedCache<>(10);
+        cache.put("expired", 1, System.currentTimeMillis() - 1);
+        cache.put("forever", 2);
+
+        assertEquals(1, cache.purgeExpired());
+        assertEquals(1, cache.size());
+    }
+}
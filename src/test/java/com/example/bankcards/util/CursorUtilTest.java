@@ -0,0 +1,68 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.dto.Pagination.CursorPageDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CursorUtilTest {
+
+    @Test
+    void decode_EncodedId_ReturnsSameId() {
+        assertEquals(12345L, CursorUtil.decode(CursorUtil.encode(12345L)));
+        assertEquals(0L, CursorUtil.decode(null));
+        assertEquals(0L, CursorUtil.decode(""));
+    }
+
+    @Test
+    void decode_InvalidCursor_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> CursorUtil.decode("не курсор"));
+        assertThrows(IllegalArgumentException.class, () -> CursorUtil.decode(CursorUtil.encode(1L) + "!"));
+    }
+
+    @Test
+    void pageable_SizeOutOfRange_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> CursorUtil.pageable(0));
+        assertThrows(IllegalArgumentException.class, () -> CursorUtil.pageable(CursorUtil.MAX_PAGE_SIZE + 1));
+        assertEquals(20, CursorUtil.pageable(20).getPageSize());
+    }
+
+    @Test
+    void toPage_SliceWithNext_ReturnsCursorOfLastElement() {
+        CursorPageDTO<String> page = CursorUtil.toPage(new SliceImpl<>(List.of(3L, 7L), PageRequest.ofSize(2), true),
+                id -> id, String::valueOf);
+
+        assertEquals(List.of("3", "7"), page.getContent());
+        assertTrue(page.isHasNext());
+        assertEquals(7L, CursorUtil.decode(page.getNextCursor()));
+    }
+
+    @Test
+    void toPage_LastSlice_ReturnsNoCursor() {
+        CursorPageDTO<String> page = CursorUtil.toPage(new SliceImpl<>(List.of(9L), PageRequest.ofSize(2), false),
+                id -> id, String::valueOf);
+
+        assertFalse(page.isHasNext());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void decodeTime_EncodedTimeAndId_ReturnsSamePosition() {
+        LocalDateTime time = LocalDateTime.of(2025, 3, 1, 12, 30, 15, 123_000_000);
+
+        assertEquals(new CursorUtil.TimeCursor(time, 42L), CursorUtil.decodeTime(CursorUtil.encode(time, 42L)));
+        assertNull(CursorUtil.decodeTime(null));
+        assertNull(CursorUtil.decodeTime(""));
+    }
+
+    @Test
+    void decodeTime_InvalidCursor_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> CursorUtil.decodeTime(CursorUtil.encode(42L)));
+        assertThrows(IllegalArgumentException.class, () -> CursorUtil.decodeTime("не курсор"));
+    }
+}